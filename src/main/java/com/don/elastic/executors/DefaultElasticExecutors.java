@@ -1,15 +1,38 @@
 package com.don.elastic.executors;
 
+import com.don.elastic.executors.config.ConfigChangeListener;
+import com.don.elastic.executors.config.ExecutorProperty;
+import com.don.elastic.executors.config.ExecutorsConfig;
+import com.don.elastic.executors.config.ExecutorsProperty;
+import com.don.elastic.executors.config.ExecutorsPropertyReloader;
 import com.don.elastic.executors.excutor.ElasticExecutor;
+import com.don.elastic.executors.excutor.ElasticFutureTask;
+import com.don.elastic.executors.excutor.KeyedOrderedExecutor;
 import com.don.elastic.executors.factory.DefaultElasticExecutorFactory;
 import com.don.elastic.executors.factory.ElasticExecutorFactory;
+import com.don.elastic.executors.factory.ShutdownReport;
+import com.don.elastic.executors.metrics.FallbackMetrics;
+import com.don.elastic.executors.selector.AbstractExecutorSelector;
 import com.don.elastic.executors.selector.DefaultExecutorSelector;
+import com.don.elastic.executors.selector.ExecutorFactoryAware;
 import com.don.elastic.executors.selector.ExecutorSelector;
+import com.don.elastic.executors.task.CompactExecutorTaskContext;
+import com.don.elastic.executors.task.DefaultExecutorTask;
 import com.don.elastic.executors.task.ExecutorTask;
+import com.don.elastic.executors.task.ExecutorTaskContext;
 import com.don.elastic.executors.util.Asserts;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
@@ -21,16 +44,211 @@ import java.util.concurrent.TimeUnit;
 public class DefaultElasticExecutors implements ElasticExecutors {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ElasticExecutors.class);
+
+    /**
+     * 预热任务的最长等待时间
+     */
+    private static final long WARMUP_TIMEOUT_MILLIS = 10000;
+
     /**
      * 线程池选择器
      */
-    private ExecutorSelector selector = new DefaultExecutorSelector();
+    private ExecutorSelector selector = newSelector();
 
     /**
      * 线程池工厂
      */
     private ElasticExecutorFactory executorFactory = new DefaultElasticExecutorFactory();
 
+    /**
+     * 合并提交的在途任务表
+     */
+    private final TaskCoalescer coalescer = new TaskCoalescer(ExecutorsProperty.getCoalesceMaxInFlight());
+
+    /**
+     * 每个线程池上的按key串行执行器，线程池被替换后重新创建
+     */
+    private final ConcurrentMap<String, KeyedOrderedExecutor> orderedExecutors = new ConcurrentHashMap<>();
+
+    /**
+     * 是否就绪，懒加载模式下直接就绪
+     */
+    private volatile boolean ready;
+
+    /**
+     * 预热完成后释放，等待就绪的线程在这里等待
+     */
+    private final CountDownLatch readyLatch = new CountDownLatch(1);
+
+    /**
+     * 是否已经关闭，关闭后后台预热不再标记为就绪
+     */
+    private volatile boolean closed;
+
+    /**
+     * 配置变更监听器，先调整线程池再清空选择器缓存
+     */
+    private final ConfigChangeListener configChangeListener = new ConfigChangeListener() {
+        @Override
+        public void onChange(ExecutorsConfig oldConfig, ExecutorsConfig newConfig) {
+            if (executorFactory instanceof ConfigChangeListener) {
+                ((ConfigChangeListener) executorFactory).onChange(oldConfig, newConfig);
+            }
+            if (selector instanceof AbstractExecutorSelector) {
+                ((AbstractExecutorSelector) selector).invalidateCache();
+            }
+        }
+    };
+
+    /**
+     * 配置文件热加载，没有开启时为null
+     */
+    private ExecutorsPropertyReloader reloader;
+
+    public DefaultElasticExecutors() {
+        if (selector instanceof ExecutorFactoryAware) {
+            ((ExecutorFactoryAware) selector).setExecutorFactory(executorFactory);
+        }
+        ExecutorsProperty.addListener(configChangeListener);
+        if (ExecutorsProperty.isReloadEnable()) {
+            startReloader();
+        }
+        if (ExecutorsProperty.isEagerInit()) {
+            startAsync();
+        } else {
+            markReady();
+        }
+    }
+
+    /**
+     * 在后台线程中预热，构造方法立即返回，预热完成前{@link #isReady()}返回false
+     */
+    private void startAsync() {
+        Thread warmupThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                start();
+            }
+        }, "elastic-executors-warmup");
+        warmupThread.setDaemon(true);
+        warmupThread.start();
+    }
+
+    /**
+     * 根据配置elastic.executors.selector创建选择器，创建失败时使用默认选择器
+     * @return
+     */
+    private static ExecutorSelector newSelector() {
+        String className = new ExecutorsProperty().getSelector();
+        try {
+            Class<?> selectorClass = Class.forName(className, true, Thread.currentThread().getContextClassLoader());
+            return (ExecutorSelector) selectorClass.getDeclaredConstructor().newInstance();
+        } catch (Exception ex) {
+            LOGGER.warn("选择器{}创建失败，将使用默认选择器", className, ex);
+            return new DefaultExecutorSelector();
+        }
+    }
+
+    private void startReloader() {
+        reloader = ExecutorsPropertyReloader.create();
+        if (reloader == null) {
+            return;
+        }
+        try {
+            reloader.start();
+        } catch (IOException ex) {
+            LOGGER.warn("配置文件热加载启动失败", ex);
+            reloader = null;
+        }
+    }
+
+    /**
+     * 预先创建所有配置的线程池，启动核心线程，预热选择器缓存并执行预热任务，完成后标记为就绪。
+     * 预热失败时同样标记为就绪，提交任务不依赖预热
+     */
+    public synchronized void start() {
+        if (ready || closed) {
+            return;
+        }
+        try {
+            initPools();
+        } catch (RuntimeException ex) {
+            LOGGER.warn("复合弹性线程池预热失败", ex);
+        } finally {
+            markReady();
+        }
+    }
+
+    private void initPools() {
+        long begin = System.currentTimeMillis();
+        Set<String> poolNames = new LinkedHashSet<>();
+        for (ExecutorProperty property : ExecutorsProperty.getExecutorPropertyList()) {
+            poolNames.add(property.getPoolName());
+        }
+
+        List<ElasticExecutor> executors = new ArrayList<>(poolNames.size());
+        for (String poolName : poolNames) {
+            ElasticExecutor executor = executorFactory.getExecutor(poolName);
+            int started = executor.prestartAllCoreThreads();
+            executors.add(executor);
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.info("线程池{}预先创建完成，启动核心线程数: {}", poolName, started);
+            }
+        }
+
+        List<String> inputs = new ArrayList<>(poolNames);
+        inputs.addAll(ExecutorsProperty.getWarmupInputs());
+        for (String input : inputs) {
+            selector.selectPoolKey(CompactExecutorTaskContext.of(input));
+        }
+
+        warmUp(executors, ExecutorsProperty.getWarmupTasks());
+
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("复合弹性线程池预热完成，线程池数: {}, 耗时: {}ms", executors.size(), System.currentTimeMillis() - begin);
+        }
+    }
+
+    /**
+     * 向每个线程池提交空任务，让提交和执行路径提前完成JIT编译
+     * @param executors
+     * @param warmupTasks
+     */
+    private void warmUp(List<ElasticExecutor> executors, int warmupTasks) {
+        if (warmupTasks <= 0) {
+            return;
+        }
+        Callable<Long> warmupTask = new Callable<Long>() {
+            @Override
+            public Long call() {
+                return System.nanoTime();
+            }
+        };
+        List<Future<Long>> futures = new ArrayList<>(executors.size() * warmupTasks);
+        for (ElasticExecutor executor : executors) {
+            ExecutorTaskContext taskContext = CompactExecutorTaskContext.of(executor.getPoolName());
+            for (int i = 0; i < warmupTasks; i++) {
+                try {
+                    futures.add(executor.submit(new DefaultExecutorTask<>(taskContext, warmupTask)));
+                } catch (Exception ex) {
+                    LOGGER.warn("线程池{}预热任务提交失败", executor.getPoolName(), ex);
+                    break;
+                }
+            }
+        }
+        long deadline = System.currentTimeMillis() + WARMUP_TIMEOUT_MILLIS;
+        for (Future<Long> future : futures) {
+            try {
+                future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                LOGGER.warn("预热任务未能在{}ms内完成", WARMUP_TIMEOUT_MILLIS);
+                return;
+            }
+        }
+    }
 
     @Override
     public <V> Future<V> submit(ExecutorTask<V> task) {
@@ -41,11 +259,180 @@ public class DefaultElasticExecutors implements ElasticExecutors {
     }
 
     @Override
-    public void shutdown(int timeout, TimeUnit timeUnit) {
+    public <V> Future<V> submitCoalesced(ExecutorTask<V> task) {
+        Asserts.notNull(task, "task == null");
+        ExecutorTaskContext key = TaskCoalescer.keyOf(task.getTaskContext());
+        if (key == null) {
+            return submit(task);
+        }
+        ElasticFutureTask<V> future = new ElasticFutureTask<>(task);
+        Future<V> inFlight = coalescer.reserve(key, future);
+        if (inFlight != null) {
+            task.destroy();
+            return inFlight;
+        }
+        // 只有占用了合并键的提交方入队
+        String poolKey = selector.selectPoolKey(task.getTaskContext());
+        try {
+            return executorFactory.getExecutor(poolKey).submit(future);
+        } catch (RuntimeException ex) {
+            coalescer.release(key, future);
+            throw ex;
+        }
+    }
+
+    @Override
+    public <V> Future<V> submitOrdered(ExecutorTask<V> task, Object key) {
+        Asserts.notNull(task, "task == null");
+        if (key == null) {
+            return submit(task);
+        }
+        String poolKey = selector.selectPoolKey(task.getTaskContext());
+        ElasticExecutor executor = executorFactory.getExecutor(poolKey);
+        return orderedExecutor(executor).submit(key, task);
+    }
+
+    /**
+     * 获取线程池对应的按key串行执行器，线程池被替换时旧的执行器中已排队的任务继续在旧线程池执行
+     * @param executor
+     * @return
+     */
+    private KeyedOrderedExecutor orderedExecutor(ElasticExecutor executor) {
+        String poolName = executor.getPoolName();
+        KeyedOrderedExecutor ordered = orderedExecutors.get(poolName);
+        while (ordered == null || ordered.getExecutor() != executor) {
+            KeyedOrderedExecutor newOrdered = new KeyedOrderedExecutor(executor, ExecutorsProperty.getOrderedMaxBatch());
+            if (ordered == null) {
+                ordered = orderedExecutors.putIfAbsent(poolName, newOrdered);
+                if (ordered == null) {
+                    ordered = newOrdered;
+                }
+            } else if (orderedExecutors.replace(poolName, ordered, newOrdered)) {
+                ordered = newOrdered;
+            } else {
+                ordered = orderedExecutors.get(poolName);
+            }
+        }
+        return ordered;
+    }
+
+    @Override
+    public ExecutorHandle handle(ExecutorTaskContext taskContext) {
+        Asserts.notNull(taskContext, "taskContext == null");
+        return new BoundExecutorHandle(taskContext);
+    }
+
+    private void markReady() {
+        if (!closed) {
+            ready = true;
+        }
+        readyLatch.countDown();
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public boolean awaitReady(long timeout, TimeUnit timeUnit) throws InterruptedException {
+        return readyLatch.await(timeout, timeUnit) && ready;
+    }
+
+    @Override
+    public ShutdownReport shutdown(int timeout, TimeUnit timeUnit) {
         if (LOGGER.isInfoEnabled()) {
             LOGGER.info("开始关闭复合弹性线程池, 等待时间: {}, 单位: {}", timeout, timeUnit);
         }
-        executorFactory.shutdown(timeout, timeUnit);
+        closed = true;
+        ready = false;
+        ExecutorsProperty.removeListener(configChangeListener);
+        if (reloader != null) {
+            try {
+                reloader.close();
+            } catch (IOException ex) {
+                LOGGER.warn("配置文件热加载关闭失败", ex);
+            }
+        }
+        return executorFactory.shutdown(timeout, timeUnit);
+    }
+
+    @Override
+    public FallbackMetrics getFallbackMetrics() {
+        return executorFactory.getFallbackMetrics();
+    }
+
+    @Override
+    public long getCoalescedTaskCount() {
+        return coalescer.getCoalescedCount();
+    }
+
+    /**
+     * 绑定线程池的提交句柄，线程池工厂代数变化或者线程池已关闭时重新解析
+     */
+    private final class BoundExecutorHandle implements ExecutorHandle {
+
+        private final ExecutorTaskContext taskContext;
+
+        private volatile Binding binding;
+
+        private BoundExecutorHandle(ExecutorTaskContext taskContext) {
+            this.taskContext = taskContext;
+            this.binding = bind();
+        }
+
+        @Override
+        public <V> Future<V> submit(ExecutorTask<V> task) {
+            Asserts.notNull(task, "task == null");
+            return current().executor.submit(task);
+        }
+
+        @Override
+        public <V> Future<V> submit(Callable<V> callable) {
+            Asserts.notNull(callable, "callable == null");
+            return current().executor.submit(new DefaultExecutorTask<>(taskContext, callable));
+        }
+
+        @Override
+        public String getPoolKey() {
+            return current().poolKey;
+        }
+
+        private Binding current() {
+            Binding current = binding;
+            if (current.generation != executorFactory.getGeneration() || current.executor.isShutdown()) {
+                current = bind();
+                binding = current;
+            }
+            return current;
+        }
+
+        private Binding bind() {
+            // 先读代数再解析，解析期间发生的变化会在下一次提交时重新绑定
+            long generation = executorFactory.getGeneration();
+            String poolKey = selector.selectPoolKey(taskContext);
+            ElasticExecutor executor = executorFactory.getExecutor(poolKey);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("任务{}的提交句柄绑定到线程池{}", taskContext.getTaskName(), executor.getPoolName());
+            }
+            // 选择的线程池可能路由到兜底线程池，记录实际绑定的线程池
+            return new Binding(executor.getPoolName(), executor, generation);
+        }
+    }
+
+    private static final class Binding {
+
+        private final String poolKey;
+
+        private final ElasticExecutor executor;
+
+        private final long generation;
+
+        private Binding(String poolKey, ElasticExecutor executor, long generation) {
+            this.poolKey = poolKey;
+            this.executor = executor;
+            this.generation = generation;
+        }
     }
 
 }
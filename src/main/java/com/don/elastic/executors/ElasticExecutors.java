@@ -1,7 +1,9 @@
 package com.don.elastic.executors;
 
-import com.don.elastic.executors.factory.ElasticExecutorFactory;
+import com.don.elastic.executors.factory.ShutdownReport;
+import com.don.elastic.executors.metrics.FallbackMetrics;
 import com.don.elastic.executors.task.ExecutorTask;
+import com.don.elastic.executors.task.ExecutorTaskContext;
 
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -20,10 +22,66 @@ public interface ElasticExecutors {
     <V> Future<V> submit(ExecutorTask<V> task);
 
     /**
-     * 关闭线程池
+     * 合并提交：任务名称和参数都相同的任务还在排队或执行时，直接返回在途任务的Future，不再重复入队。
+     * 只适用于幂等且结果可以共享的任务
+     * @param task
+     * @param <V>
+     * @return
+     */
+    <V> Future<V> submitCoalesced(ExecutorTask<V> task);
+
+    /**
+     * 根据任务上下文选择线程池，相同key(例如任务参数中的账户id)的任务严格按提交顺序串行执行，
+     * 不同key的任务并行执行，key为null时等同于{@link #submit(ExecutorTask)}
+     * @param task
+     * @param key
+     * @param <V>
+     * @return
+     */
+    <V> Future<V> submitOrdered(ExecutorTask<V> task, Object key);
+
+    /**
+     * 根据任务上下文解析一次目标线程池，返回绑定该线程池的提交句柄，
+     * 适用于同一类任务高频提交且路由结果固定的场景
+     * @param taskContext
+     * @return
+     */
+    ExecutorHandle handle(ExecutorTaskContext taskContext);
+
+    /**
+     * 线程池是否已经就绪，懒加载模式下总是就绪，预热模式下在后台预热完成后就绪。
+     * 就绪之前同样可以提交任务，线程池按需创建，只是没有经过预热，调用方可以据此推迟接入流量
+     * @return
+     */
+    boolean isReady();
+
+    /**
+     * 等待预热完成
+     * @param timeout
+     * @param timeUnit
+     * @return 超时前就绪返回true
+     * @throws InterruptedException
+     */
+    boolean awaitReady(long timeout, TimeUnit timeUnit) throws InterruptedException;
+
+    /**
+     * 关闭线程池，所有线程池并行排空，超时后强制关闭
      * @param timeout
      * @param timeUnit
+     * @return 每个线程池排空和放弃的任务数
+     */
+    ShutdownReport shutdown(int timeout, TimeUnit timeUnit);
+
+    /**
+     * 兜底线程池路由统计
+     * @return
+     */
+    FallbackMetrics getFallbackMetrics();
+
+    /**
+     * 合并提交中被合并到在途任务的提交次数
+     * @return
      */
-    void shutdown(int timeout, TimeUnit timeUnit);
+    long getCoalescedTaskCount();
 
 }
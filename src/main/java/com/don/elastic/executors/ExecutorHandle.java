@@ -0,0 +1,37 @@
+package com.don.elastic.executors;
+
+import com.don.elastic.executors.task.ExecutorTask;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * 预先解析好目标线程池的提交句柄，提交时不再经过选择器和线程池工厂查找。
+ * 配置重新加载或者线程池被移除、关闭后，下一次提交时自动重新绑定
+ * @author Don Du
+ */
+public interface ExecutorHandle {
+
+    /**
+     * 提交任务到绑定的线程池
+     * @param task
+     * @param <V>
+     * @return
+     */
+    <V> Future<V> submit(ExecutorTask<V> task);
+
+    /**
+     * 使用句柄的任务上下文提交任务到绑定的线程池
+     * @param callable
+     * @param <V>
+     * @return
+     */
+    <V> Future<V> submit(Callable<V> callable);
+
+    /**
+     * 当前绑定的线程池
+     * @return
+     */
+    String getPoolKey();
+
+}
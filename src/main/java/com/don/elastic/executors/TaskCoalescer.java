@@ -0,0 +1,98 @@
+package com.don.elastic.executors;
+
+import com.don.elastic.executors.excutor.ElasticFutureTask;
+import com.don.elastic.executors.task.CompactExecutorTaskContext;
+import com.don.elastic.executors.task.ExecutorTaskContext;
+import com.don.elastic.executors.util.Asserts;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 合并重复的在途任务：任务名称和参数都相同的任务在前一个副本排队或执行期间再次提交时，
+ * 直接返回前一个副本的Future，不再重复入队。只适用于幂等且结果可以共享的任务，
+ * 共享Future被任何一个提交方取消时所有提交方都会收到取消。
+ * 在途任务表有上限，达到上限时不再合并，直接提交
+ * @author Don Du
+ */
+class TaskCoalescer {
+
+    private final int maxInFlight;
+
+    private final ConcurrentMap<ExecutorTaskContext, Future<?>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    TaskCoalescer(int maxInFlight) {
+        Asserts.isFalse(maxInFlight <= 0, "maxInFlight <= 0");
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * 合并键，任务名称和参数都相同的上下文相等
+     * @param taskContext
+     * @return 无法合并时返回null
+     */
+    static ExecutorTaskContext keyOf(ExecutorTaskContext taskContext) {
+        if (taskContext == null || taskContext.getTaskName() == null) {
+            return null;
+        }
+        if (taskContext instanceof CompactExecutorTaskContext) {
+            return taskContext;
+        }
+        // 普通上下文是可变的，复制一份不可变的作为键
+        return CompactExecutorTaskContext.of(taskContext.getTaskName(), taskContext.getParameters());
+    }
+
+    /**
+     * 提交前先占用合并键：没有在途的相同任务时登记这个任务，由调用方提交；已经有在途的相同任务时返回它的Future。
+     * 占用和查找是同一个原子操作，并发提交的相同任务只有一个会入队。在途任务表已满时不登记，调用方直接提交
+     * @param key
+     * @param future 还没有提交的任务
+     * @param <V>
+     * @return 在途的相同任务，为null时调用方负责提交future
+     */
+    @SuppressWarnings("unchecked")
+    <V> Future<V> reserve(final ExecutorTaskContext key, final ElasticFutureTask<V> future) {
+        if (inFlight.size() >= maxInFlight) {
+            return null;
+        }
+        for (;;) {
+            Future<?> existing = inFlight.putIfAbsent(key, future);
+            if (existing == null) {
+                future.whenDone(new Runnable() {
+                    @Override
+                    public void run() {
+                        inFlight.remove(key, future);
+                    }
+                });
+                return null;
+            }
+            if (!existing.isDone()) {
+                coalesced.increment();
+                return (Future<V>) existing;
+            }
+            inFlight.remove(key, existing);
+        }
+    }
+
+    /**
+     * 占用了合并键的任务提交失败，释放合并键
+     * @param key
+     * @param future
+     */
+    void release(ExecutorTaskContext key, Future<?> future) {
+        inFlight.remove(key, future);
+    }
+
+    /**
+     * 被合并的提交次数
+     * @return
+     */
+    long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+}
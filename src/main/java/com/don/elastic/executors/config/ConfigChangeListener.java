@@ -0,0 +1,16 @@
+package com.don.elastic.executors.config;
+
+/**
+ * 配置快照变更监听器
+ * @author Don Du
+ */
+public interface ConfigChangeListener {
+
+    /**
+     * 新的配置快照已经发布
+     * @param oldConfig
+     * @param newConfig
+     */
+    void onChange(ExecutorsConfig oldConfig, ExecutorsConfig newConfig);
+
+}
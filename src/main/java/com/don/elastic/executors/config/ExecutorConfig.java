@@ -0,0 +1,413 @@
+package com.don.elastic.executors.config;
+
+import com.don.elastic.executors.excutor.NamedThreadFactory;
+import com.don.elastic.executors.limit.AimdLimit;
+import com.don.elastic.executors.limit.ConcurrencyLimit;
+import com.don.elastic.executors.limit.GradientLimit;
+import com.don.elastic.executors.queue.BlockingQueueBuilder;
+import com.don.elastic.executors.queue.EagerGrowthQueue;
+import com.don.elastic.executors.util.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个线程池的不可变配置，由{@link ExecutorProperty}在配置加载时一次性解析得到
+ * @author Don Du
+ */
+public final class ExecutorConfig {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExecutorConfig.class);
+
+    private final String poolName;
+
+    private final int corePoolSize;
+
+    private final int maximumPoolSize;
+
+    private final long keepAliveTime;
+
+    private final int queueCapacity;
+
+    private final String workQueueType;
+
+    private final String rejectedHandlerType;
+
+    private final String expression;
+
+    private final String group;
+
+    private final int minPoolSize;
+
+    private final int maxPoolSizeLimit;
+
+    private final int maxQueueCapacity;
+
+    private final long latencySlo;
+
+    private final String limiter;
+
+    private final int limiterInitial;
+
+    private final int limiterMax;
+
+    private final long limiterLatencyThreshold;
+
+    private final boolean eagerGrowth;
+
+    private final int shards;
+
+    private final int weight;
+
+    private final double rateLimit;
+
+    private final int rateBurst;
+
+    private final long rateLimitMaxDelay;
+
+    private final Map<String, TaskRateLimit> taskRateLimits;
+
+    private final String tenantParameter;
+
+    private final int tenantQuota;
+
+    private final Map<String, Integer> tenantQuotas;
+
+    private final long tenantQuotaMaxWait;
+
+    private ExecutorConfig(ExecutorProperty property) {
+        this.poolName = property.getPoolName();
+        this.corePoolSize = property.getCorePoolSize();
+        this.maximumPoolSize = property.getMaximumPoolSize();
+        this.keepAliveTime = property.getKeepAliveTime();
+        this.queueCapacity = property.getQueueCapacity();
+        this.workQueueType = property.getWorkQueueType();
+        this.rejectedHandlerType = property.getRejectedHandlerType();
+        this.expression = property.getExpression();
+        this.group = property.getGroup();
+        this.minPoolSize = property.getMinPoolSize();
+        this.maxPoolSizeLimit = property.getMaxPoolSizeLimit();
+        this.maxQueueCapacity = property.getMaxQueueCapacity();
+        this.latencySlo = property.getLatencySlo();
+        this.limiter = property.getLimiter();
+        this.limiterInitial = property.getLimiterInitial();
+        this.limiterMax = property.getLimiterMax();
+        this.limiterLatencyThreshold = property.getLimiterLatencyThreshold();
+        this.eagerGrowth = property.isEagerGrowth();
+        this.shards = property.getShards();
+        this.weight = property.getWeight();
+        this.rateLimit = property.getRateLimit();
+        this.rateBurst = property.getRateBurst();
+        this.rateLimitMaxDelay = property.getRateLimitMaxDelay();
+        this.taskRateLimits = parseTaskRateLimits(property.getPoolName(), property.getTaskRateLimit());
+        this.tenantParameter = property.getTenantParameter();
+        this.tenantQuota = property.getTenantQuota();
+        this.tenantQuotas = parseTenantQuotas(property.getPoolName(), property.getTenantQuotas());
+        this.tenantQuotaMaxWait = property.getTenantQuotaMaxWait();
+    }
+
+    private ExecutorConfig(ExecutorConfig config, int corePoolSize, int maximumPoolSize, int queueCapacity) {
+        this.poolName = config.poolName;
+        this.corePoolSize = corePoolSize;
+        this.maximumPoolSize = maximumPoolSize;
+        this.keepAliveTime = config.keepAliveTime;
+        this.queueCapacity = queueCapacity;
+        this.workQueueType = config.workQueueType;
+        this.rejectedHandlerType = config.rejectedHandlerType;
+        this.expression = config.expression;
+        this.group = config.group;
+        this.minPoolSize = config.minPoolSize;
+        this.maxPoolSizeLimit = config.maxPoolSizeLimit;
+        this.maxQueueCapacity = config.maxQueueCapacity;
+        this.latencySlo = config.latencySlo;
+        this.limiter = config.limiter;
+        this.limiterInitial = config.limiterInitial;
+        this.limiterMax = config.limiterMax;
+        this.limiterLatencyThreshold = config.limiterLatencyThreshold;
+        this.eagerGrowth = config.eagerGrowth;
+        this.shards = config.shards;
+        this.weight = config.weight;
+        this.rateLimit = config.rateLimit;
+        this.rateBurst = config.rateBurst;
+        this.rateLimitMaxDelay = config.rateLimitMaxDelay;
+        this.taskRateLimits = config.taskRateLimits;
+        this.tenantParameter = config.tenantParameter;
+        this.tenantQuota = config.tenantQuota;
+        this.tenantQuotas = config.tenantQuotas;
+        this.tenantQuotaMaxWait = config.tenantQuotaMaxWait;
+    }
+
+    public static ExecutorConfig from(ExecutorProperty property) {
+        return new ExecutorConfig(property);
+    }
+
+    /**
+     * 使用新的线程数和队列容量，结果限制在[minPoolSize, maxPoolSizeLimit]和[1, maxQueueCapacity]之内
+     * @param corePoolSize
+     * @param maximumPoolSize
+     * @param queueCapacity
+     * @return
+     */
+    public ExecutorConfig withSizes(int corePoolSize, int maximumPoolSize, int queueCapacity) {
+        int core = boundPoolSize(corePoolSize);
+        int max = Math.max(core, boundPoolSize(maximumPoolSize));
+        int capacity = Math.max(1, Math.min(queueCapacity, maxQueueCapacity));
+        return new ExecutorConfig(this, core, max, capacity);
+    }
+
+    /**
+     * 把线程数限制在[minPoolSize, maxPoolSizeLimit]之内
+     * @param poolSize
+     * @return
+     */
+    public int boundPoolSize(int poolSize) {
+        return Math.max(minPoolSize, Math.min(poolSize, maxPoolSizeLimit));
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public int getCorePoolSize() {
+        return corePoolSize;
+    }
+
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    public long getKeepAliveTime() {
+        return keepAliveTime;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public String getWorkQueueType() {
+        return workQueueType;
+    }
+
+    public String getRejectedHandlerType() {
+        return rejectedHandlerType;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public int getMinPoolSize() {
+        return minPoolSize;
+    }
+
+    public int getMaxPoolSizeLimit() {
+        return maxPoolSizeLimit;
+    }
+
+    public int getMaxQueueCapacity() {
+        return maxQueueCapacity;
+    }
+
+    /**
+     * 排队等待时间目标，单位毫秒，小于等于0表示没有目标
+     * @return
+     */
+    public long getLatencySlo() {
+        return latencySlo;
+    }
+
+    public boolean isEagerGrowth() {
+        return eagerGrowth;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public double getRateLimit() {
+        return rateLimit;
+    }
+
+    public int getRateBurst() {
+        return rateBurst;
+    }
+
+    public long getRateLimitMaxDelay() {
+        return rateLimitMaxDelay;
+    }
+
+    public Map<String, TaskRateLimit> getTaskRateLimits() {
+        return taskRateLimits;
+    }
+
+    public String getTenantParameter() {
+        return tenantParameter;
+    }
+
+    public int getTenantQuota() {
+        return tenantQuota;
+    }
+
+    public Map<String, Integer> getTenantQuotas() {
+        return tenantQuotas;
+    }
+
+    public long getTenantQuotaMaxWait() {
+        return tenantQuotaMaxWait;
+    }
+
+    /**
+     * 解析taskName:permitsPerSecond[:burst],...，格式错误的项被忽略并打印告警
+     */
+    private static Map<String, TaskRateLimit> parseTaskRateLimits(String poolName, String value) {
+        Map<String, TaskRateLimit> limits = new LinkedHashMap<>();
+        for (String item : value.split(",")) {
+            if (Strings.isBlank(item)) {
+                continue;
+            }
+            String[] fields = item.trim().split(":");
+            if (fields.length < 2 || fields.length > 3 || Strings.isBlank(fields[0])) {
+                warnMalformed(poolName, "taskRateLimit", item);
+                continue;
+            }
+            try {
+                double permitsPerSecond = Double.parseDouble(fields[1].trim());
+                int burst = fields.length == 3 ? Math.max(1, Integer.parseInt(fields[2].trim())) : 1;
+                limits.put(fields[0].trim(), new TaskRateLimit(permitsPerSecond, burst));
+            } catch (NumberFormatException ex) {
+                warnMalformed(poolName, "taskRateLimit", item);
+            }
+        }
+        return Collections.unmodifiableMap(limits);
+    }
+
+    /**
+     * 解析tenant:quota,...，格式错误的项被忽略并打印告警
+     */
+    private static Map<String, Integer> parseTenantQuotas(String poolName, String value) {
+        Map<String, Integer> quotas = new LinkedHashMap<>();
+        for (String item : value.split(",")) {
+            if (Strings.isBlank(item)) {
+                continue;
+            }
+            String[] fields = item.trim().split(":");
+            if (fields.length != 2 || Strings.isBlank(fields[0])) {
+                warnMalformed(poolName, "tenantQuotas", item);
+                continue;
+            }
+            try {
+                quotas.put(fields[0].trim(), Integer.parseInt(fields[1].trim()));
+            } catch (NumberFormatException ex) {
+                warnMalformed(poolName, "tenantQuotas", item);
+            }
+        }
+        return Collections.unmodifiableMap(quotas);
+    }
+
+    private static void warnMalformed(String poolName, String key, String item) {
+        if (LOGGER.isWarnEnabled()) {
+            LOGGER.warn("线程池{}: 配置项{}中的{}格式错误，已忽略", poolName, key, item.trim());
+        }
+    }
+
+    /**
+     * 任务名称对应的提交限速
+     */
+    public static final class TaskRateLimit {
+
+        private final double permitsPerSecond;
+
+        private final int burst;
+
+        private TaskRateLimit(double permitsPerSecond, int burst) {
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+        }
+
+        public double getPermitsPerSecond() {
+            return permitsPerSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+    }
+
+    /**
+     * 按配置的类型和容量创建新的工作队列，优先扩充线程模式下使用{@link EagerGrowthQueue}
+     * @return
+     */
+    public BlockingQueue<Runnable> newWorkQueue() {
+        if (eagerGrowth) {
+            return new EagerGrowthQueue<>(queueCapacity);
+        }
+        return new BlockingQueueBuilder<Runnable>()
+                .type(workQueueType)
+                .capacity(queueCapacity)
+                .build();
+    }
+
+    /**
+     * 创建新的拒绝策略实例
+     * @return
+     */
+    public RejectedExecutionHandler newRejectedHandler() {
+        return ExecutorProperty.newRejectedHandler(rejectedHandlerType);
+    }
+
+    public String getLimiter() {
+        return limiter;
+    }
+
+    /**
+     * aimd的延迟阈值，单位毫秒，和任务从提交到执行完成的时间比较；
+     * latencySlo是排队等待时间目标，不包含执行时间，不能作为aimd的阈值
+     * @return
+     */
+    public long getLimiterLatencyThreshold() {
+        return limiterLatencyThreshold;
+    }
+
+    /**
+     * 按配置创建自适应并发限制，没有配置时返回null；aimd需要limiterLatencyThreshold作为延迟阈值，没有配置时使用gradient
+     * @return
+     */
+    public ConcurrencyLimit newConcurrencyLimit() {
+        int max = Math.max(1, limiterMax);
+        if ("aimd".equalsIgnoreCase(limiter) && limiterLatencyThreshold > 0) {
+            return new AimdLimit(limiterInitial, 1, max, TimeUnit.MILLISECONDS.toNanos(limiterLatencyThreshold));
+        }
+        if ("aimd".equalsIgnoreCase(limiter) || "gradient".equalsIgnoreCase(limiter)) {
+            return new GradientLimit(limiterInitial, 1, max);
+        }
+        return null;
+    }
+
+    public ThreadFactory newThreadFactory() {
+        return new NamedThreadFactory(poolName);
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutorConfig[poolName=" + poolName + ", corePoolSize=" + corePoolSize + ", maximumPoolSize=" + maximumPoolSize
+                + ", keepAliveTime=" + keepAliveTime + ", queueCapacity=" + queueCapacity + ", workQueueType=" + workQueueType
+                + ", rejectedHandlerType=" + rejectedHandlerType + ", expression=" + expression + ", group=" + group + ", minPoolSize=" + minPoolSize
+                + ", maxPoolSizeLimit=" + maxPoolSizeLimit + ", maxQueueCapacity=" + maxQueueCapacity + ", latencySlo=" + latencySlo + ", limiter=" + limiter + ", limiterLatencyThreshold=" + limiterLatencyThreshold + ", eagerGrowth=" + eagerGrowth + ", shards=" + shards + "]";
+    }
+
+}
@@ -2,13 +2,19 @@ package com.don.elastic.executors.config;
 
 import com.don.elastic.executors.excutor.ElasticExecutor;
 import com.don.elastic.executors.excutor.NamedThreadFactory;
-import com.don.elastic.executors.queue.ResizableLinkedBlockingQueue;
+import com.don.elastic.executors.queue.BlockingQueueBuilder;
+import com.don.elastic.executors.limit.TenantBulkhead;
+import com.don.elastic.executors.rejected.CallerRunsUnlessCriticalPolicy;
+import com.don.elastic.executors.rejected.DiscardOldestPolicy;
+import com.don.elastic.executors.rejected.OverflowPolicy;
+import com.don.elastic.executors.rejected.PrioritySheddingPolicy;
+import com.don.elastic.executors.rejected.RetryWithJitterPolicy;
+import com.don.elastic.executors.rejected.TimedBlockingPolicy;
 import com.don.elastic.executors.util.Strings;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Properties;
 import java.util.concurrent.*;
 
 /**
@@ -32,8 +38,14 @@ public class ExecutorProperty {
     private static final String DEFAULT_WORK_QUEUE_TYPE = LinkedBlockingDeque.class.getSimpleName();
     // 拒绝策略类型
     private static final String DEFAULT_REJECTED_HANDLER_TYPE = ThreadPoolExecutor.AbortPolicy.class.getSimpleName();
+    private static final long DEFAULT_BLOCKING_TIMEOUT = 100;
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final long DEFAULT_RETRY_BASE_DELAY = 10;
+    private static final long DEFAULT_RETRY_MAX_DELAY = 1000;
     // 默认选择器表达式
     private static final String DEFAULT_SELECTOR_EXPRESSION = "";
+    // 默认不属于任何线程池分组
+    private static final String DEFAULT_GROUP = "";
 
     private static final String POOL_NAME = "name";
     private static final String CORE_POOL_SIZE = "corePoolSize";
@@ -43,13 +55,30 @@ public class ExecutorProperty {
     private static final String WORK_QUEUE_TYPE = "workQueueType";
     private static final String REJECTED_HANDLER_TYPE = "rejectedHandlerType";
     private static final String SELECTOR_EXPRESSION = "expression";
+    private static final String GROUP = "group";
+    private static final String MIN_POOL_SIZE = "minPoolSize";
+    private static final String MAX_POOL_SIZE_LIMIT = "maxPoolSizeLimit";
+    private static final String MAX_QUEUE_CAPACITY = "maxQueueCapacity";
+    private static final String LATENCY_SLO = "latencySlo";
+    private static final String LIMITER = "limiter";
+    private static final String LIMITER_INITIAL = "limiterInitial";
+    private static final String LIMITER_MAX = "limiterMax";
+    private static final String LIMITER_LATENCY_THRESHOLD = "limiterLatencyThreshold";
+    private static final String EAGER_GROWTH = "eagerGrowth";
+    private static final String SHARDS = "shards";
+    private static final String WEIGHT = "weight";
+    private static final String RATE_LIMIT = "rateLimit";
+    private static final String RATE_BURST = "rateBurst";
+    private static final String RATE_LIMIT_MAX_DELAY = "rateLimitMaxDelay";
+    private static final String TASK_RATE_LIMIT = "taskRateLimit";
+    private static final String TENANT_PARAMETER = "tenantParameter";
+    private static final String TENANT_QUOTA = "tenantQuota";
+    private static final String TENANT_QUOTAS = "tenantQuotas";
+    private static final String TENANT_QUOTA_MAX_WAIT = "tenantQuotaMaxWait";
 
     private final Map<String, String> properties;
 
-    private static final Map<String, BlockingQueue<Runnable>> BLOCKING_QUEUES = new HashMap<>();
-    private static final Map<String, RejectedExecutionHandler> REJECTED_HANDLERS = new HashMap<>();
-
-    private final ThreadFactory threadFactory;
+    private ThreadFactory threadFactory;
 
     public ExecutorProperty() {
         properties = new HashMap<>();
@@ -61,21 +90,7 @@ public class ExecutorProperty {
         properties.put(WORK_QUEUE_TYPE, DEFAULT_WORK_QUEUE_TYPE);
         properties.put(REJECTED_HANDLER_TYPE, DEFAULT_REJECTED_HANDLER_TYPE);
         properties.put(SELECTOR_EXPRESSION, DEFAULT_SELECTOR_EXPRESSION);
-
-        BLOCKING_QUEUES.put(ResizableLinkedBlockingQueue.class.getSimpleName(), new DelayQueue());
-        BLOCKING_QUEUES.put(LinkedBlockingQueue.class.getSimpleName(), new LinkedBlockingQueue<>());
-        BLOCKING_QUEUES.put(ArrayBlockingQueue.class.getSimpleName(), new ArrayBlockingQueue<>(getQueueCapacity()));
-        BLOCKING_QUEUES.put(SynchronousQueue.class.getSimpleName(), new SynchronousQueue<>());
-        BLOCKING_QUEUES.put(LinkedTransferQueue.class.getSimpleName(), new LinkedTransferQueue<>());
-        BLOCKING_QUEUES.put(PriorityBlockingQueue.class.getSimpleName(), new PriorityBlockingQueue<>(getQueueCapacity()));
-        BLOCKING_QUEUES.put(DelayQueue.class.getSimpleName(), new DelayQueue());
-
-        REJECTED_HANDLERS.put("AbortPolicy", new ThreadPoolExecutor.AbortPolicy());
-        REJECTED_HANDLERS.put("DiscardPolicy", new ThreadPoolExecutor.DiscardPolicy());
-        REJECTED_HANDLERS.put("DiscardOldestPolicy", new ThreadPoolExecutor.DiscardOldestPolicy());
-        REJECTED_HANDLERS.put("CallerRunsPolicy", new ThreadPoolExecutor.CallerRunsPolicy());
-
-        threadFactory = new NamedThreadFactory(getPoolName());
+        properties.put(GROUP, DEFAULT_GROUP);
     }
 
     public String getPoolName() {
@@ -99,8 +114,15 @@ public class ExecutorProperty {
         return Strings.blankDefault(properties.get(WORK_QUEUE_TYPE), DEFAULT_WORK_QUEUE_TYPE);
     }
 
+    /**
+     * 按队列类型和容量创建一个新的工作队列，每个线程池必须使用独立的队列
+     * @return
+     */
     public BlockingQueue<Runnable> getWorkQueue() {
-        return BLOCKING_QUEUES.get(getWorkQueueType());
+        return new BlockingQueueBuilder<Runnable>()
+                .type(getWorkQueueType())
+                .capacity(getQueueCapacity())
+                .build();
     }
 
     public int getQueueCapacity() {
@@ -111,15 +133,188 @@ public class ExecutorProperty {
         return Strings.blankDefault(properties.get(REJECTED_HANDLER_TYPE), DEFAULT_REJECTED_HANDLER_TYPE);
     }
 
+    /**
+     * 创建一个新的拒绝策略实例
+     * @return
+     */
     public RejectedExecutionHandler getRejectedHandler() {
-        return REJECTED_HANDLERS.get(getRejectedHandlerType());
+        return newRejectedHandler(getRejectedHandlerType());
     }
 
     public String getExpression() {
         return Strings.blankDefault(properties.get(SELECTOR_EXPRESSION), DEFAULT_SELECTOR_EXPRESSION);
     }
 
-    public ThreadFactory getThreadFactory() {
+    /**
+     * 线程池分组，同一分组的线程池可以互相替代，由负载感知选择器在组内选择
+     * @return
+     */
+    public String getGroup() {
+        return Strings.blankDefault(properties.get(GROUP), DEFAULT_GROUP);
+    }
+
+    /**
+     * 动态调整时线程数的下限，不大于corePoolSize
+     * @return
+     */
+    public int getMinPoolSize() {
+        int minPoolSize = Strings.blankDefaultInt(properties.get(MIN_POOL_SIZE), 1);
+        return Math.max(1, Math.min(minPoolSize, getCorePoolSize()));
+    }
+
+    /**
+     * 动态调整时最大线程数的上限，不小于maximumPoolSize
+     * @return
+     */
+    public int getMaxPoolSizeLimit() {
+        return Math.max(Strings.blankDefaultInt(properties.get(MAX_POOL_SIZE_LIMIT), 0), getMaximumPoolSize());
+    }
+
+    /**
+     * 动态调整时队列容量的上限，不小于queueCapacity
+     * @return
+     */
+    public int getMaxQueueCapacity() {
+        return Math.max(Strings.blankDefaultInt(properties.get(MAX_QUEUE_CAPACITY), 0), getQueueCapacity());
+    }
+
+    /**
+     * 排队等待时间目标，单位毫秒，小于等于0表示没有目标
+     * @return
+     */
+    public long getLatencySlo() {
+        return Strings.blankDefaultLong(properties.get(LATENCY_SLO), 0);
+    }
+
+    /**
+     * 自适应并发限制算法：none、aimd、gradient
+     * @return
+     */
+    public String getLimiter() {
+        return Strings.blankDefault(properties.get(LIMITER), "none");
+    }
+
+    /**
+     * 自适应并发限制的初始值，默认为maximumPoolSize
+     * @return
+     */
+    public int getLimiterInitial() {
+        return Strings.blankDefaultInt(properties.get(LIMITER_INITIAL), getMaximumPoolSize());
+    }
+
+    /**
+     * 自适应并发限制的上限，默认为maximumPoolSize + queueCapacity
+     * @return
+     */
+    public int getLimiterMax() {
+        return Strings.blankDefaultInt(properties.get(LIMITER_MAX), getMaximumPoolSize() + getQueueCapacity());
+    }
+
+    /**
+     * aimd的延迟阈值，单位毫秒，和任务从提交到执行完成的时间比较，小于等于0表示没有配置
+     * @return
+     */
+    public long getLimiterLatencyThreshold() {
+        return Strings.blankDefaultLong(properties.get(LIMITER_LATENCY_THRESHOLD), 0);
+    }
+
+    /**
+     * 是否优先扩充线程到maximumPoolSize再排队
+     * @return
+     */
+    public boolean isEagerGrowth() {
+        return Boolean.parseBoolean(properties.get(EAGER_GROWTH));
+    }
+
+    /**
+     * 分片数，大于1时使用由多个子线程池组成的分片线程池
+     * @return
+     */
+    public int getShards() {
+        return Math.max(1, Strings.blankDefaultInt(properties.get(SHARDS), 1));
+    }
+
+    /**
+     * 共享工作线程模式下的调度权重，默认1
+     * @return
+     */
+    public int getWeight() {
+        return Math.max(1, Strings.blankDefaultInt(properties.get(WEIGHT), 1));
+    }
+
+    /**
+     * 提交限速，每秒允许提交的任务数，小于等于0表示不限速
+     * @return
+     */
+    public double getRateLimit() {
+        String rateLimit = properties.get(RATE_LIMIT);
+        return Strings.isBlank(rateLimit) ? 0 : Double.parseDouble(rateLimit.trim());
+    }
+
+    /**
+     * 提交限速允许同时通过的任务数，默认1
+     * @return
+     */
+    public int getRateBurst() {
+        return Math.max(1, Strings.blankDefaultInt(properties.get(RATE_BURST), 1));
+    }
+
+    /**
+     * 令牌不足时最多延迟提交的时间，单位毫秒，为0时直接拒绝
+     * @return
+     */
+    public long getRateLimitMaxDelay() {
+        return Math.max(0, Strings.blankDefaultLong(properties.get(RATE_LIMIT_MAX_DELAY), 1000));
+    }
+
+    /**
+     * 按任务名称的提交限速，格式: taskName:permitsPerSecond[:burst],...
+     * @return
+     */
+    public String getTaskRateLimit() {
+        return Strings.blankDefault(properties.get(TASK_RATE_LIMIT), "");
+    }
+
+    /**
+     * 任务上下文中表示租户的参数名，默认tenant
+     * @return
+     */
+    public String getTenantParameter() {
+        return Strings.blankDefault(properties.get(TENANT_PARAMETER), TenantBulkhead.DEFAULT_TENANT_PARAMETER);
+    }
+
+    /**
+     * 每个租户最多同时排队和执行的任务数，0表示不限制
+     * @return
+     */
+    public int getTenantQuota() {
+        return Math.max(0, Strings.blankDefaultInt(properties.get(TENANT_QUOTA), 0));
+    }
+
+    /**
+     * 单独配置的租户配额，格式: tenant:quota,...
+     * @return
+     */
+    public String getTenantQuotas() {
+        return Strings.blankDefault(properties.get(TENANT_QUOTAS), "");
+    }
+
+    /**
+     * 超过租户配额时最多等待的时间，单位毫秒，为0时直接拒绝
+     * @return
+     */
+    public long getTenantQuotaMaxWait() {
+        return Math.max(0, Strings.blankDefaultLong(properties.get(TENANT_QUOTA_MAX_WAIT), 0));
+    }
+
+    /**
+     * 线程工厂，名称设置完成后首次获取时创建
+     * @return
+     */
+    public synchronized ThreadFactory getThreadFactory() {
+        if (threadFactory == null) {
+            threadFactory = new NamedThreadFactory(getPoolName());
+        }
         return threadFactory;
     }
 
@@ -156,19 +351,60 @@ public class ExecutorProperty {
                 .append("queueCapacity=").append(getQueueCapacity()).append(", ")
                 .append("rejectedHandlerType=").append(getRejectedHandlerType()).append(", ")
                 .append("expression=").append(getExpression()).append(", ")
+                .append("group=").append(getGroup()).append(", ")
+                .append("minPoolSize=").append(getMinPoolSize()).append(", ")
+                .append("maxPoolSizeLimit=").append(getMaxPoolSizeLimit()).append(", ")
+                .append("maxQueueCapacity=").append(getMaxQueueCapacity()).append(", ")
+                .append("latencySlo=").append(getLatencySlo()).append(", ")
+                .append("limiter=").append(getLimiter()).append(", ")
+                .append("limiterLatencyThreshold=").append(getLimiterLatencyThreshold()).append(", ")
+                .append("eagerGrowth=").append(isEagerGrowth()).append(", ")
+                .append("shards=").append(getShards()).append(", ")
+                .append("weight=").append(getWeight()).append(", ")
+                .append("rateLimit=").append(getRateLimit()).append(", ")
+                .append("taskRateLimit=").append(getTaskRateLimit()).append(", ")
+                .append("tenantQuota=").append(getTenantQuota()).append(", ")
+                .append("tenantQuotas=").append(getTenantQuotas()).append(", ")
                 .append("]");
         return builder.toString();
     }
 
-    static ExecutorProperty named(String poolName) {
-        return new NamedExecutorProperty(poolName);
-    }
-
-    static class NamedExecutorProperty extends ExecutorProperty {
-
-        public NamedExecutorProperty(String poolName) {
-            super();
-            addProperty(POOL_NAME, poolName);
+    /**
+     * 按类型名称创建拒绝策略，未知类型使用AbortPolicy。
+     * 扩展策略的参数写在括号中：TimedBlockingPolicy(超时毫秒)、OverflowPolicy(兄弟线程池名称)、
+     * RetryWithJitterPolicy(重试次数,初始退避毫秒,最大退避毫秒)、CallerRunsUnlessCriticalPolicy(线程名前缀,...)，
+     * PrioritySheddingPolicy没有参数
+     * @param type
+     * @return
+     */
+    static RejectedExecutionHandler newRejectedHandler(String type) {
+        String name = type;
+        String[] args = new String[0];
+        int open = type.indexOf('(');
+        if (open > 0 && type.endsWith(")")) {
+            name = type.substring(0, open).trim();
+            String argList = type.substring(open + 1, type.length() - 1).trim();
+            args = argList.isEmpty() ? args : argList.split("\\s*,\\s*");
+        }
+        if ("DiscardPolicy".equals(name)) {
+            return new ThreadPoolExecutor.DiscardPolicy();
+        } else if ("DiscardOldestPolicy".equals(name)) {
+            return new DiscardOldestPolicy();
+        } else if ("CallerRunsPolicy".equals(name)) {
+            return new ThreadPoolExecutor.CallerRunsPolicy();
+        } else if ("TimedBlockingPolicy".equals(name)) {
+            return new TimedBlockingPolicy(args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_BLOCKING_TIMEOUT, TimeUnit.MILLISECONDS);
+        } else if ("OverflowPolicy".equals(name) && args.length > 0) {
+            return new OverflowPolicy(args[0]);
+        } else if ("RetryWithJitterPolicy".equals(name)) {
+            return new RetryWithJitterPolicy(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MAX_RETRIES,
+                    args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_RETRY_BASE_DELAY,
+                    args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_RETRY_MAX_DELAY);
+        } else if ("CallerRunsUnlessCriticalPolicy".equals(name)) {
+            return new CallerRunsUnlessCriticalPolicy(args);
+        } else if ("PrioritySheddingPolicy".equals(name)) {
+            return new PrioritySheddingPolicy();
         }
+        return new ThreadPoolExecutor.AbortPolicy();
     }
 }
\ No newline at end of file
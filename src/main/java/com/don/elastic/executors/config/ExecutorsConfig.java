@@ -0,0 +1,585 @@
+package com.don.elastic.executors.config;
+
+import com.don.elastic.executors.util.Strings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的不可变配置快照，加载时解析所有字符串配置并按线程池名称建立索引，
+ * 通过{@link ExecutorsProperty#snapshot()}原子发布
+ * @author Don Du
+ */
+public final class ExecutorsConfig {
+
+    private final long version;
+
+    private final Map<String, String> globals;
+
+    private final List<ExecutorProperty> executorPropertyList;
+
+    private final Map<String, ExecutorProperty> executorProperties;
+
+    private final Map<String, ExecutorConfig> executorConfigs;
+
+    private final List<ExecutorConfig> executorConfigList;
+
+    private final List<RuleProperty> rulePropertyList;
+
+    private final RoutingMode routingMode;
+
+    private final String fallbackPool;
+
+    private final int maxPools;
+
+    private final int fallbackTopK;
+
+    private final boolean eagerInit;
+
+    private final int warmupTasks;
+
+    private final List<String> warmupInputs;
+
+    private final int selectorCacheSize;
+
+    private final String affinityKey;
+
+    private final String affinityGroup;
+
+    private final int affinityVirtualNodes;
+
+    private final double affinityLoadFactor;
+
+    private final long tuningSnapshotInterval;
+
+    private final long tuningMaxStateAge;
+
+    private final long autoscaleInterval;
+
+    private final long autoscaleCooldown;
+
+    private final int autoscaleMaxStep;
+
+    private final int autoscaleStableTicks;
+
+    private final double autoscaleHighUtilization;
+
+    private final double autoscaleLowUtilization;
+
+    private final int budgetMaxThreads;
+
+    private final long budgetInterval;
+
+    private final int sharedWorkers;
+
+    private final int orderedMaxBatch;
+
+    private final int coalesceMaxInFlight;
+
+    static Builder newBuilder() {
+        return new Builder();
+    }
+
+    private ExecutorsConfig(Builder builder) {
+        this.version = builder.version;
+        this.globals = Collections.unmodifiableMap(new HashMap<>(builder.globals));
+        List<ExecutorProperty> executorPropertyList = builder.executorPropertyList;
+        this.executorPropertyList = Collections.unmodifiableList(new ArrayList<>(executorPropertyList));
+        this.rulePropertyList = Collections.unmodifiableList(new ArrayList<>(builder.rulePropertyList));
+        Map<String, ExecutorProperty> properties = new HashMap<>();
+        Map<String, ExecutorConfig> configs = new HashMap<>();
+        List<ExecutorConfig> configList = new ArrayList<>();
+        // 同名线程池以先出现的为准
+        for (ExecutorProperty property : executorPropertyList) {
+            String poolName = property.getPoolName();
+            if (!properties.containsKey(poolName)) {
+                ExecutorConfig config = ExecutorConfig.from(property);
+                properties.put(poolName, property);
+                configs.put(poolName, config);
+                configList.add(config);
+            }
+        }
+        this.executorProperties = Collections.unmodifiableMap(properties);
+        this.executorConfigs = Collections.unmodifiableMap(configs);
+        this.executorConfigList = Collections.unmodifiableList(configList);
+        this.routingMode = builder.routingMode;
+        this.fallbackPool = builder.fallbackPool;
+        this.maxPools = builder.maxPools;
+        this.fallbackTopK = builder.fallbackTopK;
+        this.eagerInit = builder.eagerInit;
+        this.warmupTasks = builder.warmupTasks;
+        this.warmupInputs = Collections.unmodifiableList(new ArrayList<>(builder.warmupInputs));
+        this.selectorCacheSize = builder.selectorCacheSize;
+        this.affinityKey = builder.affinityKey;
+        this.affinityGroup = builder.affinityGroup;
+        this.affinityVirtualNodes = builder.affinityVirtualNodes;
+        this.affinityLoadFactor = builder.affinityLoadFactor;
+        this.tuningSnapshotInterval = builder.tuningSnapshotInterval;
+        this.tuningMaxStateAge = builder.tuningMaxStateAge;
+        this.autoscaleInterval = builder.autoscaleInterval;
+        this.autoscaleCooldown = builder.autoscaleCooldown;
+        this.autoscaleMaxStep = builder.autoscaleMaxStep;
+        this.autoscaleStableTicks = builder.autoscaleStableTicks;
+        this.autoscaleHighUtilization = builder.autoscaleHighUtilization;
+        this.autoscaleLowUtilization = builder.autoscaleLowUtilization;
+        this.budgetMaxThreads = builder.budgetMaxThreads;
+        this.budgetInterval = builder.budgetInterval;
+        this.sharedWorkers = builder.sharedWorkers;
+        this.orderedMaxBatch = builder.orderedMaxBatch;
+        this.coalesceMaxInFlight = builder.coalesceMaxInFlight;
+    }
+
+    /**
+     * 配置版本，每次加载递增
+     * @return
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public String getGlobal(String key) {
+        return globals.get(key);
+    }
+
+    public String getGlobal(String key, String defaultValue) {
+        return Strings.blankDefault(globals.get(key), defaultValue);
+    }
+
+    public List<ExecutorProperty> getExecutorPropertyList() {
+        return executorPropertyList;
+    }
+
+    public ExecutorProperty getExecutorProperty(String poolName) {
+        return executorProperties.get(poolName);
+    }
+
+    public ExecutorConfig getExecutorConfig(String poolName) {
+        return executorConfigs.get(poolName);
+    }
+
+    /**
+     * 去重后的线程池配置，按配置顺序
+     * @return
+     */
+    public List<ExecutorConfig> getExecutorConfigList() {
+        return executorConfigList;
+    }
+
+    public boolean containsPool(String poolName) {
+        return executorConfigs.containsKey(poolName);
+    }
+
+    public List<RuleProperty> getRulePropertyList() {
+        return rulePropertyList;
+    }
+
+    public RoutingMode getRoutingMode() {
+        return routingMode;
+    }
+
+    public String getFallbackPool() {
+        return fallbackPool;
+    }
+
+    public int getMaxPools() {
+        return maxPools;
+    }
+
+    /**
+     * 兜底路由统计保留的未匹配poolKey个数
+     * @return
+     */
+    public int getFallbackTopK() {
+        return fallbackTopK;
+    }
+
+    /**
+     * 是否在启动时预先创建所有配置的线程池
+     * @return
+     */
+    public boolean isEagerInit() {
+        return eagerInit;
+    }
+
+    /**
+     * 启动预热时每个线程池执行的空任务数
+     * @return
+     */
+    public int getWarmupTasks() {
+        return warmupTasks;
+    }
+
+    /**
+     * 启动时用于预热选择器缓存的输入值
+     * @return
+     */
+    public List<String> getWarmupInputs() {
+        return warmupInputs;
+    }
+
+    /**
+     * 选择器缓存容量
+     * @return
+     */
+    public int getSelectorCacheSize() {
+        return selectorCacheSize;
+    }
+
+    /**
+     * 亲和性选择器使用的任务参数名
+     * @return
+     */
+    public String getAffinityKey() {
+        return affinityKey;
+    }
+
+    /**
+     * 亲和性选择器做一致性哈希的线程池分组
+     * @return
+     */
+    public String getAffinityGroup() {
+        return affinityGroup;
+    }
+
+    /**
+     * 一致性哈希环上每个线程池的虚拟节点数
+     * @return
+     */
+    public int getAffinityVirtualNodes() {
+        return affinityVirtualNodes;
+    }
+
+    /**
+     * 有界负载系数，线程池负载超过平均负载的这个倍数时溢出到下一个线程池
+     * @return
+     */
+    public double getAffinityLoadFactor() {
+        return affinityLoadFactor;
+    }
+
+    /**
+     * 调优状态保存间隔，单位毫秒
+     * @return
+     */
+    public long getTuningSnapshotInterval() {
+        return tuningSnapshotInterval;
+    }
+
+    /**
+     * 调优状态的最长有效期，单位毫秒，小于等于0表示不过期
+     * @return
+     */
+    public long getTuningMaxStateAge() {
+        return tuningMaxStateAge;
+    }
+
+    /**
+     * 自动伸缩的采样间隔，单位毫秒
+     * @return
+     */
+    public long getAutoscaleInterval() {
+        return autoscaleInterval;
+    }
+
+    /**
+     * 同一个线程池两次调整之间的最小间隔，单位毫秒
+     * @return
+     */
+    public long getAutoscaleCooldown() {
+        return autoscaleCooldown;
+    }
+
+    /**
+     * 每次调整线程数的最大步长
+     * @return
+     */
+    public int getAutoscaleMaxStep() {
+        return autoscaleMaxStep;
+    }
+
+    /**
+     * 连续多少次采样给出同一方向的信号才调整
+     * @return
+     */
+    public int getAutoscaleStableTicks() {
+        return autoscaleStableTicks;
+    }
+
+    /**
+     * 线程利用率高于此值且有排队时扩容
+     * @return
+     */
+    public double getAutoscaleHighUtilization() {
+        return autoscaleHighUtilization;
+    }
+
+    /**
+     * 线程利用率低于此值且没有排队时缩容
+     * @return
+     */
+    public double getAutoscaleLowUtilization() {
+        return autoscaleLowUtilization;
+    }
+
+    /**
+     * 全局线程预算，所有线程池的最大线程数之和不超过此值，小于等于0表示不限制
+     * @return
+     */
+    public int getBudgetMaxThreads() {
+        return budgetMaxThreads;
+    }
+
+    /**
+     * 线程预算重新分配的间隔，单位毫秒
+     * @return
+     */
+    public long getBudgetInterval() {
+        return budgetInterval;
+    }
+
+    /**
+     * 共享工作线程数，大于0时配置的线程池都成为共享这组线程的虚拟线程池
+     * @return
+     */
+    public int getSharedWorkers() {
+        return sharedWorkers;
+    }
+
+    /**
+     * 按key串行执行时，一个key一次最多连续执行的任务数，超过后让出工作线程
+     * @return
+     */
+    public int getOrderedMaxBatch() {
+        return orderedMaxBatch;
+    }
+
+    /**
+     * 合并提交时最多登记的在途任务数，超过后不再合并
+     * @return
+     */
+    public int getCoalesceMaxInFlight() {
+        return coalesceMaxInFlight;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutorsConfig[version=" + version + ", globals=" + globals + ", executors=" + executorConfigList + ", rules=" + rulePropertyList + "]";
+    }
+
+    /**
+     * 由{@link ExecutorsProperty#parse(java.util.Properties)}在解析配置时使用
+     */
+    static final class Builder {
+
+        private long version;
+
+        private Map<String, String> globals;
+
+        private List<ExecutorProperty> executorPropertyList;
+
+        private List<RuleProperty> rulePropertyList;
+
+        private RoutingMode routingMode;
+
+        private String fallbackPool;
+
+        private int maxPools;
+
+        private int fallbackTopK;
+
+        private boolean eagerInit;
+
+        private int warmupTasks;
+
+        private List<String> warmupInputs;
+
+        private int selectorCacheSize;
+
+        private String affinityKey;
+
+        private String affinityGroup;
+
+        private int affinityVirtualNodes;
+
+        private double affinityLoadFactor;
+
+        private long tuningSnapshotInterval;
+
+        private long tuningMaxStateAge;
+
+        private long autoscaleInterval;
+
+        private long autoscaleCooldown;
+
+        private int autoscaleMaxStep;
+
+        private int autoscaleStableTicks;
+
+        private double autoscaleHighUtilization;
+
+        private double autoscaleLowUtilization;
+
+        private int budgetMaxThreads;
+
+        private long budgetInterval;
+
+        private int sharedWorkers;
+
+        private int orderedMaxBatch;
+
+        private int coalesceMaxInFlight;
+
+        Builder version(long version) {
+            this.version = version;
+            return this;
+        }
+
+        Builder globals(Map<String, String> globals) {
+            this.globals = globals;
+            return this;
+        }
+
+        Builder executorPropertyList(List<ExecutorProperty> executorPropertyList) {
+            this.executorPropertyList = executorPropertyList;
+            return this;
+        }
+
+        Builder rulePropertyList(List<RuleProperty> rulePropertyList) {
+            this.rulePropertyList = rulePropertyList;
+            return this;
+        }
+
+        Builder routingMode(RoutingMode routingMode) {
+            this.routingMode = routingMode;
+            return this;
+        }
+
+        Builder fallbackPool(String fallbackPool) {
+            this.fallbackPool = fallbackPool;
+            return this;
+        }
+
+        Builder maxPools(int maxPools) {
+            this.maxPools = maxPools;
+            return this;
+        }
+
+        Builder fallbackTopK(int fallbackTopK) {
+            this.fallbackTopK = fallbackTopK;
+            return this;
+        }
+
+        Builder eagerInit(boolean eagerInit) {
+            this.eagerInit = eagerInit;
+            return this;
+        }
+
+        Builder warmupTasks(int warmupTasks) {
+            this.warmupTasks = warmupTasks;
+            return this;
+        }
+
+        Builder warmupInputs(List<String> warmupInputs) {
+            this.warmupInputs = warmupInputs;
+            return this;
+        }
+
+        Builder selectorCacheSize(int selectorCacheSize) {
+            this.selectorCacheSize = selectorCacheSize;
+            return this;
+        }
+
+        Builder affinityKey(String affinityKey) {
+            this.affinityKey = affinityKey;
+            return this;
+        }
+
+        Builder affinityGroup(String affinityGroup) {
+            this.affinityGroup = affinityGroup;
+            return this;
+        }
+
+        Builder affinityVirtualNodes(int affinityVirtualNodes) {
+            this.affinityVirtualNodes = affinityVirtualNodes;
+            return this;
+        }
+
+        Builder affinityLoadFactor(double affinityLoadFactor) {
+            this.affinityLoadFactor = affinityLoadFactor;
+            return this;
+        }
+
+        Builder tuningSnapshotInterval(long tuningSnapshotInterval) {
+            this.tuningSnapshotInterval = tuningSnapshotInterval;
+            return this;
+        }
+
+        Builder tuningMaxStateAge(long tuningMaxStateAge) {
+            this.tuningMaxStateAge = tuningMaxStateAge;
+            return this;
+        }
+
+        Builder autoscaleInterval(long autoscaleInterval) {
+            this.autoscaleInterval = autoscaleInterval;
+            return this;
+        }
+
+        Builder autoscaleCooldown(long autoscaleCooldown) {
+            this.autoscaleCooldown = autoscaleCooldown;
+            return this;
+        }
+
+        Builder autoscaleMaxStep(int autoscaleMaxStep) {
+            this.autoscaleMaxStep = autoscaleMaxStep;
+            return this;
+        }
+
+        Builder autoscaleStableTicks(int autoscaleStableTicks) {
+            this.autoscaleStableTicks = autoscaleStableTicks;
+            return this;
+        }
+
+        Builder autoscaleHighUtilization(double autoscaleHighUtilization) {
+            this.autoscaleHighUtilization = autoscaleHighUtilization;
+            return this;
+        }
+
+        Builder autoscaleLowUtilization(double autoscaleLowUtilization) {
+            this.autoscaleLowUtilization = autoscaleLowUtilization;
+            return this;
+        }
+
+        Builder budgetMaxThreads(int budgetMaxThreads) {
+            this.budgetMaxThreads = budgetMaxThreads;
+            return this;
+        }
+
+        Builder budgetInterval(long budgetInterval) {
+            this.budgetInterval = budgetInterval;
+            return this;
+        }
+
+        Builder sharedWorkers(int sharedWorkers) {
+            this.sharedWorkers = sharedWorkers;
+            return this;
+        }
+
+        Builder orderedMaxBatch(int orderedMaxBatch) {
+            this.orderedMaxBatch = orderedMaxBatch;
+            return this;
+        }
+
+        Builder coalesceMaxInFlight(int coalesceMaxInFlight) {
+            this.coalesceMaxInFlight = coalesceMaxInFlight;
+            return this;
+        }
+
+        ExecutorsConfig build() {
+            return new ExecutorsConfig(this);
+        }
+    }
+
+}
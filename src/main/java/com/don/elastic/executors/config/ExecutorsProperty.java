@@ -2,19 +2,27 @@ package com.don.elastic.executors.config;
 
 import com.don.elastic.executors.excutor.ElasticExecutor;
 import com.don.elastic.executors.selector.DefaultExecutorSelector;
+import com.don.elastic.executors.util.Asserts;
 import com.don.elastic.executors.util.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -30,12 +38,88 @@ public class ExecutorsProperty {
     private static final String SELECTOR = PROPERTY_PREFIX + "selector";
     private static final String METRICS_ENABLE = PROPERTY_PREFIX + "metricsEnable";
     private static final String EXECUTOR = PROPERTY_PREFIX + "executor";
+    private static final Pattern RULE_PATTERN = Pattern.compile("^" + Pattern.quote(PROPERTY_PREFIX) + "rule\\[(\\d+)\\]\\.(.+)$");
+    private static final String RULE_POOL = "pool";
+    private static final String RULE_CONDITION_PREFIX = "when.";
+    private static final String ROUTING_MODE = PROPERTY_PREFIX + "routingMode";
+    private static final String FALLBACK_POOL = PROPERTY_PREFIX + "fallbackPool";
+    private static final String MAX_POOLS = PROPERTY_PREFIX + "maxPools";
+    private static final String FALLBACK_TOP_K = PROPERTY_PREFIX + "fallbackTopK";
+    private static final String EAGER_INIT = PROPERTY_PREFIX + "eagerInit";
+    private static final String WARMUP_TASKS = PROPERTY_PREFIX + "warmupTasks";
+    private static final String WARMUP_INPUTS = PROPERTY_PREFIX + "warmupInputs";
+    private static final String SELECTOR_CACHE_SIZE = PROPERTY_PREFIX + "selectorCacheSize";
+    private static final String AFFINITY_KEY = PROPERTY_PREFIX + "affinity.key";
+    private static final String AFFINITY_GROUP = PROPERTY_PREFIX + "affinity.group";
+    private static final String AFFINITY_VIRTUAL_NODES = PROPERTY_PREFIX + "affinity.virtualNodes";
+    private static final String AFFINITY_LOAD_FACTOR = PROPERTY_PREFIX + "affinity.loadFactor";
+    private static final String RELOAD_ENABLE = PROPERTY_PREFIX + "reload.enable";
+    private static final String RELOAD_FILE = PROPERTY_PREFIX + "reload.file";
+    private static final String TUNING_STATE_FILE = PROPERTY_PREFIX + "tuning.stateFile";
+    private static final String TUNING_SNAPSHOT_INTERVAL = PROPERTY_PREFIX + "tuning.snapshotInterval";
+    private static final String TUNING_MAX_STATE_AGE = PROPERTY_PREFIX + "tuning.maxStateAge";
+    private static final String AUTOSCALE_ENABLE = PROPERTY_PREFIX + "autoscale.enable";
+    private static final String AUTOSCALE_INTERVAL = PROPERTY_PREFIX + "autoscale.interval";
+    private static final String AUTOSCALE_COOLDOWN = PROPERTY_PREFIX + "autoscale.cooldown";
+    private static final String AUTOSCALE_MAX_STEP = PROPERTY_PREFIX + "autoscale.maxStep";
+    private static final String AUTOSCALE_STABLE_TICKS = PROPERTY_PREFIX + "autoscale.stableTicks";
+    private static final String AUTOSCALE_HIGH_UTILIZATION = PROPERTY_PREFIX + "autoscale.highUtilization";
+    private static final String AUTOSCALE_LOW_UTILIZATION = PROPERTY_PREFIX + "autoscale.lowUtilization";
+    private static final String BUDGET_MAX_THREADS = PROPERTY_PREFIX + "budget.maxThreads";
+    private static final String BUDGET_INTERVAL = PROPERTY_PREFIX + "budget.interval";
+    private static final String SHARED_WORKERS = PROPERTY_PREFIX + "sharedWorkers";
+    private static final String ORDERED_MAX_BATCH = PROPERTY_PREFIX + "ordered.maxBatch";
+    private static final String COALESCE_MAX_IN_FLIGHT = PROPERTY_PREFIX + "coalesce.maxInFlight";
 
     private static final String DEFAULT_SELECTOR = DefaultExecutorSelector.class.getName();
-    private static final List<ExecutorProperty> EXECUTOR_PROPERTY_LIST = new ArrayList<>();
     private static final String DEFAULT_METRICS_ENABLE = "false";
+    private static final String DEFAULT_ROUTING_MODE = RoutingMode.CREATE.name();
+    private static final String DEFAULT_FALLBACK_POOL = ElasticExecutor.DEFAULT_POOL_NAME;
+    // 0表示不限制线程池数量
+    private static final String DEFAULT_MAX_POOLS = "0";
+    private static final String DEFAULT_FALLBACK_TOP_K = "32";
+    private static final String DEFAULT_EAGER_INIT = "false";
+    private static final String DEFAULT_WARMUP_TASKS = "0";
+    private static final String DEFAULT_SELECTOR_CACHE_SIZE = "10000";
+    private static final String DEFAULT_AFFINITY_KEY = "affinityKey";
+    private static final String DEFAULT_AFFINITY_VIRTUAL_NODES = "160";
+    private static final String DEFAULT_AFFINITY_LOAD_FACTOR = "1.25";
+    private static final long DEFAULT_TUNING_SNAPSHOT_INTERVAL = 60000;
+    // 默认7天
+    private static final long DEFAULT_TUNING_MAX_STATE_AGE = 7 * 24 * 3600 * 1000L;
+    private static final long DEFAULT_AUTOSCALE_INTERVAL = 1000;
+    private static final long DEFAULT_AUTOSCALE_COOLDOWN = 10000;
+    private static final int DEFAULT_AUTOSCALE_MAX_STEP = 2;
+    private static final int DEFAULT_AUTOSCALE_STABLE_TICKS = 3;
+    private static final double DEFAULT_AUTOSCALE_HIGH_UTILIZATION = 0.85;
+    private static final double DEFAULT_AUTOSCALE_LOW_UTILIZATION = 0.3;
+    private static final long DEFAULT_BUDGET_INTERVAL = 1000;
+    private static final int DEFAULT_ORDERED_MAX_BATCH = 16;
+    private static final int DEFAULT_COALESCE_MAX_IN_FLIGHT = 10000;
 
-    private static final Map<String, String> props = new ConcurrentHashMap<>();
+    private static final Pattern EXECUTOR_PATTERN = Pattern.compile("^" + Pattern.quote(EXECUTOR) + "\\[(\\d+)\\]\\..+$");
+
+    /**
+     * 全局配置项
+     */
+    private static final String[] GLOBAL_KEYS = {SELECTOR, METRICS_ENABLE, ROUTING_MODE, FALLBACK_POOL, MAX_POOLS, FALLBACK_TOP_K,
+            EAGER_INIT, WARMUP_TASKS, WARMUP_INPUTS, SELECTOR_CACHE_SIZE,
+            AFFINITY_KEY, AFFINITY_GROUP, AFFINITY_VIRTUAL_NODES, AFFINITY_LOAD_FACTOR, RELOAD_ENABLE, RELOAD_FILE,
+            TUNING_STATE_FILE, TUNING_SNAPSHOT_INTERVAL, TUNING_MAX_STATE_AGE,
+            AUTOSCALE_ENABLE, AUTOSCALE_INTERVAL, AUTOSCALE_COOLDOWN, AUTOSCALE_MAX_STEP, AUTOSCALE_STABLE_TICKS,
+            AUTOSCALE_HIGH_UTILIZATION, AUTOSCALE_LOW_UTILIZATION, BUDGET_MAX_THREADS, BUDGET_INTERVAL,
+            SHARED_WORKERS, ORDERED_MAX_BATCH, COALESCE_MAX_IN_FLIGHT};
+
+    private static final Map<String, String> DEFAULTS = new HashMap<>();
+
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    /**
+     * 当前生效的配置快照
+     */
+    private static final AtomicReference<ExecutorsConfig> SNAPSHOT = new AtomicReference<>();
+
+    private static final List<ConfigChangeListener> LISTENERS = new CopyOnWriteArrayList<>();
 
     private static final String POOL_NAME = "name";
     private static final String CORE_POOL_SIZE = "corePoolSize";
@@ -45,78 +129,493 @@ public class ExecutorsProperty {
     private static final String WORK_QUEUE_TYPE = "workQueueType";
     private static final String REJECTED_HANDLER_TYPE = "rejectedHandlerType";
     private static final String SELECTOR_EXPRESSION = "expression";
+    private static final String GROUP = "group";
+    private static final String MIN_POOL_SIZE = "minPoolSize";
+    private static final String MAX_POOL_SIZE_LIMIT = "maxPoolSizeLimit";
+    private static final String MAX_QUEUE_CAPACITY = "maxQueueCapacity";
+    private static final String LATENCY_SLO = "latencySlo";
+    private static final String LIMITER = "limiter";
+    private static final String LIMITER_INITIAL = "limiterInitial";
+    private static final String LIMITER_MAX = "limiterMax";
+    private static final String LIMITER_LATENCY_THRESHOLD = "limiterLatencyThreshold";
+    private static final String EAGER_GROWTH = "eagerGrowth";
+    private static final String SHARDS = "shards";
+    private static final String WEIGHT = "weight";
+    private static final String RATE_LIMIT = "rateLimit";
+    private static final String RATE_BURST = "rateBurst";
+    private static final String RATE_LIMIT_MAX_DELAY = "rateLimitMaxDelay";
+    private static final String TASK_RATE_LIMIT = "taskRateLimit";
+    private static final String TENANT_PARAMETER = "tenantParameter";
+    private static final String TENANT_QUOTA = "tenantQuota";
+    private static final String TENANT_QUOTAS = "tenantQuotas";
+    private static final String TENANT_QUOTA_MAX_WAIT = "tenantQuotaMaxWait";
+
+    /**
+     * 线程池配置项
+     */
+    private static final String[] POOL_KEYS = {POOL_NAME, CORE_POOL_SIZE, MAXIMUM_POOL_SIZE, KEEP_ALIVE_TIME, QUEUE_CAPACITY,
+            WORK_QUEUE_TYPE, REJECTED_HANDLER_TYPE, SELECTOR_EXPRESSION, GROUP, MIN_POOL_SIZE, MAX_POOL_SIZE_LIMIT, MAX_QUEUE_CAPACITY, LATENCY_SLO,
+            LIMITER, LIMITER_INITIAL, LIMITER_MAX, LIMITER_LATENCY_THRESHOLD, EAGER_GROWTH, SHARDS, WEIGHT,
+            RATE_LIMIT, RATE_BURST, RATE_LIMIT_MAX_DELAY, TASK_RATE_LIMIT,
+            TENANT_PARAMETER, TENANT_QUOTA, TENANT_QUOTAS, TENANT_QUOTA_MAX_WAIT};
 
     static {
+        DEFAULTS.put(SELECTOR, DEFAULT_SELECTOR);
+        DEFAULTS.put(METRICS_ENABLE, DEFAULT_METRICS_ENABLE);
+        DEFAULTS.put(ROUTING_MODE, DEFAULT_ROUTING_MODE);
+        DEFAULTS.put(FALLBACK_POOL, DEFAULT_FALLBACK_POOL);
+        DEFAULTS.put(MAX_POOLS, DEFAULT_MAX_POOLS);
+        DEFAULTS.put(FALLBACK_TOP_K, DEFAULT_FALLBACK_TOP_K);
+        DEFAULTS.put(EAGER_INIT, DEFAULT_EAGER_INIT);
+        DEFAULTS.put(WARMUP_TASKS, DEFAULT_WARMUP_TASKS);
+        DEFAULTS.put(SELECTOR_CACHE_SIZE, DEFAULT_SELECTOR_CACHE_SIZE);
+        DEFAULTS.put(AFFINITY_KEY, DEFAULT_AFFINITY_KEY);
+        DEFAULTS.put(AFFINITY_VIRTUAL_NODES, DEFAULT_AFFINITY_VIRTUAL_NODES);
+        DEFAULTS.put(AFFINITY_LOAD_FACTOR, DEFAULT_AFFINITY_LOAD_FACTOR);
+
+        ExecutorsConfig config;
         try {
-            initialize();
-            loadProps();
+            config = parse(loadProps());
         } catch (Throwable ex) {
             LOGGER.warn("[ExecutorsProperties] 解析失败", ex);
+            config = parse(new Properties());
         }
+        SNAPSHOT.set(config);
     }
 
-    private static void loadProps() throws IOException {
+    private static Properties loadProps() throws IOException {
         Properties properties = new Properties();
-        properties.load(Thread.currentThread().getContextClassLoader().getResourceAsStream(DEFAULT_PROPERTIES_FILE_NAME));
-        String selector = properties.getProperty(SELECTOR);
-        if (Strings.isNotBlank(selector)) {
-            props.put(SELECTOR, selector);
+        InputStream input = Thread.currentThread().getContextClassLoader().getResourceAsStream(DEFAULT_PROPERTIES_FILE_NAME);
+        if (input == null) {
+            LOGGER.warn("[ExecutorsProperties] 没有找到配置文件{}, 使用默认配置", DEFAULT_PROPERTIES_FILE_NAME);
+            return properties;
         }
-        String metricsEnable = properties.getProperty(METRICS_ENABLE);
-        if (Strings.isNotBlank(metricsEnable)) {
-            props.put(METRICS_ENABLE, metricsEnable);
+        try {
+            properties.load(input);
+        } finally {
+            input.close();
+        }
+        return properties;
+    }
+
+    /**
+     * 把配置解析编译为不可变快照
+     * @param properties
+     * @return
+     */
+    public static ExecutorsConfig parse(Properties properties) {
+        Map<String, String> globals = new HashMap<>(DEFAULTS);
+        for (String key : GLOBAL_KEYS) {
+            String value = properties.getProperty(key);
+            if (Strings.isNotBlank(value)) {
+                globals.put(key, value.trim());
+            }
         }
-        Pattern pattern = Pattern.compile("[^0-9]");
-        Set<String> counts = new HashSet<>();
-        for (Object object : properties.keySet()) {
-            String key = (String) object;
-            if (key.startsWith(EXECUTOR)) {
-                String numberKey =  pattern.matcher(key).replaceAll("");
-                if (Strings.isNotBlank(numberKey)) {
-                    counts.add(numberKey);
+
+        Set<Integer> indexes = new TreeSet<>();
+        for (String key : properties.stringPropertyNames()) {
+            Matcher matcher = EXECUTOR_PATTERN.matcher(key);
+            if (matcher.matches()) {
+                indexes.add(Integer.valueOf(matcher.group(1)));
+            }
+        }
+        List<ExecutorProperty> executorPropertyList = new ArrayList<>();
+        for (Integer index : indexes) {
+            ExecutorProperty property = new ExecutorProperty();
+            for (String poolKey : POOL_KEYS) {
+                property.addProperty(poolKey, properties.getProperty(EXECUTOR + "[" + index + "]" + "." + poolKey));
+            }
+            executorPropertyList.add(property);
+        }
+        // 内置默认线程池，配置文件中同名线程池优先
+        executorPropertyList.add(new ExecutorProperty());
+
+        // 全局配置在这里一次性解析，读取时不再解析字符串，格式错误时整个配置解析失败
+        return ExecutorsConfig.newBuilder()
+                .version(VERSION.incrementAndGet())
+                .globals(globals)
+                .executorPropertyList(executorPropertyList)
+                .rulePropertyList(parseRules(properties))
+                .routingMode(RoutingMode.of(globals.get(ROUTING_MODE), RoutingMode.CREATE))
+                .fallbackPool(Strings.blankDefault(globals.get(FALLBACK_POOL), DEFAULT_FALLBACK_POOL))
+                .maxPools(Strings.blankDefaultInt(globals.get(MAX_POOLS), 0))
+                .fallbackTopK(Strings.blankDefaultInt(globals.get(FALLBACK_TOP_K), Integer.parseInt(DEFAULT_FALLBACK_TOP_K)))
+                .eagerInit(Boolean.parseBoolean(globals.get(EAGER_INIT)))
+                .warmupTasks(Strings.blankDefaultInt(globals.get(WARMUP_TASKS), 0))
+                .warmupInputs(parseList(globals.get(WARMUP_INPUTS)))
+                .selectorCacheSize(Strings.blankDefaultInt(globals.get(SELECTOR_CACHE_SIZE), Integer.parseInt(DEFAULT_SELECTOR_CACHE_SIZE)))
+                .affinityKey(Strings.blankDefault(globals.get(AFFINITY_KEY), DEFAULT_AFFINITY_KEY))
+                .affinityGroup(Strings.blankDefault(globals.get(AFFINITY_GROUP), ""))
+                .affinityVirtualNodes(Strings.blankDefaultInt(globals.get(AFFINITY_VIRTUAL_NODES), Integer.parseInt(DEFAULT_AFFINITY_VIRTUAL_NODES)))
+                .affinityLoadFactor(Math.max(1.0, blankDefaultDouble(globals.get(AFFINITY_LOAD_FACTOR), Double.parseDouble(DEFAULT_AFFINITY_LOAD_FACTOR))))
+                .tuningSnapshotInterval(Strings.blankDefaultLong(globals.get(TUNING_SNAPSHOT_INTERVAL), DEFAULT_TUNING_SNAPSHOT_INTERVAL))
+                .tuningMaxStateAge(Strings.blankDefaultLong(globals.get(TUNING_MAX_STATE_AGE), DEFAULT_TUNING_MAX_STATE_AGE))
+                .autoscaleInterval(Strings.blankDefaultLong(globals.get(AUTOSCALE_INTERVAL), DEFAULT_AUTOSCALE_INTERVAL))
+                .autoscaleCooldown(Strings.blankDefaultLong(globals.get(AUTOSCALE_COOLDOWN), DEFAULT_AUTOSCALE_COOLDOWN))
+                .autoscaleMaxStep(Math.max(1, Strings.blankDefaultInt(globals.get(AUTOSCALE_MAX_STEP), DEFAULT_AUTOSCALE_MAX_STEP)))
+                .autoscaleStableTicks(Math.max(1, Strings.blankDefaultInt(globals.get(AUTOSCALE_STABLE_TICKS), DEFAULT_AUTOSCALE_STABLE_TICKS)))
+                .autoscaleHighUtilization(blankDefaultDouble(globals.get(AUTOSCALE_HIGH_UTILIZATION), DEFAULT_AUTOSCALE_HIGH_UTILIZATION))
+                .autoscaleLowUtilization(blankDefaultDouble(globals.get(AUTOSCALE_LOW_UTILIZATION), DEFAULT_AUTOSCALE_LOW_UTILIZATION))
+                .budgetMaxThreads(Strings.blankDefaultInt(globals.get(BUDGET_MAX_THREADS), 0))
+                .budgetInterval(Strings.blankDefaultLong(globals.get(BUDGET_INTERVAL), DEFAULT_BUDGET_INTERVAL))
+                .sharedWorkers(Strings.blankDefaultInt(globals.get(SHARED_WORKERS), 0))
+                .orderedMaxBatch(Strings.blankDefaultInt(globals.get(ORDERED_MAX_BATCH), DEFAULT_ORDERED_MAX_BATCH))
+                .coalesceMaxInFlight(Strings.blankDefaultInt(globals.get(COALESCE_MAX_IN_FLIGHT), DEFAULT_COALESCE_MAX_IN_FLIGHT))
+                .build();
+    }
+
+    /**
+     * 解析逗号分隔的列表，忽略空白项
+     */
+    private static List<String> parseList(String value) {
+        List<String> items = new ArrayList<>();
+        if (Strings.isNotBlank(value)) {
+            for (String item : value.split(",")) {
+                if (Strings.isNotBlank(item)) {
+                    items.add(item.trim());
+                }
+            }
+        }
+        return items;
+    }
+
+    private static List<RuleProperty> parseRules(Properties properties) {
+        Map<Integer, String> pools = new TreeMap<>();
+        Map<Integer, Map<String, String>> conditions = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            Matcher matcher = RULE_PATTERN.matcher(key);
+            if (!matcher.matches()) {
+                continue;
+            }
+            Integer index = Integer.valueOf(matcher.group(1));
+            String name = matcher.group(2);
+            String value = properties.getProperty(key).trim();
+            if (RULE_POOL.equals(name)) {
+                pools.put(index, value);
+            } else if (name.startsWith(RULE_CONDITION_PREFIX)) {
+                Map<String, String> ruleConditions = conditions.get(index);
+                if (ruleConditions == null) {
+                    ruleConditions = new LinkedHashMap<>();
+                    conditions.put(index, ruleConditions);
                 }
+                ruleConditions.put(name.substring(RULE_CONDITION_PREFIX.length()), value);
             }
         }
+        List<RuleProperty> rules = new ArrayList<>();
+        for (Map.Entry<Integer, String> entry : pools.entrySet()) {
+            Map<String, String> ruleConditions = conditions.get(entry.getKey());
+            rules.add(new RuleProperty(entry.getKey(), entry.getValue(),
+                    ruleConditions == null ? Collections.<String, String>emptyMap() : ruleConditions));
+        }
+        return rules;
+    }
 
-        if (counts.size() > 0) {
-            for (String index : counts) {
-                ExecutorProperty property = new ExecutorProperty();
-                property.addProperty(POOL_NAME, properties.getProperty(EXECUTOR + "[" + index + "]" + "." + POOL_NAME));
-                property.addProperty(CORE_POOL_SIZE, properties.getProperty(EXECUTOR + "[" + index + "]" + "." + CORE_POOL_SIZE));
-                property.addProperty(MAXIMUM_POOL_SIZE, properties.getProperty(EXECUTOR + "[" + index + "]" + "." + MAXIMUM_POOL_SIZE));
-                property.addProperty(KEEP_ALIVE_TIME, properties.getProperty(EXECUTOR + "[" + index + "]" + "." + KEEP_ALIVE_TIME));
-                property.addProperty(QUEUE_CAPACITY, properties.getProperty(EXECUTOR + "[" + index + "]" + "." + QUEUE_CAPACITY));
-                property.addProperty(WORK_QUEUE_TYPE, properties.getProperty(EXECUTOR + "[" + index + "]" + "." + WORK_QUEUE_TYPE));
-                property.addProperty(REJECTED_HANDLER_TYPE, properties.getProperty(EXECUTOR + "[" + index + "]" + "." + REJECTED_HANDLER_TYPE));
-                property.addProperty(SELECTOR_EXPRESSION, properties.getProperty(EXECUTOR + "[" + index + "]" + "." + SELECTOR_EXPRESSION));
-
-                EXECUTOR_PROPERTY_LIST.add(Integer.parseInt(index), property);
+    /**
+     * 当前生效的配置快照
+     * @return
+     */
+    public static ExecutorsConfig snapshot() {
+        return SNAPSHOT.get();
+    }
+
+    /**
+     * 原子发布新的配置快照并通知监听器，监听器异常不影响发布结果
+     * @param config
+     */
+    public static void publish(ExecutorsConfig config) {
+        Asserts.notNull(config, "config == null");
+        ExecutorsConfig oldConfig = SNAPSHOT.getAndSet(config);
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("[ExecutorsProperties] 配置已更新，版本: {} -> {}", oldConfig.getVersion(), config.getVersion());
+        }
+        for (ConfigChangeListener listener : LISTENERS) {
+            try {
+                listener.onChange(oldConfig, config);
+            } catch (Exception ex) {
+                LOGGER.error("[ExecutorsProperties] 配置变更监听器{}执行失败", listener, ex);
             }
         }
     }
 
-    private static void initialize() {
-        props.put(SELECTOR, DEFAULT_SELECTOR);
-        props.put(METRICS_ENABLE, DEFAULT_METRICS_ENABLE);
-        ExecutorProperty property = new ExecutorProperty();
-        EXECUTOR_PROPERTY_LIST.add(0, property);
+    public static void addListener(ConfigChangeListener listener) {
+        Asserts.notNull(listener, "listener == null");
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(ConfigChangeListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * 配置文件名称，在classpath中查找
+     * @return
+     */
+    public static String getPropertiesFileName() {
+        return DEFAULT_PROPERTIES_FILE_NAME;
+    }
+
+    private static String global(String key) {
+        return SNAPSHOT.get().getGlobal(key);
     }
 
     public String getSelector() {
-        return props.get(SELECTOR);
+        return global(SELECTOR);
     }
 
     public static List<ExecutorProperty> getExecutorPropertyList() {
-        return EXECUTOR_PROPERTY_LIST;
+        return snapshot().getExecutorPropertyList();
+    }
+
+    /**
+     * 按下标排序的路由规则
+     * @return
+     */
+    public static List<RuleProperty> getRulePropertyList() {
+        return snapshot().getRulePropertyList();
     }
 
     public static ExecutorProperty getExecutorProperty(String poolName) {
-        int index = EXECUTOR_PROPERTY_LIST.indexOf(ExecutorProperty.named(poolName));
-        return index != -1 ? EXECUTOR_PROPERTY_LIST.get(index) : null;
+        return snapshot().getExecutorProperty(poolName);
     }
 
     public boolean isMetricsEnable() {
-        return Boolean.parseBoolean(props.get(METRICS_ENABLE));
+        return Boolean.parseBoolean(global(METRICS_ENABLE));
+    }
+
+    /**
+     * 未匹配poolKey的路由模式
+     * @return
+     */
+    public static RoutingMode getRoutingMode() {
+        return snapshot().getRoutingMode();
+    }
+
+    /**
+     * 兜底线程池名称
+     * @return
+     */
+    public static String getFallbackPool() {
+        return snapshot().getFallbackPool();
+    }
+
+    /**
+     * 线程池数量上限，小于等于0表示不限制
+     * @return
+     */
+    public static int getMaxPools() {
+        return snapshot().getMaxPools();
+    }
+
+    /**
+     * 兜底路由统计保留的未匹配poolKey个数
+     * @return
+     */
+    public static int getFallbackTopK() {
+        return snapshot().getFallbackTopK();
+    }
+
+    /**
+     * 是否在启动时预先创建所有配置的线程池
+     * @return
+     */
+    public static boolean isEagerInit() {
+        return snapshot().isEagerInit();
+    }
+
+    /**
+     * 启动预热时每个线程池执行的空任务数
+     * @return
+     */
+    public static int getWarmupTasks() {
+        return snapshot().getWarmupTasks();
+    }
+
+    /**
+     * 启动时用于预热选择器缓存的输入值，逗号分隔
+     * @return
+     */
+    public static List<String> getWarmupInputs() {
+        return snapshot().getWarmupInputs();
+    }
+
+    /**
+     * 选择器缓存容量
+     * @return
+     */
+    public static int getSelectorCacheSize() {
+        return snapshot().getSelectorCacheSize();
+    }
+
+    /**
+     * 亲和性选择器使用的任务参数名
+     * @return
+     */
+    public static String getAffinityKey() {
+        return snapshot().getAffinityKey();
+    }
+
+    /**
+     * 亲和性选择器做一致性哈希的线程池分组
+     * @return
+     */
+    public static String getAffinityGroup() {
+        return snapshot().getAffinityGroup();
+    }
+
+    /**
+     * 一致性哈希环上每个线程池的虚拟节点数
+     * @return
+     */
+    public static int getAffinityVirtualNodes() {
+        return snapshot().getAffinityVirtualNodes();
+    }
+
+    /**
+     * 有界负载系数，线程池负载超过平均负载的这个倍数时溢出到下一个线程池
+     * @return
+     */
+    public static double getAffinityLoadFactor() {
+        return snapshot().getAffinityLoadFactor();
+    }
+
+    /**
+     * 是否监听配置文件变化并热加载
+     * @return
+     */
+    public static boolean isReloadEnable() {
+        return Boolean.parseBoolean(global(RELOAD_ENABLE));
+    }
+
+    /**
+     * 热加载监听的配置文件路径，为空时使用classpath中的配置文件
+     * @return
+     */
+    public static String getReloadFile() {
+        return global(RELOAD_FILE);
+    }
+
+    /**
+     * 调优状态文件路径，为空时不保存调优状态
+     * @return
+     */
+    public static String getTuningStateFile() {
+        return global(TUNING_STATE_FILE);
+    }
+
+    /**
+     * 调优状态保存间隔，单位毫秒
+     * @return
+     */
+    public static long getTuningSnapshotInterval() {
+        return snapshot().getTuningSnapshotInterval();
+    }
+
+    /**
+     * 调优状态的最长有效期，单位毫秒，小于等于0表示不过期
+     * @return
+     */
+    public static long getTuningMaxStateAge() {
+        return snapshot().getTuningMaxStateAge();
+    }
+
+    /**
+     * 是否开启线程池自动伸缩
+     * @return
+     */
+    public static boolean isAutoscaleEnable() {
+        return Boolean.parseBoolean(global(AUTOSCALE_ENABLE));
+    }
+
+    /**
+     * 自动伸缩的采样间隔，单位毫秒
+     * @return
+     */
+    public static long getAutoscaleInterval() {
+        return snapshot().getAutoscaleInterval();
+    }
+
+    /**
+     * 同一个线程池两次调整之间的最小间隔，单位毫秒
+     * @return
+     */
+    public static long getAutoscaleCooldown() {
+        return snapshot().getAutoscaleCooldown();
+    }
+
+    /**
+     * 每次调整线程数的最大步长
+     * @return
+     */
+    public static int getAutoscaleMaxStep() {
+        return snapshot().getAutoscaleMaxStep();
+    }
+
+    /**
+     * 连续多少次采样给出同一方向的信号才调整
+     * @return
+     */
+    public static int getAutoscaleStableTicks() {
+        return snapshot().getAutoscaleStableTicks();
+    }
+
+    /**
+     * 线程利用率高于此值且有排队时扩容
+     * @return
+     */
+    public static double getAutoscaleHighUtilization() {
+        return snapshot().getAutoscaleHighUtilization();
+    }
+
+    /**
+     * 线程利用率低于此值且没有排队时缩容
+     * @return
+     */
+    public static double getAutoscaleLowUtilization() {
+        return snapshot().getAutoscaleLowUtilization();
+    }
+
+    /**
+     * 全局线程预算，所有线程池的最大线程数之和不超过此值，小于等于0表示不限制
+     * @return
+     */
+    public static int getBudgetMaxThreads() {
+        return snapshot().getBudgetMaxThreads();
+    }
+
+    /**
+     * 线程预算重新分配的间隔，单位毫秒
+     * @return
+     */
+    public static long getBudgetInterval() {
+        return snapshot().getBudgetInterval();
+    }
+
+    /**
+     * 共享工作线程数，大于0时配置的线程池都成为共享这组线程的虚拟线程池
+     * @return
+     */
+    public static int getSharedWorkers() {
+        return snapshot().getSharedWorkers();
+    }
+
+    /**
+     * 按key串行执行时，一个key一次最多连续执行的任务数，超过后让出工作线程
+     * @return
+     */
+    public static int getOrderedMaxBatch() {
+        return snapshot().getOrderedMaxBatch();
+    }
+
+    /**
+     * 合并提交时最多登记的在途任务数，超过后不再合并
+     * @return
+     */
+    public static int getCoalesceMaxInFlight() {
+        return snapshot().getCoalesceMaxInFlight();
+    }
+
+    private static double blankDefaultDouble(String value, double defaultValue) {
+        return Strings.isBlank(value) ? defaultValue : Double.parseDouble(value.trim());
     }
 
     @Override
@@ -124,8 +623,7 @@ public class ExecutorsProperty {
         StringBuilder builder = new StringBuilder("ExecutorsProperty[");
         builder.append("selector=").append(getSelector()).append(", ")
                 .append("metricsEnable").append(isMetricsEnable()).append(", ");
-        for (ExecutorProperty property : EXECUTOR_PROPERTY_LIST) {
-            System.out.println(1111);
+        for (ExecutorProperty property : getExecutorPropertyList()) {
             builder.append(property.toString());
         }
         builder.append("]");
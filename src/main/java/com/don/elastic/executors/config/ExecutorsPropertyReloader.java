@@ -0,0 +1,192 @@
+package com.don.elastic.executors.config;
+
+import com.don.elastic.executors.util.Asserts;
+import com.don.elastic.executors.util.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于WatchService监听配置文件变化，解析为新的配置快照后通过{@link ExecutorsProperty#publish(ExecutorsConfig)}发布，
+ * 由监听器把变化应用到运行中的线程池
+ * @author Don Du
+ */
+public class ExecutorsPropertyReloader implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExecutorsPropertyReloader.class);
+
+    /**
+     * 编辑器保存文件时通常连续触发多个事件，合并这段时间内的事件
+     */
+    private static final long DEBOUNCE_MILLIS = 200;
+
+    private final Path file;
+
+    private volatile WatchService watchService;
+
+    private Thread watchThread;
+
+    /**
+     * 上一次成功加载的配置内容，内容没有变化时不重新发布
+     */
+    private Properties lastProperties;
+
+    public ExecutorsPropertyReloader(Path file) {
+        Asserts.notNull(file, "file == null");
+        this.file = file.toAbsolutePath();
+    }
+
+    /**
+     * 根据配置elastic.executors.reload.file创建，没有配置时使用classpath中的配置文件，
+     * 配置文件不在文件系统中(例如打包在jar中)时返回null
+     * @return
+     */
+    public static ExecutorsPropertyReloader create() {
+        String reloadFile = ExecutorsProperty.getReloadFile();
+        if (Strings.isNotBlank(reloadFile)) {
+            return new ExecutorsPropertyReloader(Paths.get(reloadFile));
+        }
+        URL url = Thread.currentThread().getContextClassLoader().getResource(ExecutorsProperty.getPropertiesFileName());
+        if (url == null || !"file".equals(url.getProtocol())) {
+            LOGGER.warn("[ExecutorsPropertyReloader] 配置文件{}不在文件系统中，无法监听变化", url);
+            return null;
+        }
+        try {
+            return new ExecutorsPropertyReloader(Paths.get(url.toURI()));
+        } catch (Exception ex) {
+            LOGGER.warn("[ExecutorsPropertyReloader] 无法解析配置文件路径{}", url, ex);
+            return null;
+        }
+    }
+
+    /**
+     * 启动后台监听线程
+     * @throws IOException
+     */
+    public synchronized void start() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        lastProperties = load();
+        watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "elastic-executors-reloader");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("[ExecutorsPropertyReloader] 开始监听配置文件{}", file);
+        }
+    }
+
+    private void watch() {
+        WatchService service = watchService;
+        while (service != null) {
+            try {
+                WatchKey key = service.take();
+                boolean changed = drain(key);
+                // 合并短时间内的连续事件
+                WatchKey next;
+                while ((next = service.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(next);
+                }
+                if (changed) {
+                    reload();
+                }
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                return;
+            } catch (Exception ex) {
+                LOGGER.error("[ExecutorsPropertyReloader] 配置文件{}重新加载失败，继续使用当前配置", file, ex);
+            }
+            service = watchService;
+        }
+    }
+
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            Object context = event.context();
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || (context instanceof Path && file.getFileName().equals(context))) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * 立即重新加载配置文件，内容没有变化时不发布
+     * @return 是否发布了新的配置快照
+     * @throws IOException
+     */
+    public synchronized boolean reload() throws IOException {
+        Properties properties = load();
+        if (properties == null) {
+            // 文件被替换的中间状态，等待下一次事件
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("[ExecutorsPropertyReloader] 配置文件{}不存在，继续使用当前配置", file);
+            }
+            return false;
+        }
+        if (properties.equals(lastProperties)) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("[ExecutorsPropertyReloader] 配置文件{}内容没有变化", file);
+            }
+            return false;
+        }
+        // 先完整解析，解析失败时不会发布半成品配置
+        ExecutorsConfig config = ExecutorsProperty.parse(properties);
+        lastProperties = properties;
+        ExecutorsProperty.publish(config);
+        return true;
+    }
+
+    private Properties load() throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        InputStream input = Files.newInputStream(file);
+        try {
+            properties.load(input);
+        } finally {
+            input.close();
+        }
+        return properties;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        WatchService service = watchService;
+        if (service == null) {
+            return;
+        }
+        watchService = null;
+        service.close();
+        watchThread.interrupt();
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("[ExecutorsPropertyReloader] 停止监听配置文件{}", file);
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.don.elastic.executors.config;
+
+/**
+ * 未匹配到任何已配置线程池时的路由模式
+ * @author Don Du
+ */
+public enum RoutingMode {
+
+    /**
+     * 为未知的poolKey创建一个默认大小的新线程池（兼容旧行为）
+     */
+    CREATE,
+
+    /**
+     * 未知的poolKey统一路由到共享的兜底线程池
+     */
+    FALLBACK;
+
+    public static RoutingMode of(String value, RoutingMode defaultMode) {
+        if (value == null || value.trim().isEmpty()) {
+            return defaultMode;
+        }
+        for (RoutingMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value.trim())) {
+                return mode;
+            }
+        }
+        return defaultMode;
+    }
+
+}
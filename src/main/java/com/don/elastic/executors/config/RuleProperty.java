@@ -0,0 +1,53 @@
+package com.don.elastic.executors.config;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 路由规则配置：
+ * <pre>
+ * elastic.executors.rule[0].pool=vip-executor
+ * elastic.executors.rule[0].when.tenant=acme,globex
+ * elastic.executors.rule[0].when.payloadSize=[0,1024)
+ * </pre>
+ * 条件值为逗号分隔的候选值表示等值匹配，[下界,上界) 表示数值区间匹配，边界可以省略；
+ * 所有条件都满足时命中，多条规则命中时取下标最小的
+ * @author Don Du
+ */
+public class RuleProperty {
+
+    private final int index;
+
+    private final String pool;
+
+    private final Map<String, String> conditions;
+
+    public RuleProperty(int index, String pool, Map<String, String> conditions) {
+        this.index = index;
+        this.pool = pool;
+        this.conditions = Collections.unmodifiableMap(new LinkedHashMap<>(conditions));
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getPool() {
+        return pool;
+    }
+
+    /**
+     * 属性名 -> 条件表达式
+     * @return
+     */
+    public Map<String, String> getConditions() {
+        return conditions;
+    }
+
+    @Override
+    public String toString() {
+        return "RuleProperty[index=" + index + ", pool=" + pool + ", conditions=" + conditions + "]";
+    }
+
+}
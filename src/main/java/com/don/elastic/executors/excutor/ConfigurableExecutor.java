@@ -34,4 +34,37 @@ public interface ConfigurableExecutor extends Executor {
      */
     void setWorkQueueCapacity(int workQueueCapacity);
 
+    /**
+     * 修改线程池提交限速，permitsPerSecond小于等于0时取消限速
+     * @param permitsPerSecond 每秒允许提交的任务数
+     * @param burst 允许同时通过的任务数
+     * @param maxDelay 令牌不足时最多延迟提交的时间，为0时直接拒绝
+     * @param unit
+     */
+    void setRateLimit(double permitsPerSecond, int burst, long maxDelay, TimeUnit unit);
+
+    /**
+     * 修改任务名称对应的提交限速，permitsPerSecond小于等于0时取消限速
+     * @param taskName
+     * @param permitsPerSecond
+     * @param burst
+     */
+    void setTaskRateLimit(String taskName, double permitsPerSecond, int burst);
+
+    /**
+     * 修改按租户的并发配额
+     * @param tenantParameter 任务上下文中表示租户的参数名
+     * @param defaultQuota 没有单独配置的租户最多同时排队和执行的任务数，小于等于0时不限制
+     * @param maxWait 超过配额时最多等待的时间，为0时直接拒绝
+     * @param unit
+     */
+    void setTenantBulkhead(String tenantParameter, int defaultQuota, long maxWait, TimeUnit unit);
+
+    /**
+     * 修改单个租户的配额，quota小于等于0时使用默认配额
+     * @param tenant
+     * @param quota
+     */
+    void setTenantQuota(String tenant, int quota);
+
 }
@@ -1,6 +1,10 @@
 package com.don.elastic.executors.excutor;
 
+import com.don.elastic.executors.limit.ConcurrencyLimit;
+import com.don.elastic.executors.queue.EagerGrowthQueue;
 import com.don.elastic.executors.queue.ResizableBlockingQueue;
+import com.don.elastic.executors.rejected.PrioritySheddingPolicy;
+import com.don.elastic.executors.rejected.RejectionPolicy;
 import com.don.elastic.executors.selector.DefaultExecutorSelector;
 import com.don.elastic.executors.task.ExecutorTask;
 import com.don.elastic.executors.task.TaskRejectedException;
@@ -9,8 +13,11 @@ import com.don.elastic.executors.util.NetUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
@@ -19,6 +26,7 @@ import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
 
 /**
@@ -34,7 +42,27 @@ public class DefaultElasticThreadPoolExecutor extends ThreadPoolExecutor impleme
      */
     private final String poolName;
 
-    private int workQueueCapacity;
+    private volatile int workQueueCapacity;
+
+    /**
+     * 正在执行的任务数，避免读取ThreadPoolExecutor#getActiveCount时加mainLock
+     */
+    private final AtomicInteger runningCount = new AtomicInteger();
+
+    /**
+     * 最近任务排队等待时间的指数移动平均值
+     */
+    private volatile long queueWaitNanos;
+
+    /**
+     * 自适应并发限制，为null时只受线程数和队列容量限制
+     */
+    private final ConcurrencyLimit concurrencyLimit;
+
+    /**
+     * 提交准入：提交限速和按租户的并发配额
+     */
+    private final TaskAdmission admission;
 
     public static Builder newBuilder() {
         return new Builder();
@@ -74,6 +102,9 @@ public class DefaultElasticThreadPoolExecutor extends ThreadPoolExecutor impleme
         // 拒绝策略
         private RejectedExecutionHandler rejectedExecutionHandler = new ThreadPoolExecutor.AbortPolicy();
 
+        // 自适应并发限制
+        private ConcurrencyLimit concurrencyLimit;
+
         private Builder() {}
 
         public Builder poolName(String poolName) {
@@ -118,8 +149,18 @@ public class DefaultElasticThreadPoolExecutor extends ThreadPoolExecutor impleme
             return this;
         }
 
+        /**
+         * 自适应并发限制，可以为null
+         * @param concurrencyLimit
+         * @return
+         */
+        public Builder concurrencyLimit(ConcurrencyLimit concurrencyLimit) {
+            this.concurrencyLimit = concurrencyLimit;
+            return this;
+        }
+
         public ElasticExecutor build() {
-            return new DefaultElasticThreadPoolExecutor(poolName, corePoolSize, maximumPoolSize, keepAliveTime, workQueue, threadFactory, rejectedExecutionHandler);
+            return new DefaultElasticThreadPoolExecutor(poolName, corePoolSize, maximumPoolSize, keepAliveTime, workQueue, threadFactory, rejectedExecutionHandler, concurrencyLimit);
         }
 
         private static ElasticExecutor fromName(String poolName) {
@@ -133,6 +174,11 @@ public class DefaultElasticThreadPoolExecutor extends ThreadPoolExecutor impleme
      */
     private static class RejectedExecutionHandlerWrapper extends LongAdder implements RejectedExecutionHandler {
 
+        /**
+         * 当前线程正在通过{@link #executeOrReject(Runnable)}提交，拒绝时不调用拒绝策略
+         */
+        private static final ThreadLocal<Boolean> ABORTING = new ThreadLocal<>();
+
         private final RejectedExecutionHandler policy;
 
         public RejectedExecutionHandlerWrapper(RejectedExecutionHandler policy) {
@@ -141,18 +187,42 @@ public class DefaultElasticThreadPoolExecutor extends ThreadPoolExecutor impleme
 
         @Override
         public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            // 优先扩充线程模式下，线程数达到最大时的拒绝是竞争造成的，重新入队
+            BlockingQueue<Runnable> queue = executor.getQueue();
+            if (queue instanceof EagerGrowthQueue && !executor.isShutdown() && ((EagerGrowthQueue<Runnable>) queue).force(r)) {
+                return;
+            }
+            reject(r, executor);
+        }
+
+        /**
+         * 交给拒绝策略处理并计数，{@link RejectionPolicy}正常返回时任务已经被接管，不再抛出拒绝异常
+         * @param r
+         * @param executor
+         */
+        private void reject(Runnable r, ThreadPoolExecutor executor) {
             this.increment();
+            if (ABORTING.get() != null) {
+                throw new TaskRejectedException(new RejectedExecutionException("Task " + r + " rejected from " + executor));
+            }
             try {
                 policy.rejectedExecution(r, executor);
             } catch (RejectedExecutionException ex) {
                 throw new TaskRejectedException(ex);
             }
+            if (policy instanceof RejectionPolicy) {
+                return;
+            }
             throw new TaskRejectedException();
         }
 
         public long getRejectedCount() {
             return this.longValue();
         }
+
+        public RejectedExecutionHandler getPolicy() {
+            return policy;
+        }
     }
 
     @Override
@@ -160,21 +230,83 @@ public class DefaultElasticThreadPoolExecutor extends ThreadPoolExecutor impleme
         if (task == null) {
             throw new NullPointerException();
         }
-        RunnableFuture<V> futureTask = newTaskFor(task);
+        return admission.submit(newTaskFor(task), task);
+    }
+
+    @Override
+    public <V> Future<V> submit(ElasticFutureTask<V> futureTask) {
+        if (futureTask == null || futureTask.getExecutorTask() == null) {
+            throw new NullPointerException();
+        }
+        return admission.submit(futureTask, futureTask.getExecutorTask());
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        admission.execute(command, null);
+    }
+
+    @Override
+    public void executeOrReject(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        RejectedExecutionHandlerWrapper.ABORTING.set(Boolean.TRUE);
         try {
-            execute(futureTask);
-        } catch (TaskRejectedException ex) {
-            task.changeState(ExecutorTask.TaskState.REJECTED);
-            // 如果拒绝策略存在抛出的异常，抛出原始的拒绝异常
-            if (ex.existRejectedExecutionException()) {
-                throw ex.getRejectedExecutionException();
-            }
-        } catch (Throwable ex) {
-            task.changeState(ExecutorTask.TaskState.FAILURE);
+            executeDirect(command);
         } finally {
-            task.destroy();
+            RejectedExecutionHandlerWrapper.ABORTING.remove();
+        }
+    }
+
+    /**
+     * 开启自适应并发限制时，在途任务数(执行中+排队中)达到限制的任务交给拒绝策略处理
+     * @param command
+     */
+    private void executeDirect(Runnable command) {
+        ConcurrencyLimit limit = concurrencyLimit;
+        if (limit != null && command != null && !isShutdown() && getInFlightCount() >= limit.getLimit()) {
+            ((RejectedExecutionHandlerWrapper) getRejectedExecutionHandler()).reject(command, this);
+            return;
+        }
+        super.execute(command);
+    }
+
+    private int getInFlightCount() {
+        return runningCount.get() + getQueue().size();
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new ElasticFutureTask<>(callable);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new ElasticFutureTask<>(runnable, value);
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable runnable) {
+        runningCount.incrementAndGet();
+        if (runnable instanceof ElasticFutureTask) {
+            long waitNanos = System.nanoTime() - ((ElasticFutureTask<?>) runnable).getSubmitNanos();
+            // 权重1/8的指数移动平均，并发更新丢失个别样本可以接受
+            long average = queueWaitNanos;
+            queueWaitNanos = average + ((waitNanos - average) >> 3);
+        }
+        super.beforeExecute(thread, runnable);
+    }
+
+    @Override
+    protected void afterExecute(Runnable runnable, Throwable throwable) {
+        super.afterExecute(runnable, throwable);
+        int inFlight = getInFlightCount();
+        runningCount.decrementAndGet();
+        ConcurrencyLimit limit = concurrencyLimit;
+        if (limit != null && runnable instanceof ElasticFutureTask) {
+            limit.onSample(System.nanoTime() - ((ElasticFutureTask<?>) runnable).getSubmitNanos(), inFlight);
         }
-        return futureTask;
     }
 
     @Override
@@ -250,12 +382,14 @@ public class DefaultElasticThreadPoolExecutor extends ThreadPoolExecutor impleme
             if (LOGGER.isInfoEnabled()) {
                 LOGGER.info("线程池{}: workQueueCapacity 新值: {}和旧值: {}一样，不做修改更新操作", poolName, newWorkQueueCapacity, workQueueCapacity);
             }
+            return;
         }
         if (workQueue instanceof ResizableBlockingQueue) {
+            int oldWorkQueueCapacity = workQueueCapacity;
             ((ResizableBlockingQueue)workQueue).setCapacity(newWorkQueueCapacity);
             this.workQueueCapacity = newWorkQueueCapacity;
             if (LOGGER.isInfoEnabled()) {
-                LOGGER.info("线程池{}: 工作队列{}，容量 workQueueCapacity 已被修改生效，新值: {}, 旧值: {}", poolName, workQueue.getClass().getSimpleName(), newWorkQueueCapacity, workQueueCapacity);
+                LOGGER.info("线程池{}: 工作队列{}，容量 workQueueCapacity 已被修改生效，新值: {}, 旧值: {}", poolName, workQueue.getClass().getSimpleName(), newWorkQueueCapacity, oldWorkQueueCapacity);
             }
         } else {
             if (LOGGER.isWarnEnabled()) {
@@ -276,7 +410,12 @@ public class DefaultElasticThreadPoolExecutor extends ThreadPoolExecutor impleme
 
     @Override
     public int getActiveCount() {
-        return super.getActiveCount();
+        return runningCount.get();
+    }
+
+    @Override
+    public long getQueueWaitNanos() {
+        return queueWaitNanos;
     }
 
     @Override
@@ -341,7 +480,7 @@ public class DefaultElasticThreadPoolExecutor extends ThreadPoolExecutor impleme
 
     @Override
     public String getRejectedExecutionHandlerType() {
-        return getRejectedExecutionHandler().getClass().getSimpleName();
+        return getPolicy().getClass().getSimpleName();
     }
 
     @Override
@@ -349,9 +488,101 @@ public class DefaultElasticThreadPoolExecutor extends ThreadPoolExecutor impleme
         return ((RejectedExecutionHandlerWrapper) getRejectedExecutionHandler()).getRejectedCount();
     }
 
-    private DefaultElasticThreadPoolExecutor(String poolName, int corePoolSize, int maximumPoolSize, long keepAliveTime, BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory, RejectedExecutionHandler handler) {
-        super(corePoolSize, maximumPoolSize, keepAliveTime, TimeUnit.MILLISECONDS, workQueue, threadFactory, new RejectedExecutionHandlerWrapper(handler));
+    @Override
+    public long getAdmissionRejectedCount() {
+        return admission.getRejectedCount();
+    }
+
+    @Override
+    public int getConcurrencyLimit() {
+        return concurrencyLimit == null ? -1 : concurrencyLimit.getLimit();
+    }
+
+    @Override
+    public long getLimiterLatencyNanos() {
+        return concurrencyLimit == null ? 0 : concurrencyLimit.getLatencyNanos();
+    }
+
+    @Override
+    public double getRateLimit() {
+        return admission.getRateLimit();
+    }
+
+    private RejectedExecutionHandler getPolicy() {
+        return ((RejectedExecutionHandlerWrapper) getRejectedExecutionHandler()).getPolicy();
+    }
+
+    @Override
+    public Map<String, Long> getRejectionOutcomes() {
+        return getPolicy() instanceof RejectionPolicy ? ((RejectionPolicy) getPolicy()).getOutcomes() : Collections.<String, Long>emptyMap();
+    }
+
+    @Override
+    public Map<Integer, Long> getShedCounts() {
+        return getPolicy() instanceof PrioritySheddingPolicy ? ((PrioritySheddingPolicy) getPolicy()).getShedCounts() : Collections.<Integer, Long>emptyMap();
+    }
+
+    @Override
+    public void setRateLimit(double permitsPerSecond, int burst, long maxDelay, TimeUnit unit) {
+        admission.setRateLimit(permitsPerSecond, burst, maxDelay, unit);
+    }
+
+    @Override
+    public void setTaskRateLimit(String taskName, double permitsPerSecond, int burst) {
+        admission.setTaskRateLimit(taskName, permitsPerSecond, burst);
+    }
+
+    @Override
+    public void setTenantBulkhead(String tenantParameter, int defaultQuota, long maxWait, TimeUnit unit) {
+        admission.setTenantBulkhead(tenantParameter, defaultQuota, maxWait, unit);
+    }
+
+    @Override
+    public void setTenantQuota(String tenant, int quota) {
+        admission.setTenantQuota(tenant, quota);
+    }
+
+    @Override
+    public Map<String, Integer> getTenantActiveCounts() {
+        return admission.getTenantActiveCounts();
+    }
+
+    @Override
+    public Map<String, Long> getTenantRejectedCounts() {
+        return admission.getTenantRejectedCounts();
+    }
+
+    private DefaultElasticThreadPoolExecutor(String poolName, int corePoolSize, int maximumPoolSize, long keepAliveTime, BlockingQueue<Runnable> workQueue,
+                                             ThreadFactory threadFactory, RejectedExecutionHandler handler, ConcurrencyLimit concurrencyLimit) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, TimeUnit.MILLISECONDS, workQueue, threadFactory,
+                // DiscardOldestPolicy和ThreadPoolExecutor的内部类同名，这里使用全名
+                new RejectedExecutionHandlerWrapper(com.don.elastic.executors.rejected.DiscardOldestPolicy.adapt(handler)));
         this.poolName = poolName;
+        this.concurrencyLimit = concurrencyLimit;
+        this.admission = new TaskAdmission(poolName, new TaskAdmission.Pool() {
+            @Override
+            public void executeDirect(Runnable command) {
+                DefaultElasticThreadPoolExecutor.this.executeDirect(command);
+            }
+
+            @Override
+            public void executeOrReject(Runnable command) {
+                DefaultElasticThreadPoolExecutor.this.executeOrReject(command);
+            }
+
+            @Override
+            public void countRejected() {
+                ((RejectedExecutionHandlerWrapper) getRejectedExecutionHandler()).increment();
+            }
+
+            @Override
+            public RejectedExecutionHandler getPolicy() {
+                return DefaultElasticThreadPoolExecutor.this.getPolicy();
+            }
+        });
+        if (workQueue instanceof EagerGrowthQueue) {
+            ((EagerGrowthQueue<Runnable>) workQueue).setExecutor(this);
+        }
         // 队列刚创建剩余容量==容量
         this.workQueueCapacity = workQueue.remainingCapacity();
     }
@@ -0,0 +1,15 @@
+package com.don.elastic.executors.excutor;
+
+/**
+ * 排队中可能被拒绝策略丢弃的任务，被丢弃时收到通知，
+ * 用来结束等待它的Future、释放它占用的资源
+ * @author Don Du
+ */
+public interface DiscardableTask extends Runnable {
+
+    /**
+     * 任务已经从队列中移除，不会再被执行
+     */
+    void discard();
+
+}
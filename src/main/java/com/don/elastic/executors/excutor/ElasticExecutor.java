@@ -25,6 +25,27 @@ public interface ElasticExecutor extends ConfigurableExecutor, MonitoringExecuto
      */
     <V> Future<V> submit(ExecutorTask<V> task);
 
+    /**
+     * 提交已经创建好的任务包装，调用方可以在提交前先发布它的Future，拒绝时的处理和{@link #submit(ExecutorTask)}相同
+     * @param futureTask 由{@link ExecutorTask}创建的任务包装
+     * @param <V>
+     * @return
+     */
+    <V> Future<V> submit(ElasticFutureTask<V> futureTask);
+
+    /**
+     * 直接提交到本线程池，不经过提交限速和拒绝策略：线程池无法接受时抛出{@link com.don.elastic.executors.task.TaskRejectedException}，
+     * 任务一定没有入队。用于需要确切知道任务是否被接受的内部提交
+     * @param command
+     */
+    void executeOrReject(Runnable command);
+
+    /**
+     * 预先启动所有核心线程
+     * @return 本次启动的线程数
+     */
+    int prestartAllCoreThreads();
+
     /**
      * 关闭线程池
      * @param timeout
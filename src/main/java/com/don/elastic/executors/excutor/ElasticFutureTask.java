@@ -0,0 +1,162 @@
+package com.don.elastic.executors.excutor;
+
+import com.don.elastic.executors.task.ExecutorTask;
+import com.don.elastic.executors.task.ExecutorTaskContext;
+import com.don.elastic.executors.task.TaskShedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 线程池内部使用的任务包装，记录提交时间和任务上下文
+ * @author Don Du
+ * @param <V>
+ */
+public class ElasticFutureTask<V> extends FutureTask<V> implements DiscardableTask {
+
+    /**
+     * 提交时间，用于计算排队等待时间
+     */
+    private final long submitNanos;
+
+    /**
+     * 任务上下文，非{@link ExecutorTask}提交时为null
+     */
+    private final ExecutorTaskContext taskContext;
+
+    /**
+     * 提交的任务，非{@link ExecutorTask}提交时为null
+     */
+    private final ExecutorTask<V> executorTask;
+
+    /**
+     * 是否被挤出
+     */
+    private volatile boolean shed;
+
+    /**
+     * 任务完成(正常结束、异常或取消)后执行的回调，由自身的锁保护，完成后置为null
+     */
+    private List<Runnable> completionCallbacks;
+
+    private boolean finished;
+
+    public ElasticFutureTask(Callable<V> callable) {
+        super(callable);
+        this.submitNanos = System.nanoTime();
+        this.executorTask = callable instanceof ExecutorTask ? (ExecutorTask<V>) callable : null;
+        this.taskContext = executorTask == null ? null : executorTask.getTaskContext();
+    }
+
+    public ElasticFutureTask(Runnable runnable, V result) {
+        super(runnable, result);
+        this.submitNanos = System.nanoTime();
+        this.executorTask = null;
+        this.taskContext = null;
+    }
+
+    public long getSubmitNanos() {
+        return submitNanos;
+    }
+
+    public ExecutorTaskContext getTaskContext() {
+        return taskContext;
+    }
+
+    public ExecutorTask<V> getExecutorTask() {
+        return executorTask;
+    }
+
+    /**
+     * 任务优先级，没有任务上下文时为默认优先级
+     * @return
+     */
+    public int getPriority() {
+        return taskContext == null ? ExecutorTaskContext.DEFAULT_PRIORITY : taskContext.getPriority();
+    }
+
+    /**
+     * 被更高优先级的任务挤出，取消任务，{@link #get()}抛出{@link TaskShedException}
+     * @return 是否取消成功
+     */
+    public boolean shed() {
+        shed = true;
+        if (!cancel(false)) {
+            shed = false;
+            return false;
+        }
+        if (executorTask != null) {
+            executorTask.changeState(ExecutorTask.TaskState.SHED);
+        }
+        return true;
+    }
+
+    public boolean isShed() {
+        return shed;
+    }
+
+    /**
+     * 排队中被拒绝策略丢弃，取消任务，完成回调随之执行，释放租户许可等资源
+     */
+    @Override
+    public void discard() {
+        cancel(false);
+    }
+
+    /**
+     * 任务完成(正常结束、异常或取消)后执行回调，已经完成时在当前线程立即执行
+     * @param callback
+     */
+    public void whenDone(Runnable callback) {
+        synchronized (this) {
+            if (!finished) {
+                if (completionCallbacks == null) {
+                    completionCallbacks = new ArrayList<>(2);
+                }
+                completionCallbacks.add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+
+    @Override
+    protected void done() {
+        List<Runnable> callbacks;
+        synchronized (this) {
+            finished = true;
+            callbacks = completionCallbacks;
+            completionCallbacks = null;
+        }
+        if (callbacks != null) {
+            for (Runnable callback : callbacks) {
+                callback.run();
+            }
+        }
+    }
+
+    @Override
+    public V get() throws InterruptedException, ExecutionException {
+        try {
+            return super.get();
+        } catch (CancellationException ex) {
+            throw shed ? new TaskShedException("task shed by higher priority task") : ex;
+        }
+    }
+
+    @Override
+    public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        try {
+            return super.get(timeout, unit);
+        } catch (CancellationException ex) {
+            throw shed ? new TaskShedException("task shed by higher priority task") : ex;
+        }
+    }
+
+}
@@ -0,0 +1,225 @@
+package com.don.elastic.executors.excutor;
+
+import com.don.elastic.executors.task.ExecutorTask;
+import com.don.elastic.executors.task.TaskRejectedException;
+import com.don.elastic.executors.util.Asserts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 按key串行执行：同一个key的任务严格按提交顺序逐个执行，不同key的任务在底层线程池中并行执行。
+ * 每个有排队任务的key对应一个邮箱，邮箱作为一个任务提交到底层线程池，在工作线程上依次执行排队的任务；
+ * 邮箱排空后立即移除，空闲的key不占用内存。
+ * 一次最多连续执行maxBatch个任务，之后把邮箱重新提交到底层线程池排队，避免热点key长期占用一个工作线程。
+ * 邮箱通过{@link ElasticExecutor#executeOrReject(Runnable)}提交，不经过拒绝策略，提交要么入队要么被拒绝，
+ * 同一个邮箱不会同时在队列中和工作线程上；排队中的邮箱被拒绝策略丢弃时取消其中的所有任务
+ * @author Don Du
+ */
+public class KeyedOrderedExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeyedOrderedExecutor.class);
+
+    private final ElasticExecutor executor;
+
+    private final int maxBatch;
+
+    private final ConcurrentMap<Object, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    /**
+     * @param executor 底层线程池
+     * @param maxBatch 一个邮箱一次最多连续执行的任务数
+     */
+    public KeyedOrderedExecutor(ElasticExecutor executor, int maxBatch) {
+        Asserts.notNull(executor, "executor == null");
+        Asserts.isFalse(maxBatch <= 0, "maxBatch <= 0");
+        this.executor = executor;
+        this.maxBatch = maxBatch;
+    }
+
+    /**
+     * 按key串行提交任务，key为null时直接提交到底层线程池，不保证顺序
+     * @param key
+     * @param task
+     * @param <V>
+     * @return
+     */
+    public <V> Future<V> submit(Object key, ExecutorTask<V> task) {
+        Asserts.notNull(task, "task == null");
+        if (key == null) {
+            return executor.submit(task);
+        }
+        ElasticFutureTask<V> futureTask = new ElasticFutureTask<>(task);
+        try {
+            execute(key, futureTask);
+            task.changeState(ExecutorTask.TaskState.COMMITTED);
+        } catch (TaskRejectedException ex) {
+            task.changeState(ExecutorTask.TaskState.REJECTED);
+            // 如果拒绝策略存在抛出的异常，抛出原始的拒绝异常
+            throw ex.existRejectedExecutionException() ? ex.getRejectedExecutionException() : ex;
+        } catch (RejectedExecutionException ex) {
+            task.changeState(ExecutorTask.TaskState.REJECTED);
+            throw ex;
+        } finally {
+            task.destroy();
+        }
+        return futureTask;
+    }
+
+    /**
+     * 按key串行执行任务，key为null时直接提交到底层线程池，不保证顺序
+     * @param key
+     * @param command
+     */
+    public void execute(Object key, Runnable command) {
+        Asserts.notNull(command, "command == null");
+        if (key == null) {
+            executor.execute(command);
+            return;
+        }
+        for (;;) {
+            Mailbox mailbox = mailboxes.get(key);
+            if (mailbox == null) {
+                Mailbox newMailbox = new Mailbox(key);
+                mailbox = mailboxes.putIfAbsent(key, newMailbox);
+                if (mailbox == null) {
+                    mailbox = newMailbox;
+                }
+            }
+            synchronized (mailbox) {
+                // 邮箱刚被排空移除，重新创建
+                if (mailbox.closed) {
+                    continue;
+                }
+                mailbox.tasks.add(command);
+                if (mailbox.scheduled) {
+                    return;
+                }
+                mailbox.scheduled = true;
+            }
+            try {
+                executor.executeOrReject(mailbox);
+            } catch (RejectedExecutionException ex) {
+                abandon(mailbox, command);
+                throw ex;
+            }
+            return;
+        }
+    }
+
+    /**
+     * 邮箱提交被拒绝或者排队中被丢弃，关闭邮箱。其他线程加入的任务已经返回，只能取消
+     * @param mailbox
+     * @param command 被拒绝的任务，由调用方抛出拒绝异常，邮箱被丢弃时为null
+     */
+    private void abandon(Mailbox mailbox, Runnable command) {
+        Runnable[] abandoned;
+        synchronized (mailbox) {
+            abandoned = mailbox.tasks.toArray(new Runnable[0]);
+            mailbox.tasks.clear();
+            mailbox.scheduled = false;
+            mailbox.closed = true;
+        }
+        mailboxes.remove(mailbox.key, mailbox);
+        for (Runnable task : abandoned) {
+            if (task != command && task instanceof Future) {
+                ((Future<?>) task).cancel(false);
+            }
+        }
+        int cancelled = command == null ? abandoned.length : abandoned.length - 1;
+        if (cancelled > 0 && LOGGER.isWarnEnabled()) {
+            LOGGER.warn("key{}的邮箱被拒绝，取消排队中的{}个任务", mailbox.key, cancelled);
+        }
+    }
+
+    /**
+     * 有排队或执行中任务的key数量
+     * @return
+     */
+    public int getActiveKeyCount() {
+        return mailboxes.size();
+    }
+
+    public ElasticExecutor getExecutor() {
+        return executor;
+    }
+
+    public int getMaxBatch() {
+        return maxBatch;
+    }
+
+    private final class Mailbox implements DiscardableTask {
+
+        private final Object key;
+
+        /**
+         * 以下字段由邮箱自身的锁保护
+         */
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>(4);
+
+        /**
+         * 是否已经提交到底层线程池或正在执行
+         */
+        private boolean scheduled;
+
+        /**
+         * 已经排空并从邮箱表中移除，不再接受任务
+         */
+        private boolean closed;
+
+        private Mailbox(Object key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            for (;;) {
+                for (int i = 0; i < maxBatch; i++) {
+                    Runnable task;
+                    synchronized (this) {
+                        task = tasks.poll();
+                        if (task == null) {
+                            scheduled = false;
+                            closed = true;
+                            mailboxes.remove(key, this);
+                            return;
+                        }
+                    }
+                    runTask(task);
+                }
+                // 让出工作线程，重新排队
+                try {
+                    executor.executeOrReject(this);
+                    return;
+                } catch (RejectedExecutionException ex) {
+                    // 没有入队，继续在当前线程执行，保证已接受的任务不丢失
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("key{}的邮箱重新提交被拒绝，继续在当前线程执行", key, ex);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 排队中的邮箱被拒绝策略丢弃，不会再执行
+         */
+        @Override
+        public void discard() {
+            abandon(this, null);
+        }
+
+        private void runTask(Runnable task) {
+            try {
+                task.run();
+            } catch (Throwable ex) {
+                LOGGER.warn("key{}的任务执行失败", key, ex);
+            }
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.don.elastic.executors.excutor;
 
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionHandler;
@@ -28,6 +29,12 @@ public interface MonitoringExecutor extends Executor {
      */
     int getActiveCount();
 
+    /**
+     * 最近任务的排队等待时间（指数移动平均），单位纳秒
+     * @return
+     */
+    long getQueueWaitNanos();
+
     /**
      * 核心线程数
      * @return
@@ -106,4 +113,52 @@ public interface MonitoringExecutor extends Executor {
      */
     long getRejectedTaskCount();
 
+    /**
+     * 超过提交限速或租户配额被直接拒绝的任务数，包含在{@link #getRejectedTaskCount()}中，没有经过拒绝策略
+     * @return
+     */
+    long getAdmissionRejectedCount();
+
+    /**
+     * 自适应并发限制当前允许的在途任务数，没有开启时返回-1
+     * @return
+     */
+    int getConcurrencyLimit();
+
+    /**
+     * 自适应并发限制当前参考的任务延迟(提交到完成)，没有开启时返回0
+     * @return
+     */
+    long getLimiterLatencyNanos();
+
+    /**
+     * 线程池提交限速，每秒允许提交的任务数，没有限速时返回0
+     * @return
+     */
+    double getRateLimit();
+
+    /**
+     * 拒绝策略各种处理结果的次数，jdk拒绝策略返回空
+     * @return
+     */
+    Map<String, Long> getRejectionOutcomes();
+
+    /**
+     * 按优先级挤出的排队任务数，key为优先级，没有使用PrioritySheddingPolicy时返回空
+     * @return
+     */
+    Map<Integer, Long> getShedCounts();
+
+    /**
+     * 每个租户正在排队和执行的任务数，没有配置租户配额时返回空，空闲的租户不在结果中
+     * @return
+     */
+    Map<String, Integer> getTenantActiveCounts();
+
+    /**
+     * 当前有任务的租户超过配额被拒绝的任务数，租户空闲后重新计数
+     * @return
+     */
+    Map<String, Long> getTenantRejectedCounts();
+
 }
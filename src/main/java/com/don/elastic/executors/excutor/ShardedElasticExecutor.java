@@ -0,0 +1,688 @@
+package com.don.elastic.executors.excutor;
+
+import com.don.elastic.executors.queue.WorkStealingQueue;
+import com.don.elastic.executors.rejected.DiscardOldestPolicy;
+import com.don.elastic.executors.rejected.PrioritySheddingPolicy;
+import com.don.elastic.executors.rejected.RejectionPolicy;
+import com.don.elastic.executors.task.ExecutorTask;
+import com.don.elastic.executors.task.TaskRejectedException;
+import com.don.elastic.executors.util.Asserts;
+import com.don.elastic.executors.util.NetUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分片线程池，由N个独立的子线程池组成，每个子线程池有自己的ctl、mainLock和队列，
+ * 提交时按线程本地探针选择分片，分片拒绝时换下一个分片，空闲分片从排队最多的分片窃取任务。
+ * 对外表现为一个线程池，线程数、队列容量按分片平均分配，监控数据为所有分片之和
+ * @author Don Du
+ */
+public class ShardedElasticExecutor extends AbstractExecutorService implements ElasticExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElasticExecutor.class);
+
+    /**
+     * 线程本地探针，同一个提交线程固定落在同一个分片，被拒绝时重新散列
+     */
+    private static final ThreadLocal<int[]> PROBE = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[]{mix((int) Thread.currentThread().getId())};
+        }
+    };
+
+    private final String poolName;
+
+    private final DefaultElasticThreadPoolExecutor[] shards;
+
+    private final RejectedExecutionHandler policy;
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private final BlockingQueue<Runnable> queueView = new ShardQueueView();
+
+    private volatile int corePoolSize;
+
+    private volatile int maximumPoolSize;
+
+    private volatile int workQueueCapacity;
+
+    /**
+     * 提交准入：提交限速和按租户的并发配额
+     */
+    private final TaskAdmission admission;
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private static final int CPU_PROCESSOR_SIZE = Runtime.getRuntime().availableProcessors();
+
+        private String poolName = ElasticExecutor.DEFAULT_POOL_NAME;
+
+        // 分片数，默认每个cpu一个分片
+        private int shards = CPU_PROCESSOR_SIZE;
+
+        private int corePoolSize = CPU_PROCESSOR_SIZE;
+
+        private int maximumPoolSize = 2 * CPU_PROCESSOR_SIZE + 1;
+
+        private long keepAliveTime = 6000;
+
+        private int capacity = 200;
+
+        private RejectedExecutionHandler rejectedExecutionHandler = new ThreadPoolExecutor.AbortPolicy();
+
+        private Builder() {}
+
+        public Builder poolName(String poolName) {
+            Asserts.notEmpty(poolName, "poolName is empty");
+            this.poolName = poolName;
+            return this;
+        }
+
+        public Builder shards(int shards) {
+            Asserts.isFalse(shards <= 0, "shards <= 0");
+            this.shards = shards;
+            return this;
+        }
+
+        public Builder corePoolSize(int corePoolSize) {
+            Asserts.isFalse(corePoolSize < 0, "corePoolSize <= 0");
+            this.corePoolSize = corePoolSize;
+            return this;
+        }
+
+        public Builder maximumPoolSize(int maximumPoolSize) {
+            Asserts.isFalse(maximumPoolSize <= 0 || maximumPoolSize < corePoolSize, "maximumPoolSize <= 0 || maximumPoolSize < corePoolSize");
+            this.maximumPoolSize = maximumPoolSize;
+            return this;
+        }
+
+        public Builder keepAliveTime(long keepAliveTime) {
+            Asserts.isFalse(keepAliveTime <= 0, "keepAliveTime <= 0");
+            this.keepAliveTime = keepAliveTime;
+            return this;
+        }
+
+        public Builder capacity(int capacity) {
+            Asserts.isFalse(capacity <= 0, "capacity <= 0");
+            this.capacity = capacity;
+            return this;
+        }
+
+        public Builder rejectedExecutionHandler(RejectedExecutionHandler rejectedExecutionHandler) {
+            Asserts.notNull(rejectedExecutionHandler, "rejectedExecutionHandler == null");
+            this.rejectedExecutionHandler = rejectedExecutionHandler;
+            return this;
+        }
+
+        public ElasticExecutor build() {
+            return new ShardedElasticExecutor(this);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ShardedElasticExecutor(Builder builder) {
+        // 每个分片至少一个线程、一个队列位置
+        int count = Math.max(1, Math.min(builder.shards, Math.min(builder.maximumPoolSize, builder.capacity)));
+        this.poolName = builder.poolName;
+        this.policy = DiscardOldestPolicy.adapt(builder.rejectedExecutionHandler);
+        this.admission = new TaskAdmission(poolName, new TaskAdmission.Pool() {
+            @Override
+            public void executeDirect(Runnable command) {
+                ShardedElasticExecutor.this.executeDirect(command);
+            }
+
+            @Override
+            public void executeOrReject(Runnable command) {
+                ShardedElasticExecutor.this.executeOrReject(command);
+            }
+
+            @Override
+            public void countRejected() {
+                rejectedCount.increment();
+            }
+
+            @Override
+            public RejectedExecutionHandler getPolicy() {
+                return policy;
+            }
+        });
+        this.corePoolSize = builder.corePoolSize;
+        this.maximumPoolSize = builder.maximumPoolSize;
+        this.workQueueCapacity = builder.capacity;
+        this.shards = new DefaultElasticThreadPoolExecutor[count];
+        @SuppressWarnings("unchecked")
+        WorkStealingQueue<Runnable>[] queues = (WorkStealingQueue<Runnable>[]) new WorkStealingQueue<?>[count];
+        for (int i = 0; i < count; i++) {
+            queues[i] = new WorkStealingQueue<>(share(builder.capacity, count, i, 1));
+            shards[i] = (DefaultElasticThreadPoolExecutor) DefaultElasticThreadPoolExecutor.newBuilder()
+                    .poolName(poolName + "-shard" + i)
+                    .corePoolSize(share(builder.corePoolSize, count, i, 0))
+                    .maximumPoolSize(share(builder.maximumPoolSize, count, i, 1))
+                    .keepAliveTime(builder.keepAliveTime)
+                    .workQueue(queues[i])
+                    .threadFactory(new NamedThreadFactory(poolName + "-" + i))
+                    .build();
+        }
+        WorkStealingQueue.link(queues);
+    }
+
+    /**
+     * 把总数平均分配到分片，余数分给前面的分片
+     */
+    private static int share(int total, int count, int index, int min) {
+        return Math.max(min, total / count + (index < total % count ? 1 : 0));
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        admission.execute(command, null);
+    }
+
+    @Override
+    public void executeOrReject(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        executeDirect(command, false);
+    }
+
+    private void executeDirect(Runnable command) {
+        executeDirect(command, true);
+    }
+
+    /**
+     * @param command
+     * @param usePolicy 所有分片都拒绝时是否交给拒绝策略，为false时直接拒绝
+     */
+    private void executeDirect(Runnable command, boolean usePolicy) {
+        int[] probe = PROBE.get();
+        int length = shards.length;
+        int index = (probe[0] & Integer.MAX_VALUE) % length;
+        for (int i = 0; i < length; i++) {
+            DefaultElasticThreadPoolExecutor shard = shards[(index + i) % length];
+            try {
+                shard.execute(command);
+                if (i > 0) {
+                    // 原分片繁忙，下次从新位置开始
+                    probe[0] = mix(probe[0] + 0x9e3779b9);
+                }
+                return;
+            } catch (RejectedExecutionException ex) {
+                if (shard.isShutdown()) {
+                    break;
+                }
+            }
+        }
+        if (!usePolicy) {
+            rejectedCount.increment();
+            throw new TaskRejectedException(new RejectedExecutionException("Task " + command + " rejected from " + poolName));
+        }
+        reject(command, shards[index]);
+    }
+
+    /**
+     * 所有分片都拒绝时交给拒绝策略，和单个线程池一样，拒绝策略执行后抛出{@link TaskRejectedException}，
+     * {@link RejectionPolicy}正常返回时任务已经被接管
+     */
+    private void reject(Runnable command, ThreadPoolExecutor shard) {
+        rejectedCount.increment();
+        try {
+            policy.rejectedExecution(command, shard);
+        } catch (RejectedExecutionException ex) {
+            throw new TaskRejectedException(ex);
+        }
+        if (policy instanceof RejectionPolicy) {
+            return;
+        }
+        throw new TaskRejectedException();
+    }
+
+    @Override
+    public <V> Future<V> submit(ExecutorTask<V> task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        return admission.submit(newTaskFor(task), task);
+    }
+
+    @Override
+    public <V> Future<V> submit(ElasticFutureTask<V> futureTask) {
+        if (futureTask == null || futureTask.getExecutorTask() == null) {
+            throw new NullPointerException();
+        }
+        return admission.submit(futureTask, futureTask.getExecutorTask());
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new ElasticFutureTask<>(callable);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new ElasticFutureTask<>(runnable, value);
+    }
+
+    @Override
+    public int prestartAllCoreThreads() {
+        int started = 0;
+        for (DefaultElasticThreadPoolExecutor shard : shards) {
+            started += shard.prestartAllCoreThreads();
+        }
+        return started;
+    }
+
+    /**
+     * 分片数
+     * @return
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public synchronized void setCorePoolSize(int corePoolSize) {
+        Asserts.isFalse(corePoolSize < 0 || corePoolSize > maximumPoolSize, "corePoolSize < 0 || corePoolSize > maximumPoolSize");
+        int length = shards.length;
+        for (int i = 0; i < length; i++) {
+            shards[i].setCorePoolSize(share(corePoolSize, length, i, 0));
+        }
+        this.corePoolSize = corePoolSize;
+    }
+
+    @Override
+    public synchronized void setMaximumPoolSize(int maximumPoolSize) {
+        Asserts.isFalse(maximumPoolSize <= 0 || maximumPoolSize < corePoolSize, "maximumPoolSize <= 0 || maximumPoolSize < corePoolSize");
+        int length = shards.length;
+        for (int i = 0; i < length; i++) {
+            shards[i].setMaximumPoolSize(share(maximumPoolSize, length, i, 1));
+        }
+        this.maximumPoolSize = maximumPoolSize;
+    }
+
+    @Override
+    public void setKeepAliveTime(long time, TimeUnit unit) {
+        for (DefaultElasticThreadPoolExecutor shard : shards) {
+            shard.setKeepAliveTime(time, unit);
+        }
+    }
+
+    @Override
+    public synchronized void setWorkQueueCapacity(int workQueueCapacity) {
+        int length = shards.length;
+        for (int i = 0; i < length; i++) {
+            shards[i].setWorkQueueCapacity(share(workQueueCapacity, length, i, 1));
+        }
+        this.workQueueCapacity = workQueueCapacity;
+    }
+
+    @Override
+    public String getPoolName() {
+        return poolName;
+    }
+
+    @Override
+    public String getHost() {
+        return NetUtils.getLocalHost();
+    }
+
+    @Override
+    public int getActiveCount() {
+        int count = 0;
+        for (DefaultElasticThreadPoolExecutor shard : shards) {
+            count += shard.getActiveCount();
+        }
+        return count;
+    }
+
+    /**
+     * 各分片排队等待时间的最大值
+     * @return
+     */
+    @Override
+    public long getQueueWaitNanos() {
+        long max = 0;
+        for (DefaultElasticThreadPoolExecutor shard : shards) {
+            max = Math.max(max, shard.getQueueWaitNanos());
+        }
+        return max;
+    }
+
+    @Override
+    public int getCorePoolSize() {
+        return corePoolSize;
+    }
+
+    @Override
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    @Override
+    public int getPoolSize() {
+        int count = 0;
+        for (DefaultElasticThreadPoolExecutor shard : shards) {
+            count += shard.getPoolSize();
+        }
+        return count;
+    }
+
+    @Override
+    public int getLargestPoolSize() {
+        int count = 0;
+        for (DefaultElasticThreadPoolExecutor shard : shards) {
+            count += shard.getLargestPoolSize();
+        }
+        return count;
+    }
+
+    @Override
+    public long getCompletedTaskCount() {
+        long count = 0;
+        for (DefaultElasticThreadPoolExecutor shard : shards) {
+            count += shard.getCompletedTaskCount();
+        }
+        return count;
+    }
+
+    /**
+     * 所有分片队列的只读视图
+     * @return
+     */
+    @Override
+    public BlockingQueue<Runnable> getWorkQueue() {
+        return queueView;
+    }
+
+    @Override
+    public String getWorkQueueType() {
+        return WorkStealingQueue.class.getSimpleName();
+    }
+
+    @Override
+    public int getWorkQueueCapacity() {
+        return workQueueCapacity;
+    }
+
+    @Override
+    public int getWorkQueueSize() {
+        int count = 0;
+        for (DefaultElasticThreadPoolExecutor shard : shards) {
+            count += shard.getWorkQueueSize();
+        }
+        return count;
+    }
+
+    @Override
+    public int getRemainingCapacity() {
+        int count = 0;
+        for (DefaultElasticThreadPoolExecutor shard : shards) {
+            count += shard.getRemainingCapacity();
+        }
+        return count;
+    }
+
+    @Override
+    public RejectedExecutionHandler getRejectedExecutionHandler() {
+        return policy;
+    }
+
+    @Override
+    public String getRejectedExecutionHandlerType() {
+        return policy.getClass().getSimpleName();
+    }
+
+    @Override
+    public long getRejectedTaskCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public long getAdmissionRejectedCount() {
+        return admission.getRejectedCount();
+    }
+
+    @Override
+    public int getConcurrencyLimit() {
+        return -1;
+    }
+
+    @Override
+    public long getLimiterLatencyNanos() {
+        return 0;
+    }
+
+    @Override
+    public double getRateLimit() {
+        return admission.getRateLimit();
+    }
+
+    @Override
+    public Map<String, Long> getRejectionOutcomes() {
+        return policy instanceof RejectionPolicy ? ((RejectionPolicy) policy).getOutcomes() : Collections.<String, Long>emptyMap();
+    }
+
+    @Override
+    public Map<Integer, Long> getShedCounts() {
+        return policy instanceof PrioritySheddingPolicy ? ((PrioritySheddingPolicy) policy).getShedCounts() : Collections.<Integer, Long>emptyMap();
+    }
+
+    @Override
+    public void setRateLimit(double permitsPerSecond, int burst, long maxDelay, TimeUnit unit) {
+        admission.setRateLimit(permitsPerSecond, burst, maxDelay, unit);
+    }
+
+    @Override
+    public void setTaskRateLimit(String taskName, double permitsPerSecond, int burst) {
+        admission.setTaskRateLimit(taskName, permitsPerSecond, burst);
+    }
+
+    @Override
+    public void setTenantBulkhead(String tenantParameter, int defaultQuota, long maxWait, TimeUnit unit) {
+        admission.setTenantBulkhead(tenantParameter, defaultQuota, maxWait, unit);
+    }
+
+    @Override
+    public void setTenantQuota(String tenant, int quota) {
+        admission.setTenantQuota(tenant, quota);
+    }
+
+    @Override
+    public Map<String, Integer> getTenantActiveCounts() {
+        return admission.getTenantActiveCounts();
+    }
+
+    @Override
+    public Map<String, Long> getTenantRejectedCounts() {
+        return admission.getTenantRejectedCounts();
+    }
+
+    @Override
+    public void shutdown() {
+        for (DefaultElasticThreadPoolExecutor shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> dropped = new ArrayList<>();
+        for (DefaultElasticThreadPoolExecutor shard : shards) {
+            dropped.addAll(shard.shutdownNow());
+        }
+        return dropped;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        for (DefaultElasticThreadPoolExecutor shard : shards) {
+            if (!shard.isShutdown()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        for (DefaultElasticThreadPoolExecutor shard : shards) {
+            if (!shard.isTerminated()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (DefaultElasticThreadPoolExecutor shard : shards) {
+            if (!shard.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void shutdown(long timeout, TimeUnit timeUnit) {
+        shutdown();
+        try {
+            if (!awaitTermination(timeout, timeUnit) && LOGGER.isWarnEnabled()) {
+                LOGGER.warn("在{}{}内，线程池{}没有成功关闭", timeout, timeUnit.toString(), poolName);
+            }
+        } catch (InterruptedException e) {
+            LOGGER.error("线程池{}关闭过程中发生中断异常", poolName);
+        }
+    }
+
+    /**
+     * 所有分片队列的只读视图，只支持查询和取出
+     */
+    private class ShardQueueView extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+        @Override
+        public Iterator<Runnable> iterator() {
+            List<Runnable> tasks = new ArrayList<>();
+            for (DefaultElasticThreadPoolExecutor shard : shards) {
+                tasks.addAll(shard.getQueue());
+            }
+            return tasks.iterator();
+        }
+
+        @Override
+        public int size() {
+            return getWorkQueueSize();
+        }
+
+        @Override
+        public int remainingCapacity() {
+            return getRemainingCapacity();
+        }
+
+        @Override
+        public Runnable poll() {
+            for (DefaultElasticThreadPoolExecutor shard : shards) {
+                Runnable task = shard.getQueue().poll();
+                if (task != null) {
+                    return task;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Runnable peek() {
+            for (DefaultElasticThreadPoolExecutor shard : shards) {
+                Runnable task = shard.getQueue().peek();
+                if (task != null) {
+                    return task;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            for (DefaultElasticThreadPoolExecutor shard : shards) {
+                if (shard.getQueue().remove(o)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int drainTo(Collection<? super Runnable> c) {
+            return drainTo(c, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public int drainTo(Collection<? super Runnable> c, int maxElements) {
+            int drained = 0;
+            for (DefaultElasticThreadPoolExecutor shard : shards) {
+                if (drained >= maxElements) {
+                    break;
+                }
+                drained += shard.getQueue().drainTo(c, maxElements - drained);
+            }
+            return drained;
+        }
+
+        @Override
+        public boolean offer(Runnable runnable) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void put(Runnable runnable) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean offer(Runnable runnable, long timeout, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Runnable take() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Runnable poll(long timeout, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
@@ -0,0 +1,252 @@
+package com.don.elastic.executors.excutor;
+
+import com.don.elastic.executors.util.Asserts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 共享工作线程组，多个{@link VirtualElasticExecutor}共用一组固定数量的线程。
+ * 按步长调度(stride scheduling)实现加权公平：每个虚拟线程池有一个通行值，每取走一个任务通行值增加STRIDE/weight，
+ * 工作线程总是从有排队任务且未达到并发上限的线程池中选择通行值最小的一个。
+ * 空闲后重新有任务的线程池通行值追平到当前虚拟时间，不会因为空闲而积累额度
+ * @author Don Du
+ */
+public class SharedWorkerGroup {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedWorkerGroup.class);
+
+    /**
+     * 权重为1的线程池每执行一个任务增加的通行值
+     */
+    static final long STRIDE = 1L << 20;
+
+    private final String name;
+
+    /**
+     * 保护调度状态：成员列表、每个虚拟线程池的执行数和通行值
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition workAvailable = lock.newCondition();
+
+    private final List<VirtualElasticExecutor> members = new ArrayList<>();
+
+    private final Worker[] workers;
+
+    /**
+     * 最近一次被调度的通行值
+     */
+    private long virtualTime;
+
+    private boolean shutdown;
+
+    public SharedWorkerGroup(String name, int workerCount) {
+        Asserts.notEmpty(name, "name is empty");
+        Asserts.isFalse(workerCount <= 0, "workerCount <= 0");
+        this.name = name;
+        this.workers = new Worker[workerCount];
+        NamedThreadFactory threadFactory = new NamedThreadFactory(name);
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker();
+            workers[i].thread = threadFactory.newThread(workers[i]);
+        }
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("共享工作线程组{}启动, 线程数: {}", name, workerCount);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    void register(VirtualElasticExecutor executor) {
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new IllegalStateException("共享工作线程组" + name + "已关闭");
+            }
+            executor.pass = virtualTime;
+            members.add(executor);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void deregister(VirtualElasticExecutor executor) {
+        lock.lock();
+        try {
+            members.remove(executor);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 唤醒一个等待中的工作线程
+     */
+    void signalWork() {
+        lock.lock();
+        try {
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 并发上限变化时唤醒所有工作线程重新选择
+     */
+    void signalAllWork() {
+        lock.lock();
+        try {
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    ReentrantLock getLock() {
+        return lock;
+    }
+
+    /**
+     * 中断正在执行指定线程池任务的工作线程，需要持有锁
+     * @param executor
+     */
+    void interruptWorkers(VirtualElasticExecutor executor) {
+        for (Worker worker : workers) {
+            if (worker.current == executor) {
+                worker.thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * 取下一个任务，没有可执行的任务时等待，线程组关闭且所有任务执行完成后返回null
+     */
+    private Runnable next(Worker worker) {
+        lock.lock();
+        try {
+            for (;;) {
+                VirtualElasticExecutor selected = null;
+                for (VirtualElasticExecutor member : members) {
+                    if (member.running >= member.getMaximumPoolSize() || member.queue.isEmpty()) {
+                        continue;
+                    }
+                    if (member.pass < virtualTime) {
+                        member.pass = virtualTime;
+                    }
+                    if (selected == null || member.pass < selected.pass) {
+                        selected = member;
+                    }
+                }
+                if (selected != null) {
+                    Runnable task = selected.queue.poll();
+                    if (task == null) {
+                        continue;
+                    }
+                    virtualTime = selected.pass;
+                    selected.pass += STRIDE / selected.getWeight();
+                    selected.running++;
+                    if (selected.running > selected.largestRunning) {
+                        selected.largestRunning = selected.running;
+                    }
+                    worker.current = selected;
+                    return task;
+                }
+                if (shutdown) {
+                    return null;
+                }
+                workAvailable.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void finish(Worker worker) {
+        lock.lock();
+        try {
+            VirtualElasticExecutor executor = worker.current;
+            worker.current = null;
+            executor.running--;
+            // 清除shutdownNow留下的中断标记，避免影响其他线程池的任务
+            Thread.interrupted();
+            executor.tryTerminate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 关闭线程组，已排队的任务执行完成后工作线程退出
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isShutdown() {
+        lock.lock();
+        try {
+            return shutdown;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Worker worker : workers) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining > 0) {
+                TimeUnit.NANOSECONDS.timedJoin(worker.thread, remaining);
+            }
+            if (worker.thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private class Worker implements Runnable {
+
+        private Thread thread;
+
+        /**
+         * 当前执行的任务所属的线程池，只在持有锁时修改
+         */
+        private volatile VirtualElasticExecutor current;
+
+        @Override
+        public void run() {
+            Runnable task;
+            while ((task = next(this)) != null) {
+                try {
+                    current.runTask(task);
+                } finally {
+                    finish(this);
+                }
+            }
+        }
+    }
+
+}
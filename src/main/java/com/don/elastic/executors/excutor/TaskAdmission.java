@@ -0,0 +1,190 @@
+package com.don.elastic.executors.excutor;
+
+import com.don.elastic.executors.limit.RateLimitGate;
+import com.don.elastic.executors.limit.TenantBulkhead;
+import com.don.elastic.executors.task.ExecutorTask;
+import com.don.elastic.executors.task.TaskRejectedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 线程池的提交准入，三种线程池共用：先获取租户许可，再经过提交限速，通过后交给线程池入队。
+ * 超过限速或租户配额的任务直接拒绝，不交给拒绝策略：CallerRunsPolicy会绕过限速，DiscardOldestPolicy会丢弃无关的排队任务后再次进入限速
+ * @author Don Du
+ */
+final class TaskAdmission {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElasticExecutor.class);
+
+    private final String poolName;
+
+    private final Pool pool;
+
+    /**
+     * 提交限速
+     */
+    private final RateLimitGate rateLimitGate = new RateLimitGate();
+
+    /**
+     * 按租户的并发配额
+     */
+    private final TenantBulkhead tenantBulkhead = new TenantBulkhead();
+
+    /**
+     * 超过限速或租户配额的拒绝数，先计入线程池的拒绝数再计入这里
+     */
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * 延迟提交的任务到时间后从这里进入线程池，不再经过限速，也不在共享定时线程上执行拒绝策略
+     */
+    private final Executor directExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            pool.executeOrReject(command);
+        }
+    };
+
+    /**
+     * 通过准入后的入队操作，由线程池实现
+     */
+    interface Pool {
+
+        /**
+         * 入队，无法入队时交给拒绝策略
+         * @param command
+         */
+        void executeDirect(Runnable command);
+
+        /**
+         * 入队，无法入队时直接拒绝，不经过拒绝策略
+         * @param command
+         */
+        void executeOrReject(Runnable command);
+
+        /**
+         * 超过限速或租户配额的拒绝计入线程池的拒绝数
+         */
+        void countRejected();
+
+        /**
+         * 线程池配置的拒绝策略
+         * @return
+         */
+        RejectedExecutionHandler getPolicy();
+    }
+
+    TaskAdmission(String poolName, Pool pool) {
+        this.poolName = poolName;
+        this.pool = pool;
+    }
+
+    /**
+     * 获取租户许可后经过限速提交，没有被线程池接受的任务取消掉，释放租户许可
+     * @param futureTask
+     * @param task
+     * @param <V>
+     * @return
+     */
+    <V> Future<V> submit(RunnableFuture<V> futureTask, ExecutorTask<V> task) {
+        try {
+            acquireTenantPermit(futureTask);
+            execute(futureTask, task.getTaskContext() == null ? null : task.getTaskContext().getTaskName());
+        } catch (TaskRejectedException ex) {
+            task.changeState(ExecutorTask.TaskState.REJECTED);
+            if (ex.existRejectedExecutionException() || pool.getPolicy() instanceof ThreadPoolExecutor.DiscardPolicy) {
+                futureTask.cancel(false);
+            }
+            // 如果拒绝策略存在抛出的异常，抛出原始的拒绝异常
+            if (ex.existRejectedExecutionException()) {
+                throw ex.getRejectedExecutionException();
+            }
+        } catch (Throwable ex) {
+            task.changeState(ExecutorTask.TaskState.FAILURE);
+            futureTask.cancel(false);
+        } finally {
+            task.destroy();
+        }
+        return futureTask;
+    }
+
+    /**
+     * 先经过提交限速，令牌不足时延迟提交，超过最长延迟时直接拒绝
+     * @param command
+     * @param taskName
+     */
+    void execute(Runnable command, String taskName) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        long delayNanos = rateLimitGate.acquire(taskName);
+        if (delayNanos == 0) {
+            pool.executeDirect(command);
+        } else if (delayNanos > 0) {
+            RateLimitGate.schedule(command, delayNanos, directExecutor);
+        } else {
+            pool.countRejected();
+            rejectedCount.increment();
+            throw new TaskRejectedException(new RejectedExecutionException("Task " + command + " rejected from " + poolName + ", rate limit exceeded"));
+        }
+    }
+
+    private void acquireTenantPermit(RunnableFuture<?> futureTask) {
+        if (futureTask instanceof ElasticFutureTask && !tenantBulkhead.acquire((ElasticFutureTask<?>) futureTask)) {
+            pool.countRejected();
+            rejectedCount.increment();
+            throw new TaskRejectedException(new RejectedExecutionException("Task " + futureTask + " rejected from " + poolName + ", tenant quota exceeded"));
+        }
+    }
+
+    double getRateLimit() {
+        return rateLimitGate.getRateLimit();
+    }
+
+    void setRateLimit(double permitsPerSecond, int burst, long maxDelay, TimeUnit unit) {
+        double oldRateLimit = rateLimitGate.getRateLimit();
+        rateLimitGate.setRateLimit(permitsPerSecond, burst, maxDelay, unit);
+        if (oldRateLimit != rateLimitGate.getRateLimit() && LOGGER.isInfoEnabled()) {
+            LOGGER.info("线程池{}: 提交限速 rateLimit 已被修改生效，新值: {}, 旧值: {}", poolName, rateLimitGate.getRateLimit(), oldRateLimit);
+        }
+    }
+
+    void setTaskRateLimit(String taskName, double permitsPerSecond, int burst) {
+        rateLimitGate.setTaskRateLimit(taskName, permitsPerSecond, burst);
+    }
+
+    void setTenantBulkhead(String tenantParameter, int defaultQuota, long maxWait, TimeUnit unit) {
+        int oldQuota = tenantBulkhead.getDefaultQuota();
+        tenantBulkhead.setBulkhead(tenantParameter, defaultQuota, maxWait, unit);
+        if (oldQuota != defaultQuota && LOGGER.isInfoEnabled()) {
+            LOGGER.info("线程池{}: 租户默认配额 tenantQuota 已被修改生效，新值: {}, 旧值: {}", poolName, defaultQuota, oldQuota);
+        }
+    }
+
+    void setTenantQuota(String tenant, int quota) {
+        tenantBulkhead.setTenantQuota(tenant, quota);
+    }
+
+    long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    Map<String, Integer> getTenantActiveCounts() {
+        return tenantBulkhead.getActiveCounts();
+    }
+
+    Map<String, Long> getTenantRejectedCounts() {
+        return tenantBulkhead.getRejectedCounts();
+    }
+
+}
@@ -0,0 +1,588 @@
+package com.don.elastic.executors.excutor;
+
+import com.don.elastic.executors.queue.ResizableLinkedBlockingQueue;
+import com.don.elastic.executors.rejected.DiscardOldestPolicy;
+import com.don.elastic.executors.rejected.PrioritySheddingPolicy;
+import com.don.elastic.executors.rejected.RejectionPolicy;
+import com.don.elastic.executors.task.ExecutorTask;
+import com.don.elastic.executors.task.TaskRejectedException;
+import com.don.elastic.executors.util.Asserts;
+import com.don.elastic.executors.util.NetUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 虚拟线程池，没有自己的线程，任务由{@link SharedWorkerGroup}的共享工作线程执行。
+ * 保留自己的队列、拒绝策略和监控数据，maximumPoolSize是本线程池同时占用的工作线程数上限，
+ * weight是多个线程池都有排队任务时分到工作线程的比例
+ * @author Don Du
+ */
+public class VirtualElasticExecutor extends AbstractExecutorService implements ElasticExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElasticExecutor.class);
+
+    private final String poolName;
+
+    private final SharedWorkerGroup group;
+
+    final ResizableLinkedBlockingQueue<Runnable> queue;
+
+    private final RejectedExecutionHandler policy;
+
+    private final LongAdder completedCount = new LongAdder();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private final CountDownLatch termination = new CountDownLatch(1);
+
+    private volatile int corePoolSize;
+
+    private volatile int maximumPoolSize;
+
+    private volatile int workQueueCapacity;
+
+    private volatile int weight;
+
+    private volatile boolean shutdown;
+
+    private volatile long queueWaitNanos;
+
+    /**
+     * 提交准入：提交限速和按租户的并发配额
+     */
+    private final TaskAdmission admission;
+
+    /**
+     * 以下字段由共享工作线程组的锁保护
+     */
+    int running;
+
+    int largestRunning;
+
+    long pass;
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private String poolName = ElasticExecutor.DEFAULT_POOL_NAME;
+
+        private SharedWorkerGroup group;
+
+        private int corePoolSize = 1;
+
+        private int maximumPoolSize = Runtime.getRuntime().availableProcessors();
+
+        private int capacity = 200;
+
+        private int weight = 1;
+
+        private RejectedExecutionHandler rejectedExecutionHandler = new ThreadPoolExecutor.AbortPolicy();
+
+        private Builder() {}
+
+        public Builder poolName(String poolName) {
+            Asserts.notEmpty(poolName, "poolName is empty");
+            this.poolName = poolName;
+            return this;
+        }
+
+        public Builder group(SharedWorkerGroup group) {
+            Asserts.notNull(group, "group == null");
+            this.group = group;
+            return this;
+        }
+
+        public Builder corePoolSize(int corePoolSize) {
+            Asserts.isFalse(corePoolSize < 0, "corePoolSize <= 0");
+            this.corePoolSize = corePoolSize;
+            return this;
+        }
+
+        public Builder maximumPoolSize(int maximumPoolSize) {
+            Asserts.isFalse(maximumPoolSize <= 0 || maximumPoolSize < corePoolSize, "maximumPoolSize <= 0 || maximumPoolSize < corePoolSize");
+            this.maximumPoolSize = maximumPoolSize;
+            return this;
+        }
+
+        public Builder capacity(int capacity) {
+            Asserts.isFalse(capacity <= 0, "capacity <= 0");
+            this.capacity = capacity;
+            return this;
+        }
+
+        public Builder weight(int weight) {
+            Asserts.isFalse(weight <= 0, "weight <= 0");
+            this.weight = weight;
+            return this;
+        }
+
+        public Builder rejectedExecutionHandler(RejectedExecutionHandler rejectedExecutionHandler) {
+            Asserts.notNull(rejectedExecutionHandler, "rejectedExecutionHandler == null");
+            this.rejectedExecutionHandler = rejectedExecutionHandler;
+            return this;
+        }
+
+        public ElasticExecutor build() {
+            Asserts.notNull(group, "group == null");
+            return new VirtualElasticExecutor(this);
+        }
+    }
+
+    private VirtualElasticExecutor(Builder builder) {
+        this.poolName = builder.poolName;
+        this.group = builder.group;
+        this.queue = new ResizableLinkedBlockingQueue<>(builder.capacity);
+        this.policy = DiscardOldestPolicy.adapt(builder.rejectedExecutionHandler);
+        this.admission = new TaskAdmission(poolName, new TaskAdmission.Pool() {
+            @Override
+            public void executeDirect(Runnable command) {
+                VirtualElasticExecutor.this.executeDirect(command);
+            }
+
+            @Override
+            public void executeOrReject(Runnable command) {
+                VirtualElasticExecutor.this.executeOrReject(command);
+            }
+
+            @Override
+            public void countRejected() {
+                rejectedCount.increment();
+            }
+
+            @Override
+            public RejectedExecutionHandler getPolicy() {
+                return policy;
+            }
+        });
+        this.corePoolSize = builder.corePoolSize;
+        this.maximumPoolSize = builder.maximumPoolSize;
+        this.workQueueCapacity = builder.capacity;
+        this.weight = builder.weight;
+        group.register(this);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        admission.execute(command, null);
+    }
+
+    @Override
+    public void executeOrReject(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        executeDirect(command, false);
+    }
+
+    private void executeDirect(Runnable command) {
+        executeDirect(command, true);
+    }
+
+    /**
+     * @param command
+     * @param usePolicy 无法入队时是否交给拒绝策略，为false时直接拒绝
+     */
+    private void executeDirect(Runnable command, boolean usePolicy) {
+        if (shutdown || !queue.offer(command)) {
+            reject(command, usePolicy);
+            return;
+        }
+        // 入队后再检查一次，和shutdown并发时保证任务要么被拒绝要么会被执行
+        if (shutdown && queue.remove(command)) {
+            reject(command, usePolicy);
+            return;
+        }
+        group.signalWork();
+    }
+
+    /**
+     * 没有ThreadPoolExecutor可以传给拒绝策略，按jdk四种拒绝策略的语义处理，其他拒绝策略按AbortPolicy处理。
+     * 和jdk线程池一样，拒绝策略执行后抛出{@link TaskRejectedException}
+     */
+    private void reject(Runnable command, boolean usePolicy) {
+        rejectedCount.increment();
+        if (!usePolicy) {
+            throw new TaskRejectedException(new RejectedExecutionException("Task " + command + " rejected from " + poolName));
+        }
+        if (policy instanceof ThreadPoolExecutor.CallerRunsPolicy) {
+            if (!shutdown) {
+                command.run();
+            }
+        } else if (policy instanceof ThreadPoolExecutor.DiscardOldestPolicy) {
+            if (!shutdown) {
+                DiscardOldestPolicy.discarded(queue.poll());
+                if (queue.offer(command)) {
+                    group.signalWork();
+                }
+            }
+        } else if (!(policy instanceof ThreadPoolExecutor.DiscardPolicy)) {
+            throw new TaskRejectedException(new RejectedExecutionException("Task " + command + " rejected from " + poolName));
+        }
+        throw new TaskRejectedException();
+    }
+
+    /**
+     * 在共享工作线程中执行任务
+     * @param task
+     */
+    void runTask(Runnable task) {
+        if (task instanceof ElasticFutureTask) {
+            long waitNanos = System.nanoTime() - ((ElasticFutureTask<?>) task).getSubmitNanos();
+            // 权重1/8的指数移动平均，并发更新丢失个别样本可以接受
+            long average = queueWaitNanos;
+            queueWaitNanos = average + ((waitNanos - average) >> 3);
+        }
+        try {
+            task.run();
+        } catch (Throwable ex) {
+            // 工作线程是共享的，任务异常不能让线程退出
+            LOGGER.error("线程池{}任务执行异常", poolName, ex);
+        } finally {
+            completedCount.increment();
+        }
+    }
+
+    /**
+     * 关闭后队列为空且没有执行中的任务时终止，需要持有线程组的锁
+     */
+    void tryTerminate() {
+        if (shutdown && running == 0 && queue.isEmpty() && termination.getCount() > 0) {
+            termination.countDown();
+            group.deregister(this);
+        }
+    }
+
+    @Override
+    public <V> Future<V> submit(ExecutorTask<V> task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        return admission.submit(newTaskFor(task), task);
+    }
+
+    @Override
+    public <V> Future<V> submit(ElasticFutureTask<V> futureTask) {
+        if (futureTask == null || futureTask.getExecutorTask() == null) {
+            throw new NullPointerException();
+        }
+        return admission.submit(futureTask, futureTask.getExecutorTask());
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new ElasticFutureTask<>(callable);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new ElasticFutureTask<>(runnable, value);
+    }
+
+    /**
+     * 工作线程由共享线程组预先启动
+     * @return 0
+     */
+    @Override
+    public int prestartAllCoreThreads() {
+        return 0;
+    }
+
+    public SharedWorkerGroup getGroup() {
+        return group;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * 修改调度权重，下一次调度生效
+     * @param weight
+     */
+    public void setWeight(int weight) {
+        Asserts.isFalse(weight <= 0, "weight <= 0");
+        if (weight != this.weight && LOGGER.isInfoEnabled()) {
+            LOGGER.info("线程池{}: weight 已被修改生效，新值: {}, 旧值: {}", poolName, weight, this.weight);
+        }
+        this.weight = weight;
+    }
+
+    /**
+     * 虚拟线程池没有常驻线程，核心线程数只作为配置记录
+     * @param corePoolSize
+     */
+    @Override
+    public void setCorePoolSize(int corePoolSize) {
+        Asserts.isFalse(corePoolSize < 0 || corePoolSize > maximumPoolSize, "corePoolSize < 0 || corePoolSize > maximumPoolSize");
+        this.corePoolSize = corePoolSize;
+    }
+
+    @Override
+    public void setMaximumPoolSize(int maximumPoolSize) {
+        Asserts.isFalse(maximumPoolSize <= 0 || maximumPoolSize < corePoolSize, "maximumPoolSize <= 0 || maximumPoolSize < corePoolSize");
+        int oldMaximumPoolSize = this.maximumPoolSize;
+        this.maximumPoolSize = maximumPoolSize;
+        if (maximumPoolSize > oldMaximumPoolSize) {
+            group.signalAllWork();
+        }
+    }
+
+    /**
+     * 共享工作线程不会因为空闲退出
+     * @param time
+     * @param unit
+     */
+    @Override
+    public void setKeepAliveTime(long time, TimeUnit unit) {
+    }
+
+    @Override
+    public void setWorkQueueCapacity(int workQueueCapacity) {
+        if (workQueueCapacity == this.workQueueCapacity) {
+            return;
+        }
+        int oldWorkQueueCapacity = this.workQueueCapacity;
+        queue.setCapacity(workQueueCapacity);
+        this.workQueueCapacity = workQueueCapacity;
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("线程池{}: 工作队列容量 workQueueCapacity 已被修改生效，新值: {}, 旧值: {}", poolName, workQueueCapacity, oldWorkQueueCapacity);
+        }
+    }
+
+    @Override
+    public String getPoolName() {
+        return poolName;
+    }
+
+    @Override
+    public String getHost() {
+        return NetUtils.getLocalHost();
+    }
+
+    @Override
+    public int getActiveCount() {
+        ReentrantLock lock = group.getLock();
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getQueueWaitNanos() {
+        return queueWaitNanos;
+    }
+
+    @Override
+    public int getCorePoolSize() {
+        return corePoolSize;
+    }
+
+    @Override
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    /**
+     * 当前占用的共享工作线程数
+     * @return
+     */
+    @Override
+    public int getPoolSize() {
+        return getActiveCount();
+    }
+
+    @Override
+    public int getLargestPoolSize() {
+        ReentrantLock lock = group.getLock();
+        lock.lock();
+        try {
+            return largestRunning;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getCompletedTaskCount() {
+        return completedCount.sum();
+    }
+
+    @Override
+    public BlockingQueue<Runnable> getWorkQueue() {
+        return queue;
+    }
+
+    @Override
+    public String getWorkQueueType() {
+        return queue.getClass().getSimpleName();
+    }
+
+    @Override
+    public int getWorkQueueCapacity() {
+        return workQueueCapacity;
+    }
+
+    @Override
+    public int getWorkQueueSize() {
+        return queue.size();
+    }
+
+    @Override
+    public int getRemainingCapacity() {
+        return queue.remainingCapacity();
+    }
+
+    @Override
+    public RejectedExecutionHandler getRejectedExecutionHandler() {
+        return policy;
+    }
+
+    @Override
+    public String getRejectedExecutionHandlerType() {
+        return policy.getClass().getSimpleName();
+    }
+
+    @Override
+    public long getRejectedTaskCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public long getAdmissionRejectedCount() {
+        return admission.getRejectedCount();
+    }
+
+    @Override
+    public int getConcurrencyLimit() {
+        return -1;
+    }
+
+    @Override
+    public long getLimiterLatencyNanos() {
+        return 0;
+    }
+
+    @Override
+    public double getRateLimit() {
+        return admission.getRateLimit();
+    }
+
+    @Override
+    public Map<String, Long> getRejectionOutcomes() {
+        return policy instanceof RejectionPolicy ? ((RejectionPolicy) policy).getOutcomes() : Collections.<String, Long>emptyMap();
+    }
+
+    @Override
+    public Map<Integer, Long> getShedCounts() {
+        return policy instanceof PrioritySheddingPolicy ? ((PrioritySheddingPolicy) policy).getShedCounts() : Collections.<Integer, Long>emptyMap();
+    }
+
+    @Override
+    public void setRateLimit(double permitsPerSecond, int burst, long maxDelay, TimeUnit unit) {
+        admission.setRateLimit(permitsPerSecond, burst, maxDelay, unit);
+    }
+
+    @Override
+    public void setTaskRateLimit(String taskName, double permitsPerSecond, int burst) {
+        admission.setTaskRateLimit(taskName, permitsPerSecond, burst);
+    }
+
+    @Override
+    public void setTenantBulkhead(String tenantParameter, int defaultQuota, long maxWait, TimeUnit unit) {
+        admission.setTenantBulkhead(tenantParameter, defaultQuota, maxWait, unit);
+    }
+
+    @Override
+    public void setTenantQuota(String tenant, int quota) {
+        admission.setTenantQuota(tenant, quota);
+    }
+
+    @Override
+    public Map<String, Integer> getTenantActiveCounts() {
+        return admission.getTenantActiveCounts();
+    }
+
+    @Override
+    public Map<String, Long> getTenantRejectedCounts() {
+        return admission.getTenantRejectedCounts();
+    }
+
+    @Override
+    public void shutdown() {
+        ReentrantLock lock = group.getLock();
+        lock.lock();
+        try {
+            shutdown = true;
+            tryTerminate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> dropped = new ArrayList<>();
+        ReentrantLock lock = group.getLock();
+        lock.lock();
+        try {
+            shutdown = true;
+            queue.drainTo(dropped);
+            group.interruptWorkers(this);
+            tryTerminate();
+        } finally {
+            lock.unlock();
+        }
+        return dropped;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return termination.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return termination.await(timeout, unit);
+    }
+
+    @Override
+    public void shutdown(long timeout, TimeUnit timeUnit) {
+        shutdown();
+        try {
+            if (!awaitTermination(timeout, timeUnit) && LOGGER.isWarnEnabled()) {
+                LOGGER.warn("在{}{}内，线程池{}没有成功关闭", timeout, timeUnit.toString(), poolName);
+            }
+        } catch (InterruptedException e) {
+            LOGGER.error("线程池{}关闭过程中发生中断异常", poolName);
+        }
+    }
+
+}
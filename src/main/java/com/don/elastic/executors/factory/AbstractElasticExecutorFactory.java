@@ -1,11 +1,22 @@
 package com.don.elastic.executors.factory;
 
+import com.don.elastic.executors.config.ExecutorsProperty;
+import com.don.elastic.executors.config.RoutingMode;
 import com.don.elastic.executors.excutor.ElasticExecutor;
+import com.don.elastic.executors.metrics.FallbackMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 抽象将真正的线程池创建逻辑交给子类，懒启动
@@ -13,8 +24,46 @@ import java.util.concurrent.TimeUnit;
  */
 public abstract class AbstractElasticExecutorFactory implements ElasticExecutorFactory {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractElasticExecutorFactory.class);
+
+    /**
+     * 强制关闭阶段最多预留的时间
+     */
+    private static final long MAX_INTERRUPT_GRACE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * 最多缓存的超出数量上限的poolKey
+     */
+    private static final int MAX_OVERFLOW_KEYS = 1024;
+
     private final ConcurrentMap<String, ElasticExecutor> cachedExecutors = new ConcurrentHashMap<>();
 
+    /**
+     * 因线程池数量达到上限而使用兜底线程池的poolKey，再次获取时不用进入锁，也不重复打印告警；
+     * 线程池集合或配置变化时清空，重新判断
+     */
+    private final ConcurrentMap<String, Boolean> overflowKeys = new ConcurrentHashMap<>();
+
+    /**
+     * 已下线但可能还在排空的线程池，关闭时一起纳入截止时间和关闭报告，由自身的锁保护
+     */
+    private final List<ElasticExecutor> retiredExecutors = new ArrayList<>();
+
+    /**
+     * 是否已经关闭，关闭后不再创建线程池
+     */
+    private volatile boolean shutdown;
+
+    /**
+     * 线程池代数
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * 兜底路由统计
+     */
+    private final FallbackMetrics fallbackMetrics = new FallbackMetrics(ExecutorsProperty.getFallbackTopK());
+
     /**
      * 获取指定名称的线程池，如果获取不到返回内置默认线程池
      * @param poolKey
@@ -23,26 +72,209 @@ public abstract class AbstractElasticExecutorFactory implements ElasticExecutorF
     @Override
     public ElasticExecutor getExecutor(String poolKey) {
         ElasticExecutor executor = cachedExecutors.get(poolKey);
-        if (executor == null) {
-            synchronized (this) {
-                executor = cachedExecutors.get(poolKey);
-                if (executor == null) {
-                    executor = createExecutor(poolKey);
-                    cachedExecutors.putIfAbsent(poolKey, executor);
-                }
+        if (executor != null) {
+            return executor;
+        }
+        String fallbackPool = ExecutorsProperty.getFallbackPool();
+        boolean fallback = !poolKey.equals(fallbackPool);
+        if (fallback && (overflowKeys.containsKey(poolKey)
+                || ExecutorsProperty.getRoutingMode() == RoutingMode.FALLBACK && !isConfigured(poolKey))) {
+            fallbackMetrics.record(poolKey);
+            return getExecutor(fallbackPool);
+        }
+        synchronized (this) {
+            executor = cachedExecutors.get(poolKey);
+            if (executor != null) {
+                return executor;
+            }
+            if (shutdown) {
+                throw new RejectedExecutionException("线程池工厂已关闭，不再创建线程池" + poolKey);
+            }
+            // 数量上限在锁内检查，并发创建不会超过上限；配置中的线程池不受上限限制
+            if (!fallback || isConfigured(poolKey) || !exceedsMaxPools(poolKey)) {
+                executor = createExecutor(poolKey);
+                cachedExecutors.put(poolKey, executor);
+                return executor;
+            }
+        }
+        fallbackMetrics.record(poolKey);
+        return getExecutor(fallbackPool);
+    }
+
+    /**
+     * 线程池数量是否已经达到上限，需要持有自身的锁。超出上限的poolKey记入缓存，每个poolKey只告警一次
+     * @param poolKey
+     * @return
+     */
+    private boolean exceedsMaxPools(String poolKey) {
+        int maxPools = ExecutorsProperty.getMaxPools();
+        if (maxPools > 0 && cachedExecutors.size() >= maxPools) {
+            if (overflowKeys.size() < MAX_OVERFLOW_KEYS && overflowKeys.putIfAbsent(poolKey, Boolean.TRUE) == null && LOGGER.isWarnEnabled()) {
+                LOGGER.warn("线程池数量已达到上限{}, 线程池{}将使用兜底线程池{}", maxPools, poolKey, ExecutorsProperty.getFallbackPool());
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 已创建的线程池，只读视图
+     * @return
+     */
+    protected Map<String, ElasticExecutor> getCachedExecutors() {
+        return Collections.unmodifiableMap(cachedExecutors);
+    }
+
+    /**
+     * 从缓存中移除线程池并平滑关闭，已经排队的任务继续执行完成
+     * @param poolKey
+     * @return 是否移除了线程池
+     */
+    protected boolean retireExecutor(String poolKey) {
+        ElasticExecutor executor;
+        synchronized (this) {
+            executor = cachedExecutors.remove(poolKey);
+            if (executor == null) {
+                return false;
             }
+            pruneRetiredExecutors();
+            retiredExecutors.add(executor);
+        }
+        nextGeneration();
+        executor.shutdown();
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("线程池{}已下线，剩余排队任务: {}", poolKey, executor.getWorkQueueSize());
         }
-        return executor;
+        return true;
     }
 
+    /**
+     * 移除已经终止的下线线程池，需要持有自身的锁
+     */
+    private void pruneRetiredExecutors() {
+        Iterator<ElasticExecutor> iterator = retiredExecutors.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isTerminated()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 线程池工厂是否已经关闭
+     * @return
+     */
+    protected boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * 线程池集合或配置发生变化，让缓存了线程池引用的调用方重新获取
+     */
+    protected void nextGeneration() {
+        overflowKeys.clear();
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public FallbackMetrics getFallbackMetrics() {
+        return fallbackMetrics;
+    }
+
+    /**
+     * 所有线程池同时开始排空，共享同一个截止时间；截止时间前预留一小段时间，
+     * 对仍未终止的线程池执行shutdownNow中断执行中的任务。已下线但还在排空的线程池同样纳入截止时间和关闭报告，
+     * 关闭后不再创建新的线程池
+     * @param timeout
+     * @param timeUnit
+     * @return
+     */
     @Override
-    public synchronized void shutdown(long timeout, TimeUnit timeUnit) {
-        for (Map.Entry<String, ElasticExecutor> entry : cachedExecutors.entrySet()) {
-            ElasticExecutor executor = entry.getValue();
-            executor.shutdown(timeout, timeUnit);
+    public synchronized ShutdownReport shutdown(long timeout, TimeUnit timeUnit) {
+        long begin = System.nanoTime();
+        long timeoutNanos = timeUnit.toNanos(timeout);
+        long deadline = begin + timeoutNanos;
+        long drainDeadline = deadline - Math.min(timeoutNanos / 10, MAX_INTERRUPT_GRACE_NANOS);
+
+        shutdown = true;
+        pruneRetiredExecutors();
+        List<ElasticExecutor> executors = new ArrayList<>(cachedExecutors.values());
+        executors.addAll(retiredExecutors);
+        nextGeneration();
+        int size = executors.size();
+        long[] completedBefore = new long[size];
+        long[] pending = new long[size];
+        long[] abandoned = new long[size];
+        for (int i = 0; i < size; i++) {
+            ElasticExecutor executor = executors.get(i);
+            completedBefore[i] = executor.getCompletedTaskCount();
+            pending[i] = executor.getActiveCount() + executor.getWorkQueueSize();
+            executor.shutdown();
+        }
+
+        boolean interrupted = false;
+        for (int i = 0; i < size && !interrupted; i++) {
+            interrupted = !awaitTermination(executors.get(i), drainDeadline);
+        }
+
+        for (int i = 0; i < size; i++) {
+            ElasticExecutor executor = executors.get(i);
+            if (!executor.isTerminated()) {
+                int running = executor.getActiveCount();
+                List<Runnable> dropped = executor.shutdownNow();
+                abandoned[i] = dropped.size() + running;
+                if (LOGGER.isWarnEnabled()) {
+                    LOGGER.warn("线程池{}未能在截止时间前排空，强制关闭，丢弃排队任务: {}, 中断执行中任务: {}", executor.getPoolName(), dropped.size(), running);
+                }
+            }
+        }
+
+        for (int i = 0; i < size && !interrupted; i++) {
+            interrupted = !awaitTermination(executors.get(i), deadline);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        ShutdownReport report = new ShutdownReport();
+        for (int i = 0; i < size; i++) {
+            ElasticExecutor executor = executors.get(i);
+            long drained = executor.getCompletedTaskCount() - completedBefore[i];
+            report.addPoolReport(new ShutdownReport.PoolReport(executor.getPoolName(), pending[i], drained, abandoned[i], executor.isTerminated()));
+        }
+        report.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("线程池关闭完成: {}", report);
+        }
+        return report;
+    }
+
+    /**
+     * 等待线程池终止直到截止时间
+     * @return 被中断时返回false
+     */
+    private boolean awaitTermination(ElasticExecutor executor, long deadline) {
+        try {
+            executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException ex) {
+            LOGGER.error("线程池{}关闭过程中发生中断异常", executor.getPoolName());
+            return false;
         }
     }
 
+    /**
+     * poolKey是否存在对应的线程池配置
+     * @param poolKey
+     * @return
+     */
+    protected abstract boolean isConfigured(String poolKey);
+
     /**
      * 创建线程池
      * @param poolName
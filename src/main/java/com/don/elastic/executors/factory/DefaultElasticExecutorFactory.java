@@ -1,37 +1,323 @@
 package com.don.elastic.executors.factory;
 
-import com.don.elastic.executors.config.ExecutorProperty;
+import com.don.elastic.executors.config.ConfigChangeListener;
+import com.don.elastic.executors.config.ExecutorConfig;
+import com.don.elastic.executors.config.ExecutorsConfig;
 import com.don.elastic.executors.config.ExecutorsProperty;
 import com.don.elastic.executors.excutor.DefaultElasticThreadPoolExecutor;
 import com.don.elastic.executors.excutor.ElasticExecutor;
+import com.don.elastic.executors.excutor.ShardedElasticExecutor;
+import com.don.elastic.executors.excutor.SharedWorkerGroup;
+import com.don.elastic.executors.excutor.VirtualElasticExecutor;
+import com.don.elastic.executors.selector.ExecutorFactoryAware;
+import com.don.elastic.executors.tuning.PoolAutoscaler;
+import com.don.elastic.executors.tuning.ThreadBudget;
+import com.don.elastic.executors.tuning.TuningStateStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
 /**
  * jdk线程池工厂
  * @author Don Du
  */
-public class DefaultElasticExecutorFactory extends AbstractElasticExecutorFactory {
+public class DefaultElasticExecutorFactory extends AbstractElasticExecutorFactory implements ConfigChangeListener {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultElasticExecutorFactory.class);
 
+    /**
+     * 调优状态存储，没有配置状态文件时为null
+     */
+    private final TuningStateStore stateStore;
+
+    /**
+     * 线程池自动伸缩，没有开启时为null
+     */
+    private final PoolAutoscaler autoscaler;
+
+    /**
+     * 全局线程预算，没有配置时为null
+     */
+    private final ThreadBudget threadBudget;
+
+    /**
+     * 虚拟线程池共用的工作线程组，没有配置sharedWorkers时为null
+     */
+    private final SharedWorkerGroup sharedWorkerGroup;
+
+    public DefaultElasticExecutorFactory() {
+        this(TuningStateStore.create());
+    }
+
+    public DefaultElasticExecutorFactory(TuningStateStore stateStore) {
+        this.stateStore = stateStore;
+        int sharedWorkers = ExecutorsProperty.getSharedWorkers();
+        this.sharedWorkerGroup = sharedWorkers > 0 ? new SharedWorkerGroup("elastic-shared-worker", sharedWorkers) : null;
+        Supplier<Collection<ElasticExecutor>> executors = new Supplier<Collection<ElasticExecutor>>() {
+            @Override
+            public Collection<ElasticExecutor> get() {
+                return getCachedExecutors().values();
+            }
+        };
+        if (stateStore != null) {
+            stateStore.start(executors, ExecutorsProperty.getTuningSnapshotInterval(), TimeUnit.MILLISECONDS);
+        }
+        int budget = ExecutorsProperty.getBudgetMaxThreads();
+        if (budget > 0) {
+            threadBudget = new ThreadBudget(budget);
+            threadBudget.start(executors, ExecutorsProperty.getBudgetInterval(), TimeUnit.MILLISECONDS);
+        } else {
+            threadBudget = null;
+        }
+        if (ExecutorsProperty.isAutoscaleEnable() && threadBudget != null) {
+            // 两者都会调整最大线程数，配置了线程预算时由线程预算统一分配
+            LOGGER.warn("已配置全局线程预算，不启动线程池自动伸缩");
+            autoscaler = null;
+        } else if (ExecutorsProperty.isAutoscaleEnable()) {
+            autoscaler = new PoolAutoscaler();
+            autoscaler.start(executors);
+        } else {
+            autoscaler = null;
+        }
+    }
+
+    @Override
+    protected boolean isConfigured(String poolKey) {
+        return ExecutorsProperty.snapshot().containsPool(poolKey);
+    }
+
     @Override
     protected ElasticExecutor createExecutor(String poolKey) {
-        ExecutorProperty property = ExecutorsProperty.getExecutorProperty(poolKey);
-        if (property != null) {
-            return DefaultElasticThreadPoolExecutor.newBuilder()
-                    .poolName(property.getPoolName())
-                    .corePoolSize(property.getCorePoolSize())
-                    .maximumPoolSize(property.getMaximumPoolSize())
-                    .keepAliveTime(property.getKeepAliveTime())
-                    .workQueue(property.getWorkQueue())
-                    .rejectedExecutionHandler(property.getRejectedHandler())
-                    .threadFactory(property.getThreadFactory())
-                    .build();
+        ExecutorConfig config = ExecutorsProperty.snapshot().getExecutorConfig(poolKey);
+        if (config != null) {
+            if (stateStore != null) {
+                config = stateStore.restore(config);
+            }
+            ElasticExecutor executor = newExecutor(config);
+            applyRateLimit(executor, null, config);
+            applyTenantBulkhead(executor, null, config);
+            return executor;
         }
         if (LOGGER.isInfoEnabled()) {
             LOGGER.info("没有找到线程池{}, 将使用默认线程池进行任务处理", poolKey);
         }
         return DefaultElasticThreadPoolExecutor.form(poolKey);
     }
+
+    /**
+     * 按配置创建分片线程池、共享工作线程的虚拟线程池或普通线程池
+     */
+    private ElasticExecutor newExecutor(ExecutorConfig config) {
+        String poolKey = config.getPoolName();
+        RejectedExecutionHandler rejectedHandler = config.newRejectedHandler();
+        if (rejectedHandler instanceof ExecutorFactoryAware) {
+            ((ExecutorFactoryAware) rejectedHandler).setExecutorFactory(this);
+        }
+        if (config.getShards() > 1) {
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.info("线程池{}使用{}个分片，工作队列使用WorkStealingQueue", poolKey, config.getShards());
+            }
+            if ((config.newConcurrencyLimit() != null || config.isEagerGrowth()) && LOGGER.isWarnEnabled()) {
+                LOGGER.warn("线程池{}: 分片模式不支持limiter和eagerGrowth，每个分片使用自己的线程工厂", poolKey);
+            }
+            return ShardedElasticExecutor.newBuilder()
+                    .poolName(config.getPoolName())
+                    .shards(config.getShards())
+                    .corePoolSize(config.getCorePoolSize())
+                    .maximumPoolSize(config.getMaximumPoolSize())
+                    .keepAliveTime(config.getKeepAliveTime())
+                    .capacity(config.getQueueCapacity())
+                    .rejectedExecutionHandler(rejectedHandler)
+                    .build();
+        }
+        if (sharedWorkerGroup != null) {
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.info("线程池{}使用共享工作线程, 并发上限: {}, 权重: {}", poolKey, config.getMaximumPoolSize(), config.getWeight());
+            }
+            if ((config.newConcurrencyLimit() != null || config.isEagerGrowth()) && LOGGER.isWarnEnabled()) {
+                LOGGER.warn("线程池{}: 共享工作线程模式不支持limiter和eagerGrowth", poolKey);
+            }
+            if (!isJdkPolicy(rejectedHandler) && LOGGER.isWarnEnabled()) {
+                LOGGER.warn("线程池{}: 共享工作线程模式只支持jdk的四种拒绝策略, {}按AbortPolicy处理", poolKey, rejectedHandler.getClass().getSimpleName());
+            }
+            return VirtualElasticExecutor.newBuilder()
+                    .poolName(config.getPoolName())
+                    .group(sharedWorkerGroup)
+                    .corePoolSize(config.getCorePoolSize())
+                    .maximumPoolSize(config.getMaximumPoolSize())
+                    .capacity(config.getQueueCapacity())
+                    .weight(config.getWeight())
+                    .rejectedExecutionHandler(rejectedHandler)
+                    .build();
+        }
+        return DefaultElasticThreadPoolExecutor.newBuilder()
+                .poolName(config.getPoolName())
+                .corePoolSize(config.getCorePoolSize())
+                .maximumPoolSize(config.getMaximumPoolSize())
+                .keepAliveTime(config.getKeepAliveTime())
+                .workQueue(config.newWorkQueue())
+                .rejectedExecutionHandler(rejectedHandler)
+                .threadFactory(config.newThreadFactory())
+                .concurrencyLimit(config.newConcurrencyLimit())
+                .build();
+    }
+
+    /**
+     * 共享工作线程模式没有ThreadPoolExecutor可以传给拒绝策略，只能按jdk四种拒绝策略的语义处理
+     */
+    private static boolean isJdkPolicy(RejectedExecutionHandler handler) {
+        return handler instanceof ThreadPoolExecutor.AbortPolicy
+                || handler instanceof ThreadPoolExecutor.CallerRunsPolicy
+                || handler instanceof ThreadPoolExecutor.DiscardOldestPolicy
+                || handler instanceof ThreadPoolExecutor.DiscardPolicy;
+    }
+
+    /**
+     * 关闭前停止自动伸缩、线程预算并保存最后一次调优状态，所有线程池关闭后关闭共享工作线程组
+     * @param timeout
+     * @param timeUnit
+     * @return
+     */
+    @Override
+    public ShutdownReport shutdown(long timeout, TimeUnit timeUnit) {
+        if (autoscaler != null) {
+            autoscaler.stop();
+        }
+        if (threadBudget != null) {
+            threadBudget.stop();
+        }
+        if (stateStore != null) {
+            stateStore.close();
+        }
+        ShutdownReport report = super.shutdown(timeout, timeUnit);
+        if (sharedWorkerGroup != null) {
+            sharedWorkerGroup.shutdown();
+        }
+        return report;
+    }
+
+    /**
+     * 把新的配置快照应用到运行中的线程池：调整已有线程池参数，下线被删除的线程池，创建新增的线程池
+     * @param oldConfig
+     * @param newConfig
+     */
+    @Override
+    public void onChange(ExecutorsConfig oldConfig, ExecutorsConfig newConfig) {
+        if (isShutdown()) {
+            return;
+        }
+        String fallbackPool = newConfig.getFallbackPool();
+        for (Map.Entry<String, ElasticExecutor> entry : new ArrayList<>(getCachedExecutors().entrySet())) {
+            String poolKey = entry.getKey();
+            ExecutorConfig config = newConfig.getExecutorConfig(poolKey);
+            if (config != null) {
+                reconfigure(entry.getValue(), oldConfig.getExecutorConfig(poolKey), config);
+            } else if (oldConfig.containsPool(poolKey) && !poolKey.equals(fallbackPool)) {
+                // 只下线配置中删除的线程池，按需创建的线程池不受影响
+                retireExecutor(poolKey);
+            }
+        }
+        for (ExecutorConfig config : newConfig.getExecutorConfigList()) {
+            if (!oldConfig.containsPool(config.getPoolName())) {
+                getExecutor(config.getPoolName());
+            }
+        }
+        nextGeneration();
+    }
+
+    /**
+     * 调整线程数时保证任意时刻corePoolSize不大于maximumPoolSize：扩容先调最大线程数，缩容先调核心线程数。
+     * 配置了全局线程预算时线程数由线程预算分配，这里不再按静态配置重置
+     * @param executor
+     * @param oldConfig 按需创建的线程池为null
+     * @param config
+     */
+    private void reconfigure(ElasticExecutor executor, ExecutorConfig oldConfig, ExecutorConfig config) {
+        int corePoolSize = config.getCorePoolSize();
+        int maximumPoolSize = config.getMaximumPoolSize();
+        if (threadBudget != null) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("线程池{}: 线程数由全局线程预算分配，忽略corePoolSize: {}, maximumPoolSize: {}", config.getPoolName(), corePoolSize, maximumPoolSize);
+            }
+        } else if (corePoolSize > maximumPoolSize) {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("线程池{}: 新的corePoolSize: {}大于maximumPoolSize: {}, 忽略线程数调整", config.getPoolName(), corePoolSize, maximumPoolSize);
+            }
+        } else if (maximumPoolSize >= executor.getMaximumPoolSize()) {
+            if (maximumPoolSize != executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(maximumPoolSize);
+            }
+            if (corePoolSize != executor.getCorePoolSize()) {
+                executor.setCorePoolSize(corePoolSize);
+            }
+        } else {
+            if (corePoolSize != executor.getCorePoolSize()) {
+                executor.setCorePoolSize(corePoolSize);
+            }
+            executor.setMaximumPoolSize(maximumPoolSize);
+        }
+        executor.setKeepAliveTime(config.getKeepAliveTime(), TimeUnit.MILLISECONDS);
+        if (executor instanceof VirtualElasticExecutor) {
+            ((VirtualElasticExecutor) executor).setWeight(config.getWeight());
+        }
+        applyRateLimit(executor, oldConfig, config);
+        applyTenantBulkhead(executor, oldConfig, config);
+        if (config.getQueueCapacity() != executor.getWorkQueueCapacity()) {
+            executor.setWorkQueueCapacity(config.getQueueCapacity());
+        }
+        if (oldConfig != null && (!config.getWorkQueueType().equals(oldConfig.getWorkQueueType())
+                || !config.getRejectedHandlerType().equals(oldConfig.getRejectedHandlerType()))) {
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("线程池{}: 工作队列和拒绝策略类型不支持热更新，重启后生效", config.getPoolName());
+            }
+        }
+    }
+
+    /**
+     * 应用线程池和任务名称的提交限速，旧配置中有而新配置中删除的任务限速被取消
+     * @param executor
+     * @param oldConfig 新创建的线程池为null
+     * @param config
+     */
+    private void applyRateLimit(ElasticExecutor executor, ExecutorConfig oldConfig, ExecutorConfig config) {
+        executor.setRateLimit(config.getRateLimit(), config.getRateBurst(), config.getRateLimitMaxDelay(), TimeUnit.MILLISECONDS);
+        for (Map.Entry<String, ExecutorConfig.TaskRateLimit> entry : config.getTaskRateLimits().entrySet()) {
+            executor.setTaskRateLimit(entry.getKey(), entry.getValue().getPermitsPerSecond(), entry.getValue().getBurst());
+        }
+        if (oldConfig != null) {
+            for (String taskName : oldConfig.getTaskRateLimits().keySet()) {
+                if (!config.getTaskRateLimits().containsKey(taskName)) {
+                    executor.setTaskRateLimit(taskName, 0, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * 应用租户配额，旧配置中有而新配置中删除的租户配额被取消
+     * @param executor
+     * @param oldConfig 新创建的线程池为null
+     * @param config
+     */
+    private void applyTenantBulkhead(ElasticExecutor executor, ExecutorConfig oldConfig, ExecutorConfig config) {
+        executor.setTenantBulkhead(config.getTenantParameter(), config.getTenantQuota(), config.getTenantQuotaMaxWait(), TimeUnit.MILLISECONDS);
+        for (Map.Entry<String, Integer> entry : config.getTenantQuotas().entrySet()) {
+            executor.setTenantQuota(entry.getKey(), entry.getValue());
+        }
+        if (oldConfig != null) {
+            for (String tenant : oldConfig.getTenantQuotas().keySet()) {
+                if (!config.getTenantQuotas().containsKey(tenant)) {
+                    executor.setTenantQuota(tenant, 0);
+                }
+            }
+        }
+    }
+
 }
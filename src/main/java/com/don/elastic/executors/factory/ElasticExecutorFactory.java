@@ -1,6 +1,7 @@
 package com.don.elastic.executors.factory;
 
 import com.don.elastic.executors.excutor.ElasticExecutor;
+import com.don.elastic.executors.metrics.FallbackMetrics;
 
 import java.util.concurrent.TimeUnit;
 
@@ -18,10 +19,24 @@ public interface ElasticExecutorFactory {
     ElasticExecutor getExecutor(String poolName);
 
     /**
-     * 关闭所有线程池
+     * 线程池代数，配置重新加载、线程池被移除或关闭时递增，
+     * 缓存了线程池引用的调用方据此判断是否需要重新获取
+     * @return
+     */
+    long getGeneration();
+
+    /**
+     * 兜底线程池路由统计
+     * @return
+     */
+    FallbackMetrics getFallbackMetrics();
+
+    /**
+     * 并行关闭所有线程池，所有线程池共享同一个截止时间，超时后强制关闭
      * @param timeout
      * @param timeUnit
+     * @return 每个线程池排空和放弃的任务数
      */
-    void shutdown(long timeout, TimeUnit timeUnit);
+    ShutdownReport shutdown(long timeout, TimeUnit timeUnit);
 
 }
@@ -0,0 +1,126 @@
+package com.don.elastic.executors.factory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 线程池关闭报告，记录每个线程池排空和放弃的任务数
+ * @author Don Du
+ */
+public class ShutdownReport {
+
+    private final List<PoolReport> poolReports = new ArrayList<>();
+
+    private long elapsedMillis;
+
+    void addPoolReport(PoolReport poolReport) {
+        poolReports.add(poolReport);
+    }
+
+    void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public List<PoolReport> getPoolReports() {
+        return Collections.unmodifiableList(poolReports);
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * 是否所有线程池都已在截止时间内终止
+     * @return
+     */
+    public boolean isAllTerminated() {
+        for (PoolReport poolReport : poolReports) {
+            if (!poolReport.isTerminated()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getDrainedTaskCount() {
+        long count = 0;
+        for (PoolReport poolReport : poolReports) {
+            count += poolReport.getDrainedTaskCount();
+        }
+        return count;
+    }
+
+    public long getAbandonedTaskCount() {
+        long count = 0;
+        for (PoolReport poolReport : poolReports) {
+            count += poolReport.getAbandonedTaskCount();
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "ShutdownReport[elapsedMillis=" + elapsedMillis + ", allTerminated=" + isAllTerminated() + ", pools=" + poolReports + "]";
+    }
+
+    /**
+     * 单个线程池的关闭结果
+     */
+    public static class PoolReport {
+
+        private final String poolName;
+
+        /**
+         * 开始关闭时正在执行和排队的任务数
+         */
+        private final long pendingTaskCount;
+
+        /**
+         * 关闭过程中执行完成的任务数
+         */
+        private final long drainedTaskCount;
+
+        /**
+         * 强制关闭时被丢弃的排队任务数与被中断的执行中任务数之和
+         */
+        private final long abandonedTaskCount;
+
+        private final boolean terminated;
+
+        PoolReport(String poolName, long pendingTaskCount, long drainedTaskCount, long abandonedTaskCount, boolean terminated) {
+            this.poolName = poolName;
+            this.pendingTaskCount = pendingTaskCount;
+            this.drainedTaskCount = drainedTaskCount;
+            this.abandonedTaskCount = abandonedTaskCount;
+            this.terminated = terminated;
+        }
+
+        public String getPoolName() {
+            return poolName;
+        }
+
+        public long getPendingTaskCount() {
+            return pendingTaskCount;
+        }
+
+        public long getDrainedTaskCount() {
+            return drainedTaskCount;
+        }
+
+        public long getAbandonedTaskCount() {
+            return abandonedTaskCount;
+        }
+
+        public boolean isTerminated() {
+            return terminated;
+        }
+
+        @Override
+        public String toString() {
+            return poolName + "[pending=" + pendingTaskCount + ", drained=" + drainedTaskCount
+                    + ", abandoned=" + abandonedTaskCount + ", terminated=" + terminated + "]";
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.don.elastic.executors.limit;
+
+import com.don.elastic.executors.util.Asserts;
+
+/**
+ * 加性增乘性减(AIMD)：延迟超过阈值时按比例缩小限制，否则在接近限制时逐个增加。
+ * 一次收缩之前提交的任务反映的是收缩前的负载，它们的超时样本不再触发收缩，每个延迟窗口最多收缩一次
+ * @author Don Du
+ */
+public class AimdLimit implements ConcurrencyLimit {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long thresholdNanos;
+
+    private volatile int limit;
+
+    private volatile long latencyNanos;
+
+    /**
+     * 最近一次收缩的时间，只在持有自身的锁时访问
+     */
+    private long backoffNanos;
+
+    private boolean backedOff;
+
+    public AimdLimit(int initialLimit, int minLimit, int maxLimit, long thresholdNanos) {
+        Asserts.isFalse(minLimit <= 0 || maxLimit < minLimit, "minLimit <= 0 || maxLimit < minLimit");
+        Asserts.isFalse(thresholdNanos <= 0, "thresholdNanos <= 0");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.thresholdNanos = thresholdNanos;
+        this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public void onSample(long latencyNanos, int inFlight) {
+        onSample(System.nanoTime(), latencyNanos, inFlight);
+    }
+
+    synchronized void onSample(long now, long latencyNanos, int inFlight) {
+        long average = this.latencyNanos;
+        this.latencyNanos = average == 0 ? latencyNanos : average + ((latencyNanos - average) >> 3);
+        int current = limit;
+        if (latencyNanos > thresholdNanos) {
+            // 任务在上次收缩之前提交，不再重复收缩
+            if (!backedOff || now - latencyNanos - backoffNanos > 0) {
+                limit = Math.max(minLimit, (int) (current * BACKOFF_RATIO));
+                backoffNanos = now;
+                backedOff = true;
+            }
+        } else if (inFlight * 2 >= current) {
+            // 在途任务不到限制的一半时说明负载不足，不增加限制
+            limit = Math.min(maxLimit, current + 1);
+        }
+    }
+
+    @Override
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "AimdLimit[limit=" + limit + ", latencyNanos=" + latencyNanos + ", thresholdNanos=" + thresholdNanos + "]";
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.don.elastic.executors.limit;
+
+/**
+ * 自适应并发限制，根据任务延迟持续调整线程池允许的在途任务数(执行中+排队中)
+ * @author Don Du
+ */
+public interface ConcurrencyLimit {
+
+    /**
+     * 当前允许的在途任务数
+     * @return
+     */
+    int getLimit();
+
+    /**
+     * 任务完成后反馈一次延迟样本
+     * @param latencyNanos 从提交到执行完成的时间
+     * @param inFlight 采样时的在途任务数
+     */
+    void onSample(long latencyNanos, int inFlight);
+
+    /**
+     * 限制算法当前参考的延迟
+     * @return
+     */
+    long getLatencyNanos();
+
+}
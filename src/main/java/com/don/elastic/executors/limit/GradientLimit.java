@@ -0,0 +1,89 @@
+package com.don.elastic.executors.limit;
+
+import com.don.elastic.executors.util.Asserts;
+
+/**
+ * 梯度限制：比较长期平均延迟和短期平均延迟，短期延迟升高说明开始排队，按比例收缩限制；
+ * 延迟稳定时额外允许sqrt(limit)个排队任务，让限制可以缓慢增长去探测容量
+ * @author Don Du
+ */
+public class GradientLimit implements ConcurrencyLimit {
+
+    /**
+     * 短期延迟的平滑窗口
+     */
+    private static final int SHORT_WINDOW = 10;
+
+    /**
+     * 长期延迟的平滑窗口
+     */
+    private static final int LONG_WINDOW = 600;
+
+    /**
+     * 短期延迟在长期延迟的这个倍数之内不收缩
+     */
+    private static final double TOLERANCE = 1.5;
+
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private volatile double limit;
+
+    private double shortNanos;
+
+    private double longNanos;
+
+    private volatile long latencyNanos;
+
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit) {
+        Asserts.isFalse(minLimit <= 0 || maxLimit < minLimit, "minLimit <= 0 || maxLimit < minLimit");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+    }
+
+    @Override
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    @Override
+    public synchronized void onSample(long latencyNanos, int inFlight) {
+        if (longNanos == 0) {
+            shortNanos = latencyNanos;
+            longNanos = latencyNanos;
+        } else {
+            shortNanos += (latencyNanos - shortNanos) / SHORT_WINDOW;
+            longNanos += (latencyNanos - longNanos) / LONG_WINDOW;
+            // 延迟长期偏高时让基线更快跟上，避免限制一直被压低
+            if (longNanos * 2 < shortNanos) {
+                longNanos *= 1.05;
+            }
+        }
+        this.latencyNanos = (long) shortNanos;
+
+        double current = limit;
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longNanos / shortNanos));
+        double newLimit = current * gradient + Math.sqrt(current);
+        if (inFlight * 2 < current) {
+            // 负载不足时只允许收缩
+            newLimit = Math.min(newLimit, current);
+        }
+        newLimit = current * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    @Override
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "GradientLimit[limit=" + getLimit() + ", shortNanos=" + (long) shortNanos + ", longNanos=" + (long) longNanos + "]";
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.don.elastic.executors.limit;
+
+import com.don.elastic.executors.util.Asserts;
+import com.don.elastic.executors.util.SharedTimer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 线程池提交限速：一个线程池级令牌桶，加上按任务名称的子令牌桶，任务需要同时通过两者。
+ * 令牌不足时预约未来的令牌，由所有线程池共用的定时线程到时间后再提交到线程池，等待期间不占用线程池的线程和队列；
+ * 需要等待的时间超过maxDelay时直接拒绝，不交给线程池的拒绝策略。
+ * 到时间后线程池已满时同样直接拒绝并取消Future，拒绝策略不会在共享定时线程上执行，避免阻塞定时线程或在其上执行任务
+ * @author Don Du
+ */
+public class RateLimitGate {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RateLimitGate.class);
+
+    /**
+     * 线程池级令牌桶，没有限速时为null
+     */
+    private volatile TokenBucket poolBucket;
+
+    private final ConcurrentMap<String, TokenBucket> taskBuckets = new ConcurrentHashMap<>();
+
+    private volatile long maxDelayNanos;
+
+    /**
+     * 修改线程池级限速，permitsPerSecond小于等于0时取消限速
+     * @param permitsPerSecond
+     * @param burst
+     * @param maxDelay
+     * @param unit
+     */
+    public void setRateLimit(double permitsPerSecond, int burst, long maxDelay, TimeUnit unit) {
+        Asserts.isFalse(maxDelay < 0, "maxDelay < 0");
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        TokenBucket bucket = poolBucket;
+        if (permitsPerSecond <= 0) {
+            poolBucket = null;
+        } else if (bucket == null || bucket.getPermitsPerSecond() != permitsPerSecond || bucket.getBurst() != burst) {
+            poolBucket = new TokenBucket(permitsPerSecond, burst);
+        }
+    }
+
+    /**
+     * 修改任务名称对应的限速，permitsPerSecond小于等于0时取消限速
+     * @param taskName
+     * @param permitsPerSecond
+     * @param burst
+     */
+    public void setTaskRateLimit(String taskName, double permitsPerSecond, int burst) {
+        Asserts.notEmpty(taskName, "taskName is empty");
+        if (permitsPerSecond <= 0) {
+            taskBuckets.remove(taskName);
+            return;
+        }
+        TokenBucket bucket = taskBuckets.get(taskName);
+        if (bucket == null || bucket.getPermitsPerSecond() != permitsPerSecond || bucket.getBurst() != burst) {
+            taskBuckets.put(taskName, new TokenBucket(permitsPerSecond, burst));
+        }
+    }
+
+    /**
+     * 线程池级限速，没有限速时返回0
+     * @return
+     */
+    public double getRateLimit() {
+        TokenBucket bucket = poolBucket;
+        return bucket == null ? 0 : bucket.getPermitsPerSecond();
+    }
+
+    /**
+     * 取令牌
+     * @param taskName 可以为null
+     * @return 需要延迟提交的纳秒数，0表示立即提交，-1表示超过限速需要拒绝
+     */
+    public long acquire(String taskName) {
+        TokenBucket bucket = poolBucket;
+        if (bucket == null && taskBuckets.isEmpty()) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long maxDelay = maxDelayNanos;
+        long delay = 0;
+        TokenBucket taskBucket = taskName == null ? null : taskBuckets.get(taskName);
+        if (taskBucket != null) {
+            delay = taskBucket.reserve(now, maxDelay);
+            if (delay < 0) {
+                return -1;
+            }
+        }
+        if (bucket != null) {
+            // 线程池级令牌不足时任务级令牌不归还，任务级限速只会更严格
+            long poolDelay = bucket.reserve(now, maxDelay);
+            if (poolDelay < 0) {
+                return -1;
+            }
+            delay = Math.max(delay, poolDelay);
+        }
+        return delay;
+    }
+
+    /**
+     * 延迟提交任务，提交时被拒绝的Future会被取消
+     * @param command
+     * @param delayNanos
+     * @param target 绕过限速和拒绝策略的提交入口，要么入队要么抛出拒绝异常
+     */
+    public static void schedule(final Runnable command, long delayNanos, final Executor target) {
+        SharedTimer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    target.execute(command);
+                } catch (RejectedExecutionException ex) {
+                    if (command instanceof Future) {
+                        ((Future<?>) command).cancel(false);
+                    }
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("[RateLimitGate] 延迟提交的任务被拒绝: {}", command);
+                    }
+                }
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+}
@@ -0,0 +1,273 @@
+package com.don.elastic.executors.limit;
+
+import com.don.elastic.executors.excutor.ElasticFutureTask;
+import com.don.elastic.executors.task.ExecutorTaskContext;
+import com.don.elastic.executors.util.Asserts;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 线程池内按租户隔离的并发配额：一个租户在线程池中排队和执行的任务数不超过配额，因此最多占用配额数量的线程。
+ * 租户取自任务上下文中的参数，每个租户一个独立的许可计数器，不同租户之间没有竞争；
+ * 许可在提交时获取，任务完成、异常或取消后释放。超过配额的任务最多等待maxWait，超时后拒绝。
+ * 没有排队、执行中和等待中任务的租户立即移除，租户参数取值很多时不会无限占用内存
+ * @author Don Du
+ */
+public class TenantBulkhead {
+
+    public static final String DEFAULT_TENANT_PARAMETER = "tenant";
+
+    private volatile String tenantParameter = DEFAULT_TENANT_PARAMETER;
+
+    /**
+     * 没有单独配置的租户使用的配额，小于等于0时不限制
+     */
+    private volatile int defaultQuota;
+
+    private volatile long maxWaitNanos;
+
+    private final ConcurrentMap<String, Integer> tenantQuotas = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Tenant> tenants = new ConcurrentHashMap<>();
+
+    /**
+     * 修改租户参数名、默认配额和超过配额时的最长等待时间
+     * @param tenantParameter
+     * @param defaultQuota 小于等于0时不限制没有单独配置的租户
+     * @param maxWait 为0时超过配额直接拒绝
+     * @param unit
+     */
+    public void setBulkhead(String tenantParameter, int defaultQuota, long maxWait, TimeUnit unit) {
+        Asserts.notEmpty(tenantParameter, "tenantParameter is empty");
+        Asserts.isFalse(maxWait < 0, "maxWait < 0");
+        this.tenantParameter = tenantParameter;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        int oldQuota = this.defaultQuota;
+        this.defaultQuota = defaultQuota;
+        if (defaultQuota <= 0 || defaultQuota > oldQuota) {
+            wakeUpAll();
+        }
+    }
+
+    /**
+     * 修改租户的配额，quota小于等于0时取消单独配置，使用默认配额。
+     * 配额调小时已经获取的许可不受影响，新任务等到执行中的任务数降到配额以下
+     * @param tenant
+     * @param quota
+     */
+    public void setTenantQuota(String tenant, int quota) {
+        Asserts.notEmpty(tenant, "tenant is empty");
+        if (quota <= 0) {
+            tenantQuotas.remove(tenant);
+        } else {
+            tenantQuotas.put(tenant, quota);
+        }
+        Tenant state = tenants.get(tenant);
+        if (state != null) {
+            state.wakeUp();
+        }
+    }
+
+    /**
+     * 是否配置了配额，没有配额时提交不经过租户隔离
+     * @return
+     */
+    public boolean isEnabled() {
+        return defaultQuota > 0 || !tenantQuotas.isEmpty();
+    }
+
+    public int getDefaultQuota() {
+        return defaultQuota;
+    }
+
+    /**
+     * 租户的配额，小于等于0表示不限制
+     * @param tenant
+     * @return
+     */
+    public int getQuota(String tenant) {
+        Integer quota = tenantQuotas.get(tenant);
+        return quota != null ? quota : defaultQuota;
+    }
+
+    /**
+     * 为任务获取所属租户的许可，获取成功后任务完成时自动释放。
+     * 没有配置配额、任务没有租户参数时直接通过
+     * @param future
+     * @return 超过配额且等待超时或被中断时返回false
+     */
+    public boolean acquire(ElasticFutureTask<?> future) {
+        if (!isEnabled()) {
+            return true;
+        }
+        String name = tenantOf(future.getTaskContext());
+        if (name == null) {
+            return true;
+        }
+        for (;;) {
+            Tenant tenant = tenants.get(name);
+            if (tenant == null) {
+                Tenant newTenant = new Tenant(name);
+                tenant = tenants.putIfAbsent(name, newTenant);
+                if (tenant == null) {
+                    tenant = newTenant;
+                }
+            }
+            if (tenant.tryAcquire() || tenant.awaitPermit(maxWaitNanos)) {
+                future.whenDone(tenant);
+                return true;
+            }
+            if (!tenant.isRemoved()) {
+                tenant.rejected.increment();
+                return false;
+            }
+            // 租户空闲后已经被移除，重新获取
+        }
+    }
+
+    private String tenantOf(ExecutorTaskContext taskContext) {
+        if (taskContext == null || taskContext.getParameters() == null) {
+            return null;
+        }
+        Object tenant = taskContext.getParameters().get(tenantParameter);
+        return tenant == null ? null : tenant.toString();
+    }
+
+    private void wakeUpAll() {
+        for (Tenant tenant : tenants.values()) {
+            tenant.wakeUp();
+        }
+    }
+
+    /**
+     * 每个租户正在排队和执行的任务数，空闲的租户已经移除，不在结果中
+     * @return
+     */
+    public Map<String, Integer> getActiveCounts() {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (Tenant tenant : tenants.values()) {
+            if (!tenant.isRemoved()) {
+                counts.put(tenant.name, tenant.active.get());
+            }
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * 当前有任务的租户超过配额被拒绝的任务数，租户空闲移除后重新计数
+     * @return
+     */
+    public Map<String, Long> getRejectedCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Tenant tenant : tenants.values()) {
+            if (!tenant.isRemoved()) {
+                counts.put(tenant.name, tenant.rejected.sum());
+            }
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * 租户的许可计数器，作为任务完成回调释放许可。
+     * 移除时在自身的锁内把许可数从0改为-1，已经移除的计数器不再发放许可，获取方重新从租户表中获取
+     */
+    private final class Tenant implements Runnable {
+
+        private final String name;
+
+        private final AtomicInteger active = new AtomicInteger();
+
+        private final LongAdder rejected = new LongAdder();
+
+        /**
+         * 等待许可的线程数，只在持有自身的锁时修改
+         */
+        private volatile int waiters;
+
+        private Tenant(String name) {
+            this.name = name;
+        }
+
+        private boolean tryAcquire() {
+            for (;;) {
+                int current = active.get();
+                if (current < 0) {
+                    return false;
+                }
+                int quota = getQuota(name);
+                if (quota > 0 && current >= quota) {
+                    return false;
+                }
+                if (active.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private boolean awaitPermit(long timeoutNanos) {
+            if (timeoutNanos <= 0) {
+                return false;
+            }
+            long deadline = System.nanoTime() + timeoutNanos;
+            synchronized (this) {
+                waiters++;
+                try {
+                    while (!tryAcquire()) {
+                        if (isRemoved()) {
+                            return false;
+                        }
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            return false;
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    }
+                    return true;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                } finally {
+                    waiters--;
+                }
+            }
+        }
+
+        private void wakeUp() {
+            if (waiters > 0) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        private boolean isRemoved() {
+            return active.get() < 0;
+        }
+
+        /**
+         * 任务完成，释放许可；没有任务和等待者时从租户表中移除
+         */
+        @Override
+        public void run() {
+            if (active.decrementAndGet() > 0 || waiters > 0) {
+                wakeUp();
+                return;
+            }
+            synchronized (this) {
+                if (waiters == 0 && active.compareAndSet(0, -1)) {
+                    tenants.remove(name, this);
+                    return;
+                }
+            }
+            wakeUp();
+        }
+    }
+
+}
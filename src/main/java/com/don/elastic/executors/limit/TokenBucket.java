@@ -0,0 +1,69 @@
+package com.don.elastic.executors.limit;
+
+import com.don.elastic.executors.util.Asserts;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 令牌桶，用通用信元速率算法(GCRA)实现：只记录理论到达时间，一次CAS完成取令牌，无锁。
+ * 每个令牌间隔1/permitsPerSecond秒，最多允许burst个任务同时通过
+ * @author Don Du
+ */
+public class TokenBucket {
+
+    private final double permitsPerSecond;
+
+    private final int burst;
+
+    private final long intervalNanos;
+
+    private final long toleranceNanos;
+
+    /**
+     * 理论到达时间，早于当前时间说明桶是满的
+     */
+    private final AtomicLong theoreticalArrival;
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        Asserts.isFalse(permitsPerSecond <= 0, "permitsPerSecond <= 0");
+        Asserts.isFalse(burst <= 0, "burst <= 0");
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.intervalNanos = Math.max(1, (long) (1e9 / permitsPerSecond));
+        this.toleranceNanos = intervalNanos * (burst - 1);
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 预约一个令牌
+     * @param nowNanos
+     * @param maxWaitNanos 最多愿意等待的时间，0表示只在有令牌时通过
+     * @return 需要等待的纳秒数，0表示立即通过，-1表示需要等待的时间超过maxWaitNanos，没有预约
+     */
+    public long reserve(long nowNanos, long maxWaitNanos) {
+        for (;;) {
+            long arrival = theoreticalArrival.get();
+            long wait = arrival - toleranceNanos - nowNanos;
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, Math.max(arrival, nowNanos) + intervalNanos)) {
+                return Math.max(0, wait);
+            }
+        }
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBucket[permitsPerSecond=" + permitsPerSecond + ", burst=" + burst + "]";
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.don.elastic.executors.metrics;
+
+/**
+ * 缓存统计快照
+ * @author Don Du
+ */
+public class CacheStats {
+
+    private final long hitCount;
+
+    private final long missCount;
+
+    private final long negativeHitCount;
+
+    private final long evictionCount;
+
+    private final long size;
+
+    private final long capacity;
+
+    public CacheStats(long hitCount, long missCount, long negativeHitCount, long evictionCount, long size, long capacity) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.negativeHitCount = negativeHitCount;
+        this.evictionCount = evictionCount;
+        this.size = size;
+        this.capacity = capacity;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * 命中的缓存中，缓存的是“没有匹配”结果的次数
+     * @return
+     */
+    public long getNegativeHitCount() {
+        return negativeHitCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public double getHitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats[hitCount=" + hitCount + ", missCount=" + missCount + ", negativeHitCount=" + negativeHitCount
+                + ", evictionCount=" + evictionCount + ", size=" + size + ", capacity=" + capacity + ", hitRate=" + getHitRate() + "]";
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.don.elastic.executors.metrics;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 兜底线程池路由统计：总次数以及按未匹配poolKey统计的Top-K
+ * @author Don Du
+ */
+public class FallbackMetrics {
+
+    private final LongAdder fallbackCount = new LongAdder();
+
+    private final TopKCounter unmatchedKeys;
+
+    public FallbackMetrics(int topK) {
+        this.unmatchedKeys = new TopKCounter(topK);
+    }
+
+    /**
+     * 记录一次兜底路由
+     * @param poolKey 未匹配的poolKey
+     */
+    public void record(String poolKey) {
+        fallbackCount.increment();
+        unmatchedKeys.increment(poolKey);
+    }
+
+    /**
+     * 路由到兜底线程池的提交总数
+     * @return
+     */
+    public long getFallbackCount() {
+        return fallbackCount.sum();
+    }
+
+    /**
+     * 命中兜底次数最多的未匹配poolKey
+     * @return
+     */
+    public List<TopKCounter.Entry> getTopUnmatchedKeys() {
+        return unmatchedKeys.topK();
+    }
+
+    @Override
+    public String toString() {
+        return "FallbackMetrics[fallbackCount=" + getFallbackCount() + ", topUnmatchedKeys=" + getTopUnmatchedKeys() + "]";
+    }
+
+}
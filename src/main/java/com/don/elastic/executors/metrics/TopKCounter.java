@@ -0,0 +1,141 @@
+package com.don.elastic.executors.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有界的Top-K计数器，基于Space-Saving算法，最多只保存capacity个key，
+ * 内存占用与不同key的数量无关。
+ * 已经在Top-K中的key无锁计数，只有新key进入、替换计数最小的key时加锁；
+ * 替换过程中对被替换key的并发计数会丢失，对近似统计可以接受
+ * @author Don Du
+ */
+public class TopKCounter {
+
+    private final int capacity;
+
+    private final ConcurrentMap<String, Counter> counters;
+
+    public TopKCounter(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity <= 0");
+        }
+        this.capacity = capacity;
+        this.counters = new ConcurrentHashMap<>(capacity * 2);
+    }
+
+    /**
+     * 计数加一，容量已满时替换计数最小的key，新key继承其计数作为误差
+     * @param key
+     */
+    public void increment(String key) {
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            counter.count.increment();
+            return;
+        }
+        synchronized (this) {
+            counter = counters.get(key);
+            if (counter != null) {
+                counter.count.increment();
+                return;
+            }
+            if (counters.size() < capacity) {
+                counters.put(key, new Counter(key, 1, 0));
+                return;
+            }
+            Counter min = null;
+            long minCount = 0;
+            for (Counter candidate : counters.values()) {
+                long count = candidate.count.sum();
+                if (min == null || count < minCount) {
+                    min = candidate;
+                    minCount = count;
+                }
+            }
+            counters.remove(min.key);
+            counters.put(key, new Counter(key, minCount + 1, minCount));
+        }
+    }
+
+    /**
+     * 按计数从大到小返回当前的Top-K
+     * @return
+     */
+    public List<Entry> topK() {
+        List<Entry> entries = new ArrayList<>(capacity);
+        for (Counter counter : counters.values()) {
+            entries.add(new Entry(counter.key, counter.count.sum(), counter.error));
+        }
+        Collections.sort(entries);
+        return entries;
+    }
+
+    public synchronized void clear() {
+        counters.clear();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private static class Counter {
+
+        private final String key;
+
+        private final LongAdder count = new LongAdder();
+
+        private final long error;
+
+        private Counter(String key, long count, long error) {
+            this.key = key;
+            this.count.add(count);
+            this.error = error;
+        }
+    }
+
+    /**
+     * Top-K中的一项，count为估计值，真实值在[count - error, count]之间
+     */
+    public static class Entry implements Comparable<Entry> {
+
+        private final String key;
+
+        private final long count;
+
+        private final long error;
+
+        public Entry(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return Long.compare(other.count, this.count);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + count + "(±" + error + ")";
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.don.elastic.executors.queue;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 优先扩充线程的队列：没有阻塞在take/poll上的空闲线程且线程数还没有达到最大线程数时拒绝入队，
+ * 让ThreadPoolExecutor先创建非核心线程，线程数达到最大后才开始排队。
+ * 创建线程失败(并发竞争)时由拒绝策略调用{@link #force(Object)}重新入队
+ * @author Don Du
+ * @param <E>
+ */
+public class EagerGrowthQueue<E> extends ResizableLinkedBlockingQueue<E> {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient volatile ThreadPoolExecutor executor;
+
+    /**
+     * 阻塞在take/poll上等待任务的空闲线程数
+     */
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    public EagerGrowthQueue(int capacity) {
+        super(capacity);
+    }
+
+    /**
+     * 绑定使用此队列的线程池，线程池创建时设置
+     * @param executor
+     */
+    public void setExecutor(ThreadPoolExecutor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        ThreadPoolExecutor executor = this.executor;
+        if (executor == null) {
+            return super.offer(e);
+        }
+        int poolSize = executor.getPoolSize();
+        if (poolSize >= executor.getMaximumPoolSize()) {
+            return super.offer(e);
+        }
+        // 还有空闲线程时直接入队，由空闲线程取走
+        if (idleCount.get() > size()) {
+            return super.offer(e);
+        }
+        return false;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        idleCount.incrementAndGet();
+        try {
+            return super.take();
+        } finally {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        idleCount.incrementAndGet();
+        try {
+            return super.poll(timeout, unit);
+        } finally {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * 跳过扩充线程的判断直接入队
+     * @param e
+     * @return 队列已满时返回false
+     */
+    public boolean force(E e) {
+        return super.offer(e);
+    }
+
+}
@@ -361,7 +361,7 @@ public class ResizableLinkedBlockingQueue<E> extends AbstractQueue<E> implements
         try {
             if (count.get() > 0) {
                 x = dequeue();
-                c = count.getAndIncrement();
+                c = count.getAndDecrement();
                 if (c > 1) {
                     notEmpty.signal();
                 }
@@ -417,7 +417,7 @@ public class ResizableLinkedBlockingQueue<E> extends AbstractQueue<E> implements
         }
         fullyLock();
         try {
-            for(Node<E> trail = head, p = trail.next; p != null; trail = p.next, p = trail.next) {
+            for(Node<E> trail = head, p = trail.next; p != null; trail = p, p = trail.next) {
                 if (o.equals(p.item)) {
                     unlink(p, trail);
                     return true;
@@ -627,17 +627,17 @@ public class ResizableLinkedBlockingQueue<E> extends AbstractQueue<E> implements
             fullyLock();
             try {
                 if (current == null) {
-                    throw new NullPointerException();
+                    throw new NoSuchElementException();
                 }
 
                 E x = currentElement;
                 lastRet = current;
                 current = nextNode(current);
                 currentElement = current == null ? null : current.item;
+                return x;
             } finally {
                 fullyUnlock();
             }
-            return null;
         }
 
         @Override
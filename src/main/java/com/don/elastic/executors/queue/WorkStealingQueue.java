@@ -0,0 +1,125 @@
+package com.don.elastic.executors.queue;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分片线程池使用的工作队列，本分片队列为空时从同组中排队最多的队列窃取任务。
+ * 空闲线程先每隔{@link #STEAL_INTERVAL_NANOS}醒来检查一次其他分片，一直没有任务时检查间隔逐次翻倍，
+ * 最长{@link #MAX_STEAL_INTERVAL_NANOS}，避免长时间空闲的线程池频繁唤醒线程扫描所有分片
+ * @author Don Du
+ * @param <E>
+ */
+public class WorkStealingQueue<E> extends ResizableLinkedBlockingQueue<E> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 空闲线程检查其他分片的间隔
+     */
+    private static final long STEAL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    /**
+     * 空闲线程检查其他分片的最长间隔
+     */
+    private static final long MAX_STEAL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(320);
+
+    /**
+     * 同组的所有队列，包括自己
+     */
+    private transient volatile WorkStealingQueue<E>[] group;
+
+    public WorkStealingQueue(int capacity) {
+        super(capacity);
+    }
+
+    /**
+     * 组成一个可以互相窃取任务的队列组
+     * @param queues
+     * @param <E>
+     */
+    public static <E> void link(WorkStealingQueue<E>[] queues) {
+        for (WorkStealingQueue<E> queue : queues) {
+            queue.group = queues;
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        long interval = STEAL_INTERVAL_NANOS;
+        for (;;) {
+            E e = pollOrSteal();
+            if (e != null) {
+                return e;
+            }
+            e = super.poll(interval, TimeUnit.NANOSECONDS);
+            if (e != null) {
+                return e;
+            }
+            interval = backoff(interval);
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long interval = STEAL_INTERVAL_NANOS;
+        for (;;) {
+            E e = pollOrSteal();
+            if (e != null) {
+                return e;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            e = super.poll(Math.min(remaining, interval), TimeUnit.NANOSECONDS);
+            if (e != null) {
+                return e;
+            }
+            interval = backoff(interval);
+        }
+    }
+
+    private static long backoff(long interval) {
+        return Math.min(interval << 1, MAX_STEAL_INTERVAL_NANOS);
+    }
+
+    private E pollOrSteal() {
+        E e = super.poll();
+        return e != null ? e : steal();
+    }
+
+    /**
+     * 从排队最多的其他队列取走一个任务
+     * @return
+     */
+    private E steal() {
+        WorkStealingQueue<E>[] queues = group;
+        if (queues == null) {
+            return null;
+        }
+        int length = queues.length;
+        int start = ThreadLocalRandom.current().nextInt(length);
+        WorkStealingQueue<E> victim = null;
+        int victimSize = 0;
+        for (int i = 0; i < length; i++) {
+            WorkStealingQueue<E> queue = queues[(start + i) % length];
+            int size = queue.size();
+            if (queue != this && size > victimSize) {
+                victim = queue;
+                victimSize = size;
+            }
+        }
+        return victim == null ? null : victim.pollLocal();
+    }
+
+    /**
+     * 只从本队列取，不窃取
+     * @return
+     */
+    private E pollLocal() {
+        return super.poll();
+    }
+
+}
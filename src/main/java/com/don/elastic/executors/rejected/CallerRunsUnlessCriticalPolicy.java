@@ -0,0 +1,84 @@
+package com.don.elastic.executors.rejected;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 在调用线程执行被拒绝的任务，调用线程被标记为延迟敏感线程时改为拒绝，避免阻塞事件循环这类线程。
+ * 延迟敏感线程通过{@link #markCritical()}标记，或者线程名称以配置的前缀开头
+ * @author Don Du
+ */
+public class CallerRunsUnlessCriticalPolicy implements RejectionPolicy {
+
+    private static final ThreadLocal<Boolean> CRITICAL = new ThreadLocal<>();
+
+    private final String[] criticalThreadPrefixes;
+
+    private final LongAdder callerRuns = new LongAdder();
+
+    private final LongAdder criticalRejected = new LongAdder();
+
+    public CallerRunsUnlessCriticalPolicy(String... criticalThreadPrefixes) {
+        this.criticalThreadPrefixes = criticalThreadPrefixes == null ? new String[0] : criticalThreadPrefixes.clone();
+    }
+
+    /**
+     * 把当前线程标记为延迟敏感线程
+     */
+    public static void markCritical() {
+        CRITICAL.set(Boolean.TRUE);
+    }
+
+    /**
+     * 清除当前线程的延迟敏感标记
+     */
+    public static void clearCritical() {
+        CRITICAL.remove();
+    }
+
+    /**
+     * 当前线程是否被标记为延迟敏感线程
+     * @return
+     */
+    public static boolean isMarkedCritical() {
+        return CRITICAL.get() != null;
+    }
+
+    private boolean isCritical(Thread thread) {
+        if (isMarkedCritical()) {
+            return true;
+        }
+        String name = thread.getName();
+        for (String prefix : criticalThreadPrefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Task " + r + " rejected from " + executor + ", executor is shutdown");
+        }
+        if (isCritical(Thread.currentThread())) {
+            criticalRejected.increment();
+            throw new RejectedExecutionException("Task " + r + " rejected from " + executor + ", caller is latency critical");
+        }
+        callerRuns.increment();
+        r.run();
+    }
+
+    @Override
+    public Map<String, Long> getOutcomes() {
+        Map<String, Long> outcomes = new LinkedHashMap<>();
+        outcomes.put("callerRuns", callerRuns.sum());
+        outcomes.put("criticalRejected", criticalRejected.sum());
+        return outcomes;
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.don.elastic.executors.rejected;
+
+import com.don.elastic.executors.excutor.DiscardableTask;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 丢弃最早排队的任务后重新提交，和{@link ThreadPoolExecutor.DiscardOldestPolicy}相同，
+ * 被丢弃的任务是{@link DiscardableTask}时通知它已被丢弃，避免按key串行的邮箱和等待结果的调用方一直挂起
+ * @author Don Du
+ */
+public class DiscardOldestPolicy extends ThreadPoolExecutor.DiscardOldestPolicy {
+
+    /**
+     * jdk的DiscardOldestPolicy替换为本策略，其他拒绝策略原样返回
+     * @param handler
+     * @return
+     */
+    public static RejectedExecutionHandler adapt(RejectedExecutionHandler handler) {
+        return handler != null && handler.getClass() == ThreadPoolExecutor.DiscardOldestPolicy.class ? new DiscardOldestPolicy() : handler;
+    }
+
+    /**
+     * 通知被丢弃的任务
+     * @param victim 队列为空时为null
+     */
+    public static void discarded(Runnable victim) {
+        if (victim instanceof DiscardableTask) {
+            ((DiscardableTask) victim).discard();
+        }
+    }
+
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+        if (!executor.isShutdown()) {
+            discarded(executor.getQueue().poll());
+            executor.execute(r);
+        }
+    }
+
+}
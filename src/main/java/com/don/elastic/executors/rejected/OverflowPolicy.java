@@ -0,0 +1,85 @@
+package com.don.elastic.executors.rejected;
+
+import com.don.elastic.executors.excutor.ElasticExecutor;
+import com.don.elastic.executors.factory.ElasticExecutorFactory;
+import com.don.elastic.executors.selector.ExecutorFactoryAware;
+import com.don.elastic.executors.task.TaskRejectedException;
+import com.don.elastic.executors.util.Asserts;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 被拒绝的任务转移到指定的兄弟线程池，兄弟线程池也拒绝时抛出拒绝异常；兄弟线程池的拒绝策略接管了任务时视为转移成功。
+ * 同一个提交线程上已经在转移中时不再转移，避免两个线程池互相转移形成环
+ * @author Don Du
+ */
+public class OverflowPolicy implements RejectionPolicy, ExecutorFactoryAware {
+
+    private static final ThreadLocal<Boolean> REDIRECTING = new ThreadLocal<>();
+
+    private final String targetPoolName;
+
+    private volatile ElasticExecutorFactory executorFactory;
+
+    private final LongAdder redirected = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    public OverflowPolicy(String targetPoolName) {
+        Asserts.notEmpty(targetPoolName, "targetPoolName is empty");
+        this.targetPoolName = targetPoolName;
+    }
+
+    @Override
+    public void setExecutorFactory(ElasticExecutorFactory executorFactory) {
+        this.executorFactory = executorFactory;
+    }
+
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+        ElasticExecutorFactory factory = executorFactory;
+        if (factory == null || executor.isShutdown() || REDIRECTING.get() != null) {
+            failed.increment();
+            throw new RejectedExecutionException("Task " + r + " rejected from " + executor + ", cannot overflow to " + targetPoolName);
+        }
+        ElasticExecutor target = factory.getExecutor(targetPoolName);
+        if (target == null || target == executor || target.isShutdown()) {
+            failed.increment();
+            throw new RejectedExecutionException("Task " + r + " rejected from " + executor + ", overflow pool " + targetPoolName + " unavailable");
+        }
+        REDIRECTING.set(Boolean.TRUE);
+        try {
+            target.execute(r);
+            redirected.increment();
+        } catch (TaskRejectedException ex) {
+            // 没有原始拒绝异常时兄弟线程池的拒绝策略已经接管了任务(丢弃最早的任务后入队、调用方执行或丢弃)，不能再当作失败
+            if (ex.existRejectedExecutionException()) {
+                failed.increment();
+                throw ex.getRejectedExecutionException();
+            }
+            redirected.increment();
+        } catch (RejectedExecutionException ex) {
+            failed.increment();
+            throw ex;
+        } finally {
+            REDIRECTING.remove();
+        }
+    }
+
+    public String getTargetPoolName() {
+        return targetPoolName;
+    }
+
+    @Override
+    public Map<String, Long> getOutcomes() {
+        Map<String, Long> outcomes = new LinkedHashMap<>();
+        outcomes.put("redirected", redirected.sum());
+        outcomes.put("failed", failed.sum());
+        return outcomes;
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.don.elastic.executors.rejected;
+
+import com.don.elastic.executors.excutor.MonitoringExecutor;
+import com.don.elastic.executors.queue.EagerGrowthQueue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 拒绝策略绕过{@link ThreadPoolExecutor#execute(Runnable)}直接放入工作队列时使用。
+ * 优先扩充线程的队列在线程数没有达到最大时拒绝普通的offer，这里改用{@link EagerGrowthQueue#force(Object)}；
+ * 线程池开启了自适应并发限制时，在途任务数低于限制才入队，拒绝策略不能绕过刚刚拒绝了任务的并发限制
+ * @author Don Du
+ */
+final class PolicyQueues {
+
+    /**
+     * 等待在途任务数降到并发限制以下时的检查间隔
+     */
+    private static final long LIMIT_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private PolicyQueues() {}
+
+    /**
+     * 在途任务数低于并发限制且队列有空间时入队
+     * @param executor
+     * @param r
+     * @return 是否入队
+     */
+    static boolean offer(ThreadPoolExecutor executor, Runnable r) {
+        return !exceedsLimit(executor) && force(executor.getQueue(), r);
+    }
+
+    /**
+     * 最多等待timeoutNanos，直到在途任务数低于并发限制且队列有空间
+     * @param executor
+     * @param r
+     * @param timeoutNanos
+     * @return 是否入队
+     * @throws InterruptedException
+     */
+    static boolean offer(ThreadPoolExecutor executor, Runnable r, long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (exceedsLimit(executor)) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.min(remaining, LIMIT_POLL_NANOS));
+        }
+        // 带超时的offer不受优先扩充线程的限制
+        return executor.getQueue().offer(r, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 队列有空间时入队，不检查并发限制，用于在途任务数不变的替换
+     * @param queue
+     * @param r
+     * @return 是否入队
+     */
+    static boolean force(BlockingQueue<Runnable> queue, Runnable r) {
+        return queue instanceof EagerGrowthQueue ? ((EagerGrowthQueue<Runnable>) queue).force(r) : queue.offer(r);
+    }
+
+    private static boolean exceedsLimit(ThreadPoolExecutor executor) {
+        if (!(executor instanceof MonitoringExecutor)) {
+            return false;
+        }
+        MonitoringExecutor monitoring = (MonitoringExecutor) executor;
+        int limit = monitoring.getConcurrencyLimit();
+        return limit > 0 && monitoring.getActiveCount() + executor.getQueue().size() >= limit;
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.don.elastic.executors.rejected;
+
+import com.don.elastic.executors.excutor.ElasticFutureTask;
+import com.don.elastic.executors.task.ExecutorTaskContext;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按优先级挤出排队任务：队列满时从排队任务中找出优先级最低且低于新任务的一个(同优先级取最晚提交的)，
+ * 把它移出队列并以{@link com.don.elastic.executors.task.ExecutorTask.TaskState#SHED}状态取消，让新任务入队；
+ * 找不到更低优先级的任务时拒绝新任务。优先级取自{@link ExecutorTaskContext#getPriority()}，
+ * 不是通过submit提交的任务按默认优先级处理，也不会被挤出
+ * @author Don Du
+ */
+public class PrioritySheddingPolicy implements RejectionPolicy {
+
+    private final LongAdder evicted = new LongAdder();
+
+    private final LongAdder refused = new LongAdder();
+
+    /**
+     * 每个优先级被挤出的任务数
+     */
+    private final ConcurrentMap<Integer, LongAdder> shedCounts = new ConcurrentHashMap<>();
+
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Task " + r + " rejected from " + executor + ", executor is shutdown");
+        }
+        int priority = priorityOf(r);
+        BlockingQueue<Runnable> queue = executor.getQueue();
+        ElasticFutureTask<?> victim;
+        while ((victim = findVictim(queue, priority)) != null) {
+            // 被工作线程取走了就重新找
+            if (!queue.remove(victim)) {
+                continue;
+            }
+            // 替换排队中的任务，在途任务数不变，不需要检查并发限制
+            if (PolicyQueues.force(queue, r)) {
+                shed(victim);
+                if (executor.getPoolSize() == 0) {
+                    executor.prestartCoreThread();
+                }
+                return;
+            }
+            // 腾出的位置被其他提交线程抢走，放回被挤出的任务，放不回去才取消
+            if (!PolicyQueues.force(queue, victim)) {
+                shed(victim);
+            }
+            break;
+        }
+        refused.increment();
+        throw new RejectedExecutionException("Task " + r + " rejected from " + executor + ", no lower priority task to shed");
+    }
+
+    private void shed(ElasticFutureTask<?> victim) {
+        if (victim.shed()) {
+            evicted.increment();
+            LongAdder counter = shedCounts.get(victim.getPriority());
+            if (counter == null) {
+                LongAdder newCounter = new LongAdder();
+                counter = shedCounts.putIfAbsent(victim.getPriority(), newCounter);
+                if (counter == null) {
+                    counter = newCounter;
+                }
+            }
+            counter.increment();
+        }
+    }
+
+    /**
+     * 找出优先级最低且低于priority的排队任务，同优先级取最晚入队的
+     */
+    private static ElasticFutureTask<?> findVictim(BlockingQueue<Runnable> queue, int priority) {
+        ElasticFutureTask<?> victim = null;
+        int victimPriority = priority;
+        for (Runnable queued : queue) {
+            if (!(queued instanceof ElasticFutureTask)) {
+                continue;
+            }
+            ElasticFutureTask<?> task = (ElasticFutureTask<?>) queued;
+            int queuedPriority = task.getPriority();
+            if (queuedPriority < victimPriority || (victim != null && queuedPriority == victimPriority)) {
+                victim = task;
+                victimPriority = queuedPriority;
+            }
+        }
+        return victim;
+    }
+
+    private static int priorityOf(Runnable r) {
+        return r instanceof ElasticFutureTask ? ((ElasticFutureTask<?>) r).getPriority() : ExecutorTaskContext.DEFAULT_PRIORITY;
+    }
+
+    /**
+     * 每个优先级被挤出的任务数，按优先级从低到高排列
+     * @return
+     */
+    public Map<Integer, Long> getShedCounts() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        for (Map.Entry<Integer, LongAdder> entry : shedCounts.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().sum());
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    @Override
+    public Map<String, Long> getOutcomes() {
+        Map<String, Long> outcomes = new LinkedHashMap<>();
+        outcomes.put("evicted", evicted.sum());
+        outcomes.put("refused", refused.sum());
+        return outcomes;
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.don.elastic.executors.rejected;
+
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionHandler;
+
+/**
+ * 可以接管被拒绝任务的拒绝策略：正常返回表示任务已经被接管(入队、转移到其他线程池、稍后重试或者在调用线程执行)，
+ * 提交方不会收到拒绝；无法接管时抛出{@link java.util.concurrent.RejectedExecutionException}
+ * @author Don Du
+ */
+public interface RejectionPolicy extends RejectedExecutionHandler {
+
+    /**
+     * 各种处理结果的次数
+     * @return
+     */
+    Map<String, Long> getOutcomes();
+
+}
@@ -0,0 +1,96 @@
+package com.don.elastic.executors.rejected;
+
+import com.don.elastic.executors.util.Asserts;
+import com.don.elastic.executors.util.SharedTimer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 被拒绝的任务交给共享定时线程稍后重新入队，退避时间按指数增长并取[0, 退避时间)之间的随机值(full jitter)，
+ * 避免大量任务同时重试。重试次数用完后放弃任务，Future会被取消
+ * @author Don Du
+ */
+public class RetryWithJitterPolicy implements RejectionPolicy {
+
+    private final int maxRetries;
+
+    private final long baseDelayMillis;
+
+    private final long maxDelayMillis;
+
+    private final LongAdder scheduled = new LongAdder();
+
+    private final LongAdder retried = new LongAdder();
+
+    private final LongAdder exhausted = new LongAdder();
+
+    public RetryWithJitterPolicy(int maxRetries, long baseDelayMillis, long maxDelayMillis) {
+        Asserts.isFalse(maxRetries <= 0, "maxRetries <= 0");
+        Asserts.isFalse(baseDelayMillis <= 0 || maxDelayMillis < baseDelayMillis, "baseDelayMillis <= 0 || maxDelayMillis < baseDelayMillis");
+        this.maxRetries = maxRetries;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Task " + r + " rejected from " + executor + ", executor is shutdown");
+        }
+        scheduled.increment();
+        schedule(r, executor, 0);
+    }
+
+    private void schedule(final Runnable r, final ThreadPoolExecutor executor, final int attempt) {
+        long backoff = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt, 30));
+        long delay = 1 + ThreadLocalRandom.current().nextLong(backoff);
+        SharedTimer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                retry(r, executor, attempt + 1);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 直接放入工作队列，不再经过拒绝策略；在途任务数达到并发限制时和队列满一样继续重试
+     */
+    private void retry(Runnable r, ThreadPoolExecutor executor, int attempt) {
+        if (!executor.isShutdown()) {
+            // 先计数再入队，任务开始执行时已经计入重试成功
+            retried.increment();
+            if (PolicyQueues.offer(executor, r)) {
+                if (executor.getPoolSize() == 0) {
+                    executor.prestartCoreThread();
+                }
+                return;
+            }
+            retried.decrement();
+        }
+        if (attempt < maxRetries && !executor.isShutdown()) {
+            schedule(r, executor, attempt);
+            return;
+        }
+        exhausted.increment();
+        if (r instanceof Future) {
+            ((Future<?>) r).cancel(false);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getOutcomes() {
+        Map<String, Long> outcomes = new LinkedHashMap<>();
+        outcomes.put("scheduled", scheduled.sum());
+        outcomes.put("retried", retried.sum());
+        outcomes.put("exhausted", exhausted.sum());
+        return outcomes;
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.don.elastic.executors.rejected;
+
+import com.don.elastic.executors.util.Asserts;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 队列满或者在途任务数达到并发限制时阻塞提交线程，最多等待timeout，超时后拒绝，用有界的背压代替丢弃
+ * @author Don Du
+ */
+public class TimedBlockingPolicy implements RejectionPolicy {
+
+    private final long timeoutNanos;
+
+    private final LongAdder accepted = new LongAdder();
+
+    private final LongAdder timedOut = new LongAdder();
+
+    private final LongAdder interrupted = new LongAdder();
+
+    public TimedBlockingPolicy(long timeout, TimeUnit unit) {
+        Asserts.isFalse(timeout <= 0, "timeout <= 0");
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Task " + r + " rejected from " + executor + ", executor is shutdown");
+        }
+        try {
+            if (!PolicyQueues.offer(executor, r, timeoutNanos)) {
+                timedOut.increment();
+                throw new RejectedExecutionException("Task " + r + " rejected from " + executor + ", queue offer timed out");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            interrupted.increment();
+            throw new RejectedExecutionException("Task " + r + " rejected from " + executor + ", interrupted", ex);
+        }
+        // 等待期间线程池被关闭，取回任务
+        if (executor.isShutdown() && executor.remove(r)) {
+            throw new RejectedExecutionException("Task " + r + " rejected from " + executor + ", executor is shutdown");
+        }
+        if (executor.getPoolSize() == 0) {
+            executor.prestartCoreThread();
+        }
+        accepted.increment();
+    }
+
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    @Override
+    public Map<String, Long> getOutcomes() {
+        Map<String, Long> outcomes = new LinkedHashMap<>();
+        outcomes.put("accepted", accepted.sum());
+        outcomes.put("timedOut", timedOut.sum());
+        outcomes.put("interrupted", interrupted.sum());
+        return outcomes;
+    }
+
+}
@@ -3,16 +3,13 @@ package com.don.elastic.executors.selector;
 import com.don.elastic.executors.config.ExecutorProperty;
 import com.don.elastic.executors.config.ExecutorsProperty;
 import com.don.elastic.executors.excutor.ElasticExecutor;
+import com.don.elastic.executors.metrics.CacheStats;
 import com.don.elastic.executors.task.ExecutorTaskContext;
 import com.don.elastic.executors.util.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * 抽象选择器，支持复杂的逻辑表达式
@@ -34,7 +31,10 @@ public abstract class AbstractExecutorSelector implements ExecutorSelector {
 
         private ExecutorExpressionFunction function;
 
-        private final ConcurrentMap<String, String> cachedInputs =new ConcurrentHashMap<>();
+        /**
+         * 有界的匹配结果缓存，没有匹配的结果也会缓存
+         */
+        private final SelectorCache cachedInputs = new SelectorCache(ExecutorsProperty.getSelectorCacheSize());
 
         private ExecutorExpression(ExecutorExpressionFunction function) {
             this.function = function;
@@ -48,35 +48,33 @@ public abstract class AbstractExecutorSelector implements ExecutorSelector {
                 return ElasticExecutor.DEFAULT_POOL_NAME;
             }
 
-            String poolName = cachedInputs.get(input);
-            if (Strings.isNotBlank(poolName)) {
+            if (function == null) {
                 if (logger.isDebugEnabled()) {
-                    logger.debug("[ExecutorSelector] 表达式: {}, 匹配结果: {}", input, poolName);
+                    logger.debug("选择器计算引擎function为空， 直接返回选择器的结果值: {}", input);
                 }
-                return poolName;
+                return input;
             }
 
-            if (function == null) {
+            String poolName = cachedInputs.get(input);
+            if (poolName != null) {
+                // 缓存了没有匹配的结果，原样返回
+                poolName = poolName == SelectorCache.NO_MATCH ? input : poolName;
                 if (logger.isDebugEnabled()) {
-                    logger.debug("选择器计算引擎function为空， 直接返回选择器的结果值: {}", input);
+                    logger.debug("[ExecutorSelector] 表达式: {}, 匹配结果: {}", input, poolName);
                 }
-                return input;
+                return poolName;
             }
 
-            List<ExecutorProperty> propertyList = ExecutorsProperty.getExecutorPropertyList();
-            for (ExecutorProperty property : propertyList) {
-                poolName = property.getPoolName();
-                String expression = property.getExpression();
-                if (Strings.isNotBlank(expression)) {
-                    if (function.matches(input, expression)) {
-                        cachedInputs.putIfAbsent(input, poolName);
-                        if (logger.isDebugEnabled()) {
-                            logger.debug("选择器计算引擎匹配到线程池{}, 使用此线程池", poolName);
-                        }
-                        return poolName;
-                    }
+            long generation = cachedInputs.getGeneration();
+            poolName = function.matchPool(input, ExecutorsProperty.getExecutorPropertyList());
+            if (poolName != null) {
+                cachedInputs.put(input, poolName, generation);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("选择器计算引擎匹配到线程池{}, 使用此线程池", poolName);
                 }
+                return poolName;
             }
+            cachedInputs.put(input, SelectorCache.NO_MATCH, generation);
             if (logger.isDebugEnabled()) {
                 logger.debug("选择器计算引擎没有匹配线程池，将使用默认的线程池: {}", ElasticExecutor.DEFAULT_POOL_NAME);
             }
@@ -96,6 +94,23 @@ public abstract class AbstractExecutorSelector implements ExecutorSelector {
          */
         boolean matches(String input, String expression);
 
+        /**
+         * 按配置顺序匹配第一个表达式命中的线程池，默认逐个调用{@link #matches(String, String)}，
+         * 可以预编译表达式的实现应覆盖此方法
+         * @param input
+         * @param propertyList
+         * @return 线程池名称，没有匹配时返回null
+         */
+        default String matchPool(String input, List<ExecutorProperty> propertyList) {
+            for (ExecutorProperty property : propertyList) {
+                String expression = property.getExpression();
+                if (Strings.isNotBlank(expression) && matches(input, expression)) {
+                    return property.getPoolName();
+                }
+            }
+            return null;
+        }
+
     }
 
     protected AbstractExecutorSelector() {
@@ -107,6 +122,21 @@ public abstract class AbstractExecutorSelector implements ExecutorSelector {
         return expression.match(select(taskContext));
     }
 
+    /**
+     * 清空选择器缓存，配置变化时调用
+     */
+    public void invalidateCache() {
+        expression.cachedInputs.invalidateAll();
+    }
+
+    /**
+     * 选择器缓存统计
+     * @return
+     */
+    public CacheStats getCacheStats() {
+        return expression.cachedInputs.stats();
+    }
+
     /**
      * 表达式计算引擎
      * @return
@@ -0,0 +1,55 @@
+package com.don.elastic.executors.selector;
+
+import com.don.elastic.executors.config.ExecutorProperty;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 基于{@link ExpressionIndex}的表达式计算引擎，配置加载后只编译一次，
+ * 匹配所有线程池只需要对输入做一次遍历
+ * @author Don Du
+ */
+public class CompiledExpressionFunction implements AbstractExecutorSelector.ExecutorExpressionFunction {
+
+    /**
+     * 编译来源的配置列表，配置列表替换后重新编译
+     */
+    private volatile List<ExecutorProperty> compiledFrom;
+
+    private volatile ExpressionIndex index = ExpressionIndex.empty();
+
+    /**
+     * 单个表达式的编译结果，数量受配置的表达式个数限制
+     */
+    private final ConcurrentMap<String, ExpressionIndex> compiledExpressions = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean matches(String input, String expression) {
+        ExpressionIndex compiled = compiledExpressions.get(expression);
+        if (compiled == null) {
+            compiled = ExpressionIndex.compile(expression);
+            compiledExpressions.putIfAbsent(expression, compiled);
+        }
+        return compiled.match(input) != null;
+    }
+
+    @Override
+    public String matchPool(String input, List<ExecutorProperty> propertyList) {
+        return compile(propertyList).match(input);
+    }
+
+    private ExpressionIndex compile(List<ExecutorProperty> propertyList) {
+        if (compiledFrom != propertyList) {
+            synchronized (this) {
+                if (compiledFrom != propertyList) {
+                    index = ExpressionIndex.compile(propertyList);
+                    compiledFrom = propertyList;
+                }
+            }
+        }
+        return index;
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.don.elastic.executors.selector;
+
+import com.don.elastic.executors.config.ExecutorProperty;
+import com.don.elastic.executors.config.ExecutorsProperty;
+import com.don.elastic.executors.excutor.MonitoringExecutor;
+import com.don.elastic.executors.factory.ElasticExecutorFactory;
+import com.don.elastic.executors.task.ExecutorTaskContext;
+import com.don.elastic.executors.util.Strings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 亲和性选择器：按任务参数中的亲和键（例如用户id）在配置的线程池分组上做一致性哈希，
+ * 同一个键的任务总是落在同一个线程池，保持CPU缓存和本地缓存的热度。
+ * 线程池负载超过组内平均负载的loadFactor倍时溢出到环上的下一个线程池。
+ * 任务没有亲和键或没有配置分组时，按任务名称匹配表达式
+ * @author Don Du
+ */
+public class ConsistentHashExecutorSelector extends AbstractExecutorSelector implements ExecutorFactoryAware {
+
+    private final String affinityKey = ExecutorsProperty.getAffinityKey();
+
+    private final String affinityGroup = ExecutorsProperty.getAffinityGroup();
+
+    private final int virtualNodes = ExecutorsProperty.getAffinityVirtualNodes();
+
+    private final double loadFactor = ExecutorsProperty.getAffinityLoadFactor();
+
+    private volatile ElasticExecutorFactory executorFactory;
+
+    /**
+     * 构建来源的配置列表，配置列表替换后重新构建哈希环
+     */
+    private volatile List<ExecutorProperty> ringFrom;
+
+    private volatile ConsistentHashRing ring;
+
+    private final ConsistentHashRing.LoadProbe loadProbe = new ConsistentHashRing.LoadProbe() {
+        @Override
+        public long load(String node) {
+            MonitoringExecutor executor = executorFactory.getExecutor(node);
+            return executor.getActiveCount() + executor.getWorkQueueSize();
+        }
+    };
+
+    @Override
+    public void setExecutorFactory(ElasticExecutorFactory executorFactory) {
+        this.executorFactory = executorFactory;
+    }
+
+    @Override
+    public String selectPoolKey(ExecutorTaskContext taskContext) {
+        Map<Object, Object> parameters = taskContext.getParameters();
+        Object key = parameters == null ? null : parameters.get(affinityKey);
+        ConsistentHashRing current = ring();
+        if (key == null || current == null) {
+            return super.selectPoolKey(taskContext);
+        }
+        if (executorFactory == null) {
+            return current.get(key.toString());
+        }
+        return current.get(key.toString(), loadFactor, loadProbe);
+    }
+
+    private ConsistentHashRing ring() {
+        List<ExecutorProperty> propertyList = ExecutorsProperty.getExecutorPropertyList();
+        if (ringFrom != propertyList) {
+            synchronized (this) {
+                if (ringFrom != propertyList) {
+                    ring = buildRing(propertyList);
+                    ringFrom = propertyList;
+                }
+            }
+        }
+        return ring;
+    }
+
+    private ConsistentHashRing buildRing(List<ExecutorProperty> propertyList) {
+        if (Strings.isBlank(affinityGroup)) {
+            return null;
+        }
+        List<String> nodes = new ArrayList<>();
+        for (ExecutorProperty property : propertyList) {
+            if (affinityGroup.equals(property.getGroup()) && !nodes.contains(property.getPoolName())) {
+                nodes.add(property.getPoolName());
+            }
+        }
+        if (nodes.isEmpty()) {
+            logger.warn("[ConsistentHashExecutorSelector] 分组{}没有配置任何线程池，亲和性路由不生效", affinityGroup);
+            return null;
+        }
+        if (logger.isInfoEnabled()) {
+            logger.info("[ConsistentHashExecutorSelector] 分组{}构建一致性哈希环，线程池: {}, 虚拟节点数: {}", affinityGroup, nodes, virtualNodes);
+        }
+        return new ConsistentHashRing(nodes, virtualNodes);
+    }
+
+    @Override
+    protected ExecutorExpressionFunction provideFunction() {
+        return new CompiledExpressionFunction();
+    }
+
+    @Override
+    protected String select(ExecutorTaskContext taskContext) {
+        return taskContext.getTaskName();
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.don.elastic.executors.selector;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 带虚拟节点的一致性哈希环，增删节点时只有约1/N的key会迁移。
+ * 支持有界负载：按顺时针方向跳过负载超过 loadFactor * 平均负载 的节点
+ * @author Don Du
+ */
+public class ConsistentHashRing {
+
+    private final String[] nodes;
+
+    /**
+     * 按哈希值排序的虚拟节点位置
+     */
+    private final long[] points;
+
+    /**
+     * 每个虚拟节点所属的真实节点下标
+     */
+    private final int[] owners;
+
+    public ConsistentHashRing(List<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("nodes is empty");
+        }
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes <= 0");
+        }
+        this.nodes = nodes.toArray(new String[0]);
+        int size = this.nodes.length * virtualNodes;
+        long[] hashes = new long[size];
+        for (int node = 0; node < this.nodes.length; node++) {
+            for (int i = 0; i < virtualNodes; i++) {
+                int slot = node * virtualNodes + i;
+                hashes[slot] = hash(this.nodes[node] + '#' + i);
+            }
+        }
+        // 按哈希排序并保持与所属节点的对应关系
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(hashes[a], hashes[b]));
+        this.points = new long[size];
+        this.owners = new int[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = hashes[order[i]];
+            owners[i] = order[i] / virtualNodes;
+        }
+    }
+
+    /**
+     * 负载探测
+     */
+    public interface LoadProbe {
+
+        /**
+         * 节点当前负载
+         * @param node
+         * @return
+         */
+        long load(String node);
+
+    }
+
+    /**
+     * 不考虑负载，返回key在环上顺时针方向的第一个节点
+     * @param key
+     * @return
+     */
+    public String get(String key) {
+        return nodes[owners[locate(hash(key))]];
+    }
+
+    /**
+     * 有界负载查找：节点负载超过 ceil(loadFactor * (总负载 + 1) / 节点数) 时顺时针溢出到下一个节点
+     * @param key
+     * @param loadFactor 大于等于1
+     * @param probe
+     * @return
+     */
+    public String get(String key, double loadFactor, LoadProbe probe) {
+        if (nodes.length == 1) {
+            return nodes[0];
+        }
+        long[] loads = new long[nodes.length];
+        long total = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            loads[i] = probe.load(nodes[i]);
+            total += loads[i];
+        }
+        long capacity = (long) Math.ceil(loadFactor * (total + 1) / nodes.length);
+        int start = locate(hash(key));
+        boolean[] visited = new boolean[nodes.length];
+        int remaining = nodes.length;
+        for (int i = 0; i < points.length && remaining > 0; i++) {
+            int owner = owners[(start + i) % points.length];
+            if (visited[owner]) {
+                continue;
+            }
+            if (loads[owner] < capacity) {
+                return nodes[owner];
+            }
+            visited[owner] = true;
+            remaining--;
+        }
+        return nodes[owners[start]];
+    }
+
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    private int locate(long hash) {
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index == points.length ? 0 : index;
+    }
+
+    /**
+     * FNV-1a 64位哈希，再经过murmur3的fmix64打散
+     * @param value
+     * @return
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.don.elastic.executors.selector;
+
+import com.don.elastic.executors.factory.ElasticExecutorFactory;
+
+/**
+ * 需要读取线程池运行状态的选择器实现此接口，创建后由复合线程池注入线程池工厂；
+ * 需要查找其他线程池的拒绝策略也实现此接口，由线程池工厂在创建线程池时注入
+ * @author Don Du
+ */
+public interface ExecutorFactoryAware {
+
+    /**
+     * 注入线程池工厂
+     * @param executorFactory
+     */
+    void setExecutorFactory(ElasticExecutorFactory executorFactory);
+
+}
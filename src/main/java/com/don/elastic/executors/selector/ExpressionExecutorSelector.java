@@ -0,0 +1,21 @@
+package com.don.elastic.executors.selector;
+
+import com.don.elastic.executors.task.ExecutorTaskContext;
+
+/**
+ * 按任务名称匹配线程池表达式的选择器，表达式在配置加载时统一编译
+ * @author Don Du
+ */
+public class ExpressionExecutorSelector extends AbstractExecutorSelector {
+
+    @Override
+    protected ExecutorExpressionFunction provideFunction() {
+        return new CompiledExpressionFunction();
+    }
+
+    @Override
+    protected String select(ExecutorTaskContext taskContext) {
+        return taskContext.getTaskName();
+    }
+
+}
@@ -0,0 +1,312 @@
+package com.don.elastic.executors.selector;
+
+import com.don.elastic.executors.config.ExecutorProperty;
+import com.don.elastic.executors.util.Strings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * 编译后的选择器表达式索引，在配置加载时把所有线程池的表达式一次性编译成一棵前缀树：
+ * <ul>
+ *     <li>exact:xxx 精确匹配</li>
+ *     <li>glob:xxx  通配符匹配，* 匹配任意个字符，? 匹配一个字符</li>
+ *     <li>regex:xxx 正则匹配</li>
+ *     <li>不带前缀时，包含 * 或 ? 按glob处理，否则按exact处理</li>
+ * </ul>
+ * 同一个线程池可以用逗号配置多个表达式。匹配时对输入只做一次前缀树遍历，
+ * 只对字面前缀命中的规则做剩余部分的校验，多个规则命中时按配置顺序取第一个
+ * @author Don Du
+ */
+public class ExpressionIndex {
+
+    private static final String EXACT_PREFIX = "exact:";
+    private static final String GLOB_PREFIX = "glob:";
+    private static final String REGEX_PREFIX = "regex:";
+
+    private static final String REGEX_META_CHARS = "\\.[]{}()*+?^$|";
+
+    private static final ExpressionIndex EMPTY = new ExpressionIndex(new Node(), 0);
+
+    private final Node root;
+
+    private final int ruleCount;
+
+    private ExpressionIndex(Node root, int ruleCount) {
+        this.root = root;
+        this.ruleCount = ruleCount;
+    }
+
+    /**
+     * 按配置顺序编译所有线程池的表达式
+     * @param properties
+     * @return
+     */
+    public static ExpressionIndex compile(List<ExecutorProperty> properties) {
+        Builder builder = new Builder();
+        for (ExecutorProperty property : properties) {
+            builder.add(property.getPoolName(), property.getExpression());
+        }
+        return builder.build();
+    }
+
+    /**
+     * 编译单个表达式，匹配成功时返回空字符串
+     * @param expression
+     * @return
+     */
+    public static ExpressionIndex compile(String expression) {
+        return new Builder().add("", expression).build();
+    }
+
+    public static ExpressionIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 匹配输入值
+     * @param input
+     * @return 匹配到的线程池名称，没有匹配时返回null
+     */
+    public String match(String input) {
+        Rule best = null;
+        Node node = root;
+        int length = input.length();
+        for (int i = 0; ; i++) {
+            best = node.verify(input, i, best);
+            if (i == length) {
+                if (node.exact != null && (best == null || node.exact.order < best.order)) {
+                    best = node.exact;
+                }
+                break;
+            }
+            node = node.child(input.charAt(i));
+            if (node == null) {
+                break;
+            }
+        }
+        return best == null ? null : best.poolName;
+    }
+
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    /**
+     * 编译规则
+     */
+    private static class Builder {
+
+        private final MutableNode root = new MutableNode();
+
+        private int order;
+
+        private Builder add(String poolName, String expressions) {
+            if (Strings.isBlank(expressions)) {
+                return this;
+            }
+            for (String expression : expressions.split(",")) {
+                if (Strings.isNotBlank(expression)) {
+                    addExpression(poolName, expression.trim());
+                }
+            }
+            return this;
+        }
+
+        private void addExpression(String poolName, String expression) {
+            if (expression.startsWith(EXACT_PREFIX)) {
+                addExact(poolName, expression.substring(EXACT_PREFIX.length()));
+            } else if (expression.startsWith(GLOB_PREFIX)) {
+                addGlob(poolName, expression.substring(GLOB_PREFIX.length()));
+            } else if (expression.startsWith(REGEX_PREFIX)) {
+                addRegex(poolName, expression.substring(REGEX_PREFIX.length()));
+            } else if (expression.indexOf('*') >= 0 || expression.indexOf('?') >= 0) {
+                addGlob(poolName, expression);
+            } else {
+                addExact(poolName, expression);
+            }
+        }
+
+        private void addExact(String poolName, String value) {
+            MutableNode node = root.descend(value);
+            if (node.exact == null) {
+                node.exact = new Rule(poolName, order++, null);
+            }
+        }
+
+        private void addGlob(String poolName, String glob) {
+            int wildcard = firstWildcard(glob);
+            if (wildcard < 0) {
+                addExact(poolName, glob);
+                return;
+            }
+            String prefix = glob.substring(0, wildcard);
+            Pattern rest = Pattern.compile(globToRegex(glob.substring(wildcard)), Pattern.DOTALL);
+            root.descend(prefix).rules.add(new Rule(poolName, order++, rest));
+        }
+
+        private void addRegex(String poolName, String regex) {
+            Pattern pattern = Pattern.compile(regex);
+            String prefix = literalPrefix(regex);
+            String rest = regex.startsWith("^") ? regex.substring(1) : regex;
+            // 字面前缀之后剩余的正则，只用于匹配输入中前缀之后的部分
+            Pattern restPattern = prefix.isEmpty() ? pattern : Pattern.compile(rest.substring(prefix.length()));
+            root.descend(prefix).rules.add(new Rule(poolName, order++, restPattern));
+        }
+
+        private ExpressionIndex build() {
+            return order == 0 ? EMPTY : new ExpressionIndex(root.freeze(), order);
+        }
+
+        private static int firstWildcard(String glob) {
+            for (int i = 0; i < glob.length(); i++) {
+                char c = glob.charAt(i);
+                if (c == '*' || c == '?') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static String globToRegex(String glob) {
+            StringBuilder builder = new StringBuilder();
+            StringBuilder literal = new StringBuilder();
+            for (int i = 0; i < glob.length(); i++) {
+                char c = glob.charAt(i);
+                if (c == '*' || c == '?') {
+                    if (literal.length() > 0) {
+                        builder.append(Pattern.quote(literal.toString()));
+                        literal.setLength(0);
+                    }
+                    builder.append(c == '*' ? ".*" : ".");
+                } else {
+                    literal.append(c);
+                }
+            }
+            if (literal.length() > 0) {
+                builder.append(Pattern.quote(literal.toString()));
+            }
+            return builder.toString();
+        }
+
+        /**
+         * 取正则中一定会出现在开头的字面字符，存在顶层分支或无法判断时返回空串
+         * @param regex
+         * @return
+         */
+        private static String literalPrefix(String regex) {
+            if (regex.indexOf('|') >= 0) {
+                return "";
+            }
+            int start = regex.startsWith("^") ? 1 : 0;
+            StringBuilder prefix = new StringBuilder();
+            for (int i = start; i < regex.length(); i++) {
+                char c = regex.charAt(i);
+                if (REGEX_META_CHARS.indexOf(c) >= 0) {
+                    // 下一个字符是量词时，最后一个字面字符是可选的
+                    if ((c == '*' || c == '?' || c == '{' || c == '+') && prefix.length() > 0) {
+                        prefix.setLength(prefix.length() - 1);
+                    }
+                    break;
+                }
+                prefix.append(c);
+            }
+            return prefix.toString();
+        }
+    }
+
+    private static class MutableNode {
+
+        private final TreeMap<Character, MutableNode> children = new TreeMap<>();
+
+        private final List<Rule> rules = new ArrayList<>();
+
+        private Rule exact;
+
+        private MutableNode descend(String path) {
+            MutableNode node = this;
+            for (int i = 0; i < path.length(); i++) {
+                MutableNode child = node.children.get(path.charAt(i));
+                if (child == null) {
+                    child = new MutableNode();
+                    node.children.put(path.charAt(i), child);
+                }
+                node = child;
+            }
+            return node;
+        }
+
+        private Node freeze() {
+            Node node = new Node();
+            node.keys = new char[children.size()];
+            node.children = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, MutableNode> entry : children.entrySet()) {
+                node.keys[i] = entry.getKey();
+                node.children[i] = entry.getValue().freeze();
+                i++;
+            }
+            node.rules = rules.toArray(new Rule[0]);
+            node.exact = exact;
+            return node;
+        }
+    }
+
+    /**
+     * 不可变的前缀树节点，子节点按字符排序后二分查找
+     */
+    private static class Node {
+
+        private char[] keys = new char[0];
+
+        private Node[] children = new Node[0];
+
+        private Rule[] rules = new Rule[0];
+
+        private Rule exact;
+
+        private Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        /**
+         * 校验字面前缀在offset处结束的规则，返回顺序最靠前的规则
+         */
+        private Rule verify(String input, int offset, Rule best) {
+            for (Rule rule : rules) {
+                if (best != null && rule.order >= best.order) {
+                    continue;
+                }
+                if (rule.rest.matcher(input).region(offset, input.length()).matches()) {
+                    best = rule;
+                }
+            }
+            return best;
+        }
+    }
+
+    private static class Rule {
+
+        private final String poolName;
+
+        private final int order;
+
+        /**
+         * 字面前缀之后需要校验的部分
+         */
+        private final Pattern rest;
+
+        private Rule(String poolName, int order, Pattern rest) {
+            this.poolName = poolName;
+            this.order = order;
+            this.rest = rest;
+        }
+    }
+
+}
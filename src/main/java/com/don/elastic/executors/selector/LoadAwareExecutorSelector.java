@@ -0,0 +1,135 @@
+package com.don.elastic.executors.selector;
+
+import com.don.elastic.executors.config.ExecutorProperty;
+import com.don.elastic.executors.config.ExecutorsProperty;
+import com.don.elastic.executors.excutor.MonitoringExecutor;
+import com.don.elastic.executors.factory.ElasticExecutorFactory;
+import com.don.elastic.executors.task.ExecutorTaskContext;
+import com.don.elastic.executors.util.Strings;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 负载感知选择器：表达式匹配到的线程池（或直接给出的分组名）属于某个分组时，
+ * 在组内随机取两个候选线程池，比较实时负载后选择较空闲的一个（power of two choices）
+ * @author Don Du
+ */
+public class LoadAwareExecutorSelector extends AbstractExecutorSelector implements ExecutorFactoryAware {
+
+    /**
+     * 排队等待时间折算成负载的尺度，等待这么久相当于线程池满载一次
+     */
+    private static final long QUEUE_WAIT_SCALE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private volatile ElasticExecutorFactory executorFactory;
+
+    /**
+     * 编译来源的配置列表，配置列表替换后重新计算分组
+     */
+    private volatile List<ExecutorProperty> groupedFrom;
+
+    /**
+     * 分组名或组内线程池名 -> 组内所有线程池
+     */
+    private volatile Map<String, String[]> candidates = new HashMap<>();
+
+    @Override
+    public void setExecutorFactory(ElasticExecutorFactory executorFactory) {
+        this.executorFactory = executorFactory;
+    }
+
+    @Override
+    public String selectPoolKey(ExecutorTaskContext taskContext) {
+        String poolKey = super.selectPoolKey(taskContext);
+        String[] group = groups().get(poolKey);
+        if (group == null || executorFactory == null) {
+            return poolKey;
+        }
+        if (group.length == 1) {
+            return group[0];
+        }
+        return choose(group);
+    }
+
+    /**
+     * 随机取两个不同的候选线程池，返回负载较低的一个
+     * @param group
+     * @return
+     */
+    private String choose(String[] group) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(group.length);
+        int second = random.nextInt(group.length - 1);
+        if (second >= first) {
+            second++;
+        }
+        return load(group[first]) <= load(group[second]) ? group[first] : group[second];
+    }
+
+    /**
+     * 负载 = (执行中任务数 + 排队任务数) / 最大线程数 + 排队等待时间 / 尺度
+     * @param poolName
+     * @return
+     */
+    private double load(String poolName) {
+        MonitoringExecutor executor = executorFactory.getExecutor(poolName);
+        double occupancy = (double) (executor.getActiveCount() + executor.getWorkQueueSize()) / Math.max(1, executor.getMaximumPoolSize());
+        return occupancy + (double) executor.getQueueWaitNanos() / QUEUE_WAIT_SCALE_NANOS;
+    }
+
+    private Map<String, String[]> groups() {
+        List<ExecutorProperty> propertyList = ExecutorsProperty.getExecutorPropertyList();
+        if (groupedFrom != propertyList) {
+            synchronized (this) {
+                if (groupedFrom != propertyList) {
+                    candidates = buildGroups(propertyList);
+                    groupedFrom = propertyList;
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private static Map<String, String[]> buildGroups(List<ExecutorProperty> propertyList) {
+        Map<String, List<String>> members = new LinkedHashMap<>();
+        for (ExecutorProperty property : propertyList) {
+            String group = property.getGroup();
+            if (Strings.isNotBlank(group)) {
+                List<String> pools = members.get(group);
+                if (pools == null) {
+                    pools = new ArrayList<>();
+                    members.put(group, pools);
+                }
+                if (!pools.contains(property.getPoolName())) {
+                    pools.add(property.getPoolName());
+                }
+            }
+        }
+        Map<String, String[]> groups = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : members.entrySet()) {
+            String[] pools = entry.getValue().toArray(new String[0]);
+            groups.put(entry.getKey(), pools);
+            for (String pool : pools) {
+                groups.put(pool, pools);
+            }
+        }
+        return groups;
+    }
+
+    @Override
+    protected ExecutorExpressionFunction provideFunction() {
+        return new CompiledExpressionFunction();
+    }
+
+    @Override
+    protected String select(ExecutorTaskContext taskContext) {
+        return taskContext.getTaskName();
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.don.elastic.executors.selector;
+
+import com.don.elastic.executors.config.ExecutorsProperty;
+import com.don.elastic.executors.config.RuleProperty;
+import com.don.elastic.executors.task.ExecutorTaskContext;
+
+import java.util.List;
+
+/**
+ * 基于规则的选择器，规则配置在elastic-executors.properties中（elastic.executors.rule[i]），
+ * 加载时编译为按属性建立的哈希和区间索引。没有规则命中时按任务名称匹配表达式
+ * @author Don Du
+ */
+public class RuleBasedExecutorSelector extends AbstractExecutorSelector {
+
+    /**
+     * 编译来源的规则列表，规则列表替换后重新编译
+     */
+    private volatile List<RuleProperty> compiledFrom;
+
+    private volatile RuleIndex ruleIndex = RuleIndex.empty();
+
+    @Override
+    public String selectPoolKey(ExecutorTaskContext taskContext) {
+        String poolName = rules().select(taskContext);
+        if (poolName != null) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("[RuleBasedExecutorSelector] 任务{}命中路由规则，使用线程池{}", taskContext.getTaskName(), poolName);
+            }
+            return poolName;
+        }
+        return super.selectPoolKey(taskContext);
+    }
+
+    private RuleIndex rules() {
+        List<RuleProperty> ruleList = ExecutorsProperty.getRulePropertyList();
+        if (compiledFrom != ruleList) {
+            synchronized (this) {
+                if (compiledFrom != ruleList) {
+                    ruleIndex = RuleIndex.compile(ruleList);
+                    compiledFrom = ruleList;
+                }
+            }
+        }
+        return ruleIndex;
+    }
+
+    @Override
+    protected ExecutorExpressionFunction provideFunction() {
+        return new CompiledExpressionFunction();
+    }
+
+    @Override
+    protected String select(ExecutorTaskContext taskContext) {
+        return taskContext.getTaskName();
+    }
+
+}
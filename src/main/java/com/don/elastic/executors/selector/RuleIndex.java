@@ -0,0 +1,264 @@
+package com.don.elastic.executors.selector;
+
+import com.don.elastic.executors.config.RuleProperty;
+import com.don.elastic.executors.task.ExecutorTaskContext;
+import com.don.elastic.executors.util.Strings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 编译后的路由规则索引。每个属性建立等值哈希索引和区间索引，值为命中规则的位图，
+ * 选择时对每个属性取一次位图做与运算，结果中下标最小的规则即为命中规则，
+ * 代价与属性个数成正比，与规则条数无关（位图运算按64条规则一组）
+ * @author Don Du
+ */
+public class RuleIndex {
+
+    /**
+     * 特殊属性名，取任务名称而不是任务参数
+     */
+    public static final String TASK_NAME_ATTRIBUTE = "taskName";
+
+    private static final RuleIndex EMPTY = new RuleIndex(new String[0], new AttributeIndex[0]);
+
+    /**
+     * 按优先级排序的规则对应的线程池
+     */
+    private final String[] pools;
+
+    private final AttributeIndex[] attributes;
+
+    private RuleIndex(String[] pools, AttributeIndex[] attributes) {
+        this.pools = pools;
+        this.attributes = attributes;
+    }
+
+    public static RuleIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 按规则顺序编译
+     * @param rules
+     * @return
+     */
+    public static RuleIndex compile(List<RuleProperty> rules) {
+        if (rules.isEmpty()) {
+            return EMPTY;
+        }
+        String[] pools = new String[rules.size()];
+        Map<String, AttributeBuilder> builders = new LinkedHashMap<>();
+        for (int i = 0; i < rules.size(); i++) {
+            pools[i] = rules.get(i).getPool();
+            for (String attribute : rules.get(i).getConditions().keySet()) {
+                if (!builders.containsKey(attribute)) {
+                    builders.put(attribute, new AttributeBuilder(attribute, rules.size()));
+                }
+            }
+        }
+        for (int i = 0; i < rules.size(); i++) {
+            Map<String, String> conditions = rules.get(i).getConditions();
+            for (AttributeBuilder builder : builders.values()) {
+                builder.add(i, conditions.get(builder.attribute));
+            }
+        }
+        AttributeIndex[] attributes = new AttributeIndex[builders.size()];
+        int i = 0;
+        for (AttributeBuilder builder : builders.values()) {
+            attributes[i++] = builder.build();
+        }
+        return new RuleIndex(pools, attributes);
+    }
+
+    /**
+     * 选择线程池
+     * @param taskContext
+     * @return 命中规则的线程池，没有命中时返回null
+     */
+    public String select(ExecutorTaskContext taskContext) {
+        if (pools.length == 0) {
+            return null;
+        }
+        Map<Object, Object> parameters = taskContext.getParameters();
+        BitSet matched = null;
+        for (AttributeIndex attribute : attributes) {
+            Object value = TASK_NAME_ATTRIBUTE.equals(attribute.name) ? taskContext.getTaskName()
+                    : parameters == null ? null : parameters.get(attribute.name);
+            BitSet candidates = attribute.candidates(value);
+            if (matched == null) {
+                matched = (BitSet) candidates.clone();
+            } else {
+                matched.and(candidates);
+            }
+            if (matched.isEmpty()) {
+                return null;
+            }
+        }
+        int rule = matched == null ? 0 : matched.nextSetBit(0);
+        return rule < 0 ? null : pools[rule];
+    }
+
+    public int getRuleCount() {
+        return pools.length;
+    }
+
+    /**
+     * 单个属性的索引
+     */
+    private static class AttributeIndex {
+
+        private final String name;
+
+        /**
+         * 没有约束该属性的规则
+         */
+        private final BitSet wildcard;
+
+        /**
+         * 等值条件：值 -> 规则位图（已合并wildcard）
+         */
+        private final Map<String, BitSet> equals;
+
+        /**
+         * 区间端点，升序
+         */
+        private final double[] boundaries;
+
+        /**
+         * 第k段 [boundaries[k-1], boundaries[k]) 命中的规则位图（已合并wildcard）
+         */
+        private final BitSet[] segments;
+
+        private AttributeIndex(String name, BitSet wildcard, Map<String, BitSet> equals, double[] boundaries, BitSet[] segments) {
+            this.name = name;
+            this.wildcard = wildcard;
+            this.equals = equals;
+            this.boundaries = boundaries;
+            this.segments = segments;
+        }
+
+        private BitSet candidates(Object value) {
+            if (value == null) {
+                return wildcard;
+            }
+            String text = value.toString();
+            BitSet byEquals = equals.get(text);
+            if (segments.length == 0) {
+                return byEquals != null ? byEquals : wildcard;
+            }
+            BitSet byRange = segment(value, text);
+            if (byEquals == null) {
+                return byRange;
+            }
+            BitSet union = (BitSet) byEquals.clone();
+            union.or(byRange);
+            return union;
+        }
+
+        private BitSet segment(Object value, String text) {
+            double number;
+            if (value instanceof Number) {
+                number = ((Number) value).doubleValue();
+            } else {
+                try {
+                    number = Double.parseDouble(text);
+                } catch (NumberFormatException ex) {
+                    return wildcard;
+                }
+            }
+            // 小于等于number的端点个数即为所在的段
+            int index = Arrays.binarySearch(boundaries, number);
+            index = index >= 0 ? index + 1 : -index - 1;
+            return segments[index];
+        }
+    }
+
+    private static class AttributeBuilder {
+
+        private final String attribute;
+
+        private final BitSet wildcard;
+
+        private final Map<String, BitSet> equals = new HashMap<>();
+
+        private final List<double[]> ranges = new ArrayList<>();
+
+        private final List<Integer> rangeRules = new ArrayList<>();
+
+        private AttributeBuilder(String attribute, int size) {
+            this.attribute = attribute;
+            this.wildcard = new BitSet(size);
+        }
+
+        private void add(int rule, String condition) {
+            if (Strings.isBlank(condition)) {
+                wildcard.set(rule);
+                return;
+            }
+            condition = condition.trim();
+            if (condition.startsWith("[") && condition.endsWith(")")) {
+                String[] bounds = condition.substring(1, condition.length() - 1).split(",", -1);
+                if (bounds.length != 2) {
+                    throw new IllegalArgumentException("非法的区间条件: " + condition);
+                }
+                double lower = Strings.isBlank(bounds[0]) ? Double.NEGATIVE_INFINITY : Double.parseDouble(bounds[0].trim());
+                double upper = Strings.isBlank(bounds[1]) ? Double.POSITIVE_INFINITY : Double.parseDouble(bounds[1].trim());
+                ranges.add(new double[]{lower, upper});
+                rangeRules.add(rule);
+                return;
+            }
+            for (String value : condition.split(",")) {
+                if (Strings.isNotBlank(value)) {
+                    BitSet rules = equals.get(value.trim());
+                    if (rules == null) {
+                        rules = new BitSet();
+                        equals.put(value.trim(), rules);
+                    }
+                    rules.set(rule);
+                }
+            }
+        }
+
+        private AttributeIndex build() {
+            for (BitSet rules : equals.values()) {
+                rules.or(wildcard);
+            }
+            TreeSet<Double> points = new TreeSet<>();
+            for (double[] range : ranges) {
+                if (!Double.isInfinite(range[0])) {
+                    points.add(range[0]);
+                }
+                if (!Double.isInfinite(range[1])) {
+                    points.add(range[1]);
+                }
+            }
+            double[] boundaries = new double[points.size()];
+            int i = 0;
+            for (Double point : points) {
+                boundaries[i++] = point;
+            }
+            BitSet[] segments = new BitSet[ranges.isEmpty() ? 0 : boundaries.length + 1];
+            for (int k = 0; k < segments.length; k++) {
+                double start = k == 0 ? Double.NEGATIVE_INFINITY : boundaries[k - 1];
+                double end = k == boundaries.length ? Double.POSITIVE_INFINITY : boundaries[k];
+                BitSet rules = (BitSet) wildcard.clone();
+                for (int r = 0; r < ranges.size(); r++) {
+                    double[] range = ranges.get(r);
+                    if (range[0] <= start && end <= range[1]) {
+                        rules.set(rangeRules.get(r));
+                    }
+                }
+                segments[k] = rules;
+            }
+            return new AttributeIndex(attribute, wildcard, equals, boundaries, segments);
+        }
+    }
+
+}
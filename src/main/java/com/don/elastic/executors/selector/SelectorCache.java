@@ -0,0 +1,210 @@
+package com.don.elastic.executors.selector;
+
+import com.don.elastic.executors.metrics.CacheStats;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有界的选择器结果缓存，淘汰策略参考W-TinyLFU：
+ * 新数据先进入1%大小的窗口LRU，被挤出窗口时和主区（SLRU）的淘汰候选比较访问频率，频率更高的留下。
+ * 没有匹配任何表达式的结果同样缓存（{@link #NO_MATCH}），配置变化时通过{@link #invalidateAll()}整体原子替换。
+ * 读操作无锁，访问记录在锁竞争时直接丢弃
+ * @author Don Du
+ */
+public class SelectorCache {
+
+    /**
+     * 缓存“没有匹配”的结果，按引用比较
+     */
+    public static final String NO_MATCH = new String("<no-match>");
+
+    private final int capacity;
+
+    private volatile Store store;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder negativeHitCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    public SelectorCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity <= 0");
+        }
+        this.capacity = capacity;
+        this.store = new Store(0);
+    }
+
+    /**
+     * 查询缓存
+     * @param key
+     * @return 未缓存时返回null，缓存了没有匹配的结果时返回{@link #NO_MATCH}
+     */
+    public String get(String key) {
+        Store current = store;
+        String value = current.data.get(key);
+        if (value == null) {
+            missCount.increment();
+            current.recordMiss(key);
+            return null;
+        }
+        hitCount.increment();
+        if (value == NO_MATCH) {
+            negativeHitCount.increment();
+        }
+        current.recordHit(key);
+        return value;
+    }
+
+    /**
+     * 当前缓存代数，计算结果前读取，写入时代数已变化说明缓存已经失效，结果直接丢弃
+     * @return
+     */
+    public long getGeneration() {
+        return store.generation;
+    }
+
+    /**
+     * 写入缓存
+     * @param key
+     * @param value 线程池名称或{@link #NO_MATCH}
+     * @param generation 计算前读取的缓存代数
+     */
+    public void put(String key, String value, long generation) {
+        Store current = store;
+        if (current.generation == generation) {
+            current.put(key, value);
+        }
+    }
+
+    /**
+     * 原子地清空缓存
+     */
+    public synchronized void invalidateAll() {
+        store = new Store(store.generation + 1);
+    }
+
+    public int size() {
+        return store.data.size();
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hitCount.sum(), missCount.sum(), negativeHitCount.sum(), evictionCount.sum(), size(), capacity);
+    }
+
+    /**
+     * 一代缓存数据及其淘汰策略
+     */
+    private class Store {
+
+        private final long generation;
+
+        private final ConcurrentHashMap<String, String> data;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final FrequencySketch sketch;
+
+        private final LinkedHashMap<String, Boolean> window = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final LinkedHashMap<String, Boolean> probation = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final LinkedHashMap<String, Boolean> protect = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final int windowMax;
+
+        private final int mainMax;
+
+        private final int protectMax;
+
+        private Store(long generation) {
+            this.generation = generation;
+            this.data = new ConcurrentHashMap<>(Math.min(capacity, 1024));
+            this.sketch = new FrequencySketch(capacity);
+            this.windowMax = Math.max(1, capacity / 100);
+            this.mainMax = Math.max(1, capacity - windowMax);
+            this.protectMax = Math.max(1, mainMax * 8 / 10);
+        }
+
+        private void recordMiss(String key) {
+            if (lock.tryLock()) {
+                try {
+                    sketch.increment(key);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        private void recordHit(String key) {
+            if (!lock.tryLock()) {
+                return;
+            }
+            try {
+                sketch.increment(key);
+                if (window.get(key) != null || protect.get(key) != null) {
+                    return;
+                }
+                if (probation.remove(key) != null) {
+                    protect.put(key, Boolean.TRUE);
+                    if (protect.size() > protectMax) {
+                        String demoted = eldest(protect);
+                        protect.remove(demoted);
+                        probation.put(demoted, Boolean.TRUE);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void put(String key, String value) {
+            lock.lock();
+            try {
+                if (data.putIfAbsent(key, value) != null) {
+                    return;
+                }
+                window.put(key, Boolean.TRUE);
+                if (window.size() > windowMax) {
+                    String candidate = eldest(window);
+                    window.remove(candidate);
+                    admit(candidate);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 窗口淘汰出来的数据尝试进入主区
+         * @param candidate
+         */
+        private void admit(String candidate) {
+            if (probation.size() + protect.size() < mainMax) {
+                probation.put(candidate, Boolean.TRUE);
+                return;
+            }
+            LinkedHashMap<String, Boolean> segment = probation.isEmpty() ? protect : probation;
+            String victim = eldest(segment);
+            if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+                segment.remove(victim);
+                data.remove(victim);
+                probation.put(candidate, Boolean.TRUE);
+            } else {
+                data.remove(candidate);
+            }
+            evictionCount.increment();
+        }
+
+        private String eldest(LinkedHashMap<String, Boolean> segment) {
+            return segment.keySet().iterator().next();
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.don.elastic.executors.task;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 紧凑的不可变任务上下文：任务名称驻留为{@link TaskSymbol}，参数存放在扁平数组中，
+ * 哈希值预先计算，可以在多次提交之间共享
+ * @author Don Du
+ */
+public final class CompactExecutorTaskContext extends ExecutorTaskContext {
+
+    private final TaskSymbol symbol;
+
+    private final int hash;
+
+    CompactExecutorTaskContext(TaskSymbol symbol, FlatParameterMap parameters) {
+        super(symbol.getName(), parameters);
+        this.symbol = symbol;
+        this.hash = 31 * symbol.hashCode() + parameters.hashCode();
+    }
+
+    /**
+     * 不带参数的共享上下文
+     * @param taskName
+     * @return
+     */
+    public static CompactExecutorTaskContext of(String taskName) {
+        return TaskSymbol.of(taskName).context();
+    }
+
+    /**
+     * 复制一个上下文
+     * @param taskName
+     * @param parameters
+     * @return
+     */
+    public static CompactExecutorTaskContext of(String taskName, Map<?, ?> parameters) {
+        TaskSymbol symbol = TaskSymbol.of(taskName);
+        if (parameters == null || parameters.isEmpty()) {
+            return symbol.context();
+        }
+        return new CompactExecutorTaskContext(symbol, FlatParameterMap.copyOf(parameters));
+    }
+
+    public static Builder newBuilder(String taskName) {
+        return new Builder(taskName);
+    }
+
+    public TaskSymbol getTaskSymbol() {
+        return symbol;
+    }
+
+    @Override
+    public void setTaskName(String taskName) {
+        throw new UnsupportedOperationException("CompactExecutorTaskContext is immutable");
+    }
+
+    @Override
+    public void setParameters(Map<Object, Object> parameters) {
+        throw new UnsupportedOperationException("CompactExecutorTaskContext is immutable");
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof CompactExecutorTaskContext)) {
+            return false;
+        }
+        CompactExecutorTaskContext other = (CompactExecutorTaskContext) object;
+        return hash == other.hash && symbol.equals(other.symbol) && getParameters().equals(other.getParameters());
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactExecutorTaskContext[taskName=" + symbol + ", parameters=" + getParameters() + "]";
+    }
+
+    public static class Builder {
+
+        private final TaskSymbol symbol;
+
+        private Object[] table = new Object[8];
+
+        private int size;
+
+        private Builder(String taskName) {
+            this.symbol = TaskSymbol.of(taskName);
+        }
+
+        public Builder parameter(Object key, Object value) {
+            for (int i = 0; i < size; i += 2) {
+                if (table[i] == null ? key == null : table[i].equals(key)) {
+                    table[i + 1] = value;
+                    return this;
+                }
+            }
+            if (size == table.length) {
+                table = Arrays.copyOf(table, table.length * 2);
+            }
+            table[size++] = key;
+            table[size++] = value;
+            return this;
+        }
+
+        public CompactExecutorTaskContext build() {
+            if (size == 0) {
+                return symbol.context();
+            }
+            return new CompactExecutorTaskContext(symbol, FlatParameterMap.wrap(Arrays.copyOf(table, size)));
+        }
+    }
+
+}
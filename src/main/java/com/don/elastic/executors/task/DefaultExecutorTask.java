@@ -38,6 +38,7 @@ public class DefaultExecutorTask<V> implements ExecutorTask<V> {
             case SUCCESS:
             case FAILURE:
             case COMPLETED:
+            case SHED:
             default:
 
         }
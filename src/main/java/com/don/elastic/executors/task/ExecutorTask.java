@@ -63,7 +63,12 @@ public interface ExecutorTask<V> extends Callable<V> {
         /**
          * 已完成
          */
-        COMPLETED
+        COMPLETED,
+
+        /**
+         * 排队中被更高优先级的任务挤出
+         */
+        SHED
     }
 
 }
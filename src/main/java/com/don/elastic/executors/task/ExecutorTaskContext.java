@@ -9,6 +9,16 @@ import java.util.Map;
  */
 public class ExecutorTaskContext {
 
+    /**
+     * 任务优先级参数名，数值越大越重要
+     */
+    public static final String PRIORITY = "priority";
+
+    /**
+     * 没有设置优先级时的默认优先级
+     */
+    public static final int DEFAULT_PRIORITY = 0;
+
     private String taskName;
 
     private Map<Object, Object> parameters;
@@ -33,4 +43,24 @@ public class ExecutorTaskContext {
     public void setParameters(Map<Object, Object> parameters) {
         this.parameters = parameters;
     }
+
+    /**
+     * 任务优先级，取参数{@link #PRIORITY}，可以是数字或者数字字符串，没有设置时为{@link #DEFAULT_PRIORITY}
+     * @return
+     */
+    public int getPriority() {
+        Map<Object, Object> parameters = getParameters();
+        Object priority = parameters == null ? null : parameters.get(PRIORITY);
+        if (priority instanceof Number) {
+            return ((Number) priority).intValue();
+        }
+        if (priority instanceof String) {
+            try {
+                return Integer.parseInt(((String) priority).trim());
+            } catch (NumberFormatException ex) {
+                return DEFAULT_PRIORITY;
+            }
+        }
+        return DEFAULT_PRIORITY;
+    }
 }
@@ -0,0 +1,134 @@
+package com.don.elastic.executors.task;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * 不可变的扁平参数表，键值交替存放在一个数组里，参数较少时线性查找比哈希表更快、更省内存
+ * @author Don Du
+ */
+public final class FlatParameterMap extends AbstractMap<Object, Object> {
+
+    private static final FlatParameterMap EMPTY = new FlatParameterMap(new Object[0]);
+
+    /**
+     * k0, v0, k1, v1 ...
+     */
+    private final Object[] table;
+
+    private final int hash;
+
+    private FlatParameterMap(Object[] table) {
+        this.table = table;
+        int h = 0;
+        for (int i = 0; i < table.length; i += 2) {
+            h += hash(table[i]) ^ hash(table[i + 1]);
+        }
+        this.hash = h;
+    }
+
+    public static FlatParameterMap empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 复制参数表，键重复时保留后面的值
+     * @param parameters
+     * @return
+     */
+    public static FlatParameterMap copyOf(Map<?, ?> parameters) {
+        if (parameters == null || parameters.isEmpty()) {
+            return EMPTY;
+        }
+        if (parameters instanceof FlatParameterMap) {
+            return (FlatParameterMap) parameters;
+        }
+        Object[] table = new Object[parameters.size() * 2];
+        int i = 0;
+        for (Map.Entry<?, ?> entry : parameters.entrySet()) {
+            table[i++] = entry.getKey();
+            table[i++] = entry.getValue();
+        }
+        return new FlatParameterMap(table);
+    }
+
+    /**
+     * 由键值交替的数组创建，数组不会被复制
+     */
+    static FlatParameterMap wrap(Object[] table) {
+        return table.length == 0 ? EMPTY : new FlatParameterMap(table);
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : table[index + 1];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return table.length >> 1;
+    }
+
+    @Override
+    public Set<Entry<Object, Object>> entrySet() {
+        return new AbstractSet<Entry<Object, Object>>() {
+            @Override
+            public Iterator<Entry<Object, Object>> iterator() {
+                return new Iterator<Entry<Object, Object>>() {
+
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < table.length;
+                    }
+
+                    @Override
+                    public Entry<Object, Object> next() {
+                        if (index >= table.length) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<Object, Object> entry = new SimpleImmutableEntry<>(table[index], table[index + 1]);
+                        index += 2;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return table.length >> 1;
+            }
+        };
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < table.length; i += 2) {
+            Object current = table[i];
+            if (current == key || (current != null && current.equals(key))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int hash(Object object) {
+        return object == null ? 0 : object.hashCode();
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.don.elastic.executors.task;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * 排队中的任务在线程池饱和时被更高优先级的任务挤出
+ * @author Don Du
+ */
+public class TaskShedException extends CancellationException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TaskShedException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.don.elastic.executors.task;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 驻留的任务名称：相同名称共享同一个实例和字符串，哈希值预先计算，
+ * 选择器缓存查找时可以直接走引用比较
+ * @author Don Du
+ */
+public final class TaskSymbol {
+
+    /**
+     * 最多驻留的名称个数，超过后不再驻留，避免任意任务名称导致内存无限增长
+     */
+    private static final int MAX_SYMBOLS = 1 << 16;
+
+    private static final ConcurrentMap<String, TaskSymbol> SYMBOLS = new ConcurrentHashMap<>();
+
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    /**
+     * 驻留id，未驻留的名称为-1
+     */
+    private final int id;
+
+    private final String name;
+
+    private final int hash;
+
+    /**
+     * 不带参数的共享上下文
+     */
+    private final CompactExecutorTaskContext context;
+
+    private TaskSymbol(int id, String name) {
+        this.id = id;
+        this.name = name;
+        this.hash = name.hashCode();
+        this.context = new CompactExecutorTaskContext(this, FlatParameterMap.empty());
+    }
+
+    /**
+     * 驻留任务名称
+     * @param name
+     * @return
+     */
+    public static TaskSymbol of(String name) {
+        if (name == null) {
+            throw new NullPointerException("name == null");
+        }
+        TaskSymbol symbol = SYMBOLS.get(name);
+        if (symbol != null) {
+            return symbol;
+        }
+        if (SYMBOLS.size() >= MAX_SYMBOLS) {
+            return new TaskSymbol(-1, name);
+        }
+        TaskSymbol created = new TaskSymbol(NEXT_ID.getAndIncrement(), name);
+        symbol = SYMBOLS.putIfAbsent(name, created);
+        return symbol == null ? created : symbol;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 不带参数的共享任务上下文
+     * @return
+     */
+    public CompactExecutorTaskContext context() {
+        return context;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof TaskSymbol)) {
+            return false;
+        }
+        TaskSymbol other = (TaskSymbol) object;
+        return (id >= 0 && id == other.id) || name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
@@ -0,0 +1,232 @@
+package com.don.elastic.executors.tuning;
+
+import com.don.elastic.executors.config.ExecutorConfig;
+import com.don.elastic.executors.config.ExecutorsConfig;
+import com.don.elastic.executors.config.ExecutorsProperty;
+import com.don.elastic.executors.excutor.ElasticExecutor;
+import com.don.elastic.executors.excutor.NamedThreadFactory;
+import com.don.elastic.executors.queue.ResizableBlockingQueue;
+import com.don.elastic.executors.util.Asserts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 线程池自动伸缩，所有线程池共用一个调度线程，按固定间隔采样每个线程池的利用率、排队数、排队等待时间和拒绝数，
+ * 对照线程池的latencySlo调整线程数和队列容量。
+ * 连续多次采样方向一致才调整(滞回)，每次调整有步长上限，同一个线程池两次调整之间有冷却时间
+ * @author Don Du
+ */
+public class PoolAutoscaler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PoolAutoscaler.class);
+
+    /**
+     * 线程数已经到达上限仍然拒绝任务时，队列容量每次增长的比例
+     */
+    private static final double QUEUE_GROWTH_RATIO = 0.25;
+
+    /**
+     * 每个线程池的控制状态，只在调度线程中访问
+     */
+    private final Map<String, PoolState> states = new HashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    private Supplier<Collection<ElasticExecutor>> source;
+
+    /**
+     * 按配置的采样间隔启动
+     * @param source
+     */
+    public synchronized void start(Supplier<Collection<ElasticExecutor>> source) {
+        Asserts.notNull(source, "source == null");
+        if (scheduler != null) {
+            return;
+        }
+        this.source = source;
+        long interval = ExecutorsProperty.getAutoscaleInterval();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("elastic-executors-autoscaler", true));
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    tick(PoolAutoscaler.this.source.get(), System.nanoTime());
+                } catch (Exception ex) {
+                    LOGGER.warn("[PoolAutoscaler] 自动伸缩执行失败", ex);
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        scheduler = executor;
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("[PoolAutoscaler] 启动自动伸缩，采样间隔: {}ms", interval);
+        }
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * 采样一次所有线程池并做出调整
+     * @param executors
+     * @param nowNanos
+     */
+    void tick(Collection<ElasticExecutor> executors, long nowNanos) {
+        ExecutorsConfig config = ExecutorsProperty.snapshot();
+        Map<String, ElasticExecutor> alive = new HashMap<>();
+        for (ElasticExecutor executor : executors) {
+            ExecutorConfig executorConfig = config.getExecutorConfig(executor.getPoolName());
+            if (executorConfig == null || executor.isShutdown()) {
+                continue;
+            }
+            alive.put(executor.getPoolName(), executor);
+            PoolState state = states.get(executor.getPoolName());
+            if (state == null) {
+                state = new PoolState(executor.getRejectedTaskCount());
+                states.put(executor.getPoolName(), state);
+            }
+            control(executor, executorConfig, state, nowNanos);
+        }
+        for (Iterator<String> iterator = states.keySet().iterator(); iterator.hasNext(); ) {
+            if (!alive.containsKey(iterator.next())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void control(ElasticExecutor executor, ExecutorConfig config, PoolState state, long nowNanos) {
+        int poolSize = executor.getPoolSize();
+        int active = executor.getActiveCount();
+        int queueSize = executor.getWorkQueueSize();
+        long queueWaitMillis = TimeUnit.NANOSECONDS.toMillis(executor.getQueueWaitNanos());
+        long rejected = executor.getRejectedTaskCount();
+        long rejectedDelta = rejected - state.lastRejected;
+        state.lastRejected = rejected;
+        double utilization = poolSize == 0 ? 0 : (double) active / poolSize;
+        long slo = config.getLatencySlo();
+
+        int direction = 0;
+        if (rejectedDelta > 0 || (slo > 0 && queueWaitMillis > slo)
+                || (utilization >= ExecutorsProperty.getAutoscaleHighUtilization() && queueSize > 0)) {
+            direction = 1;
+        } else if (queueSize == 0 && utilization <= ExecutorsProperty.getAutoscaleLowUtilization()
+                && (slo <= 0 || queueWaitMillis * 2 < slo)) {
+            direction = -1;
+        }
+        // 滞回：方向变化时重新计数
+        if (direction == 0 || direction != state.direction) {
+            state.direction = direction;
+            state.ticks = direction == 0 ? 0 : 1;
+        } else {
+            state.ticks++;
+        }
+        if (direction == 0 || state.ticks < ExecutorsProperty.getAutoscaleStableTicks()) {
+            return;
+        }
+        if (state.lastActionNanos != 0 && nowNanos - state.lastActionNanos < TimeUnit.MILLISECONDS.toNanos(ExecutorsProperty.getAutoscaleCooldown())) {
+            return;
+        }
+
+        String reason = "utilization=" + String.format("%.2f", utilization) + ", queueSize=" + queueSize
+                + ", queueWait=" + queueWaitMillis + "ms, slo=" + slo + "ms, rejected=" + rejectedDelta;
+        boolean changed = direction > 0 ? scaleUp(executor, config, rejectedDelta > 0, reason) : scaleDown(executor, config, reason);
+        if (changed) {
+            state.lastActionNanos = nowNanos;
+        }
+        state.ticks = 0;
+    }
+
+    private boolean scaleUp(ElasticExecutor executor, ExecutorConfig config, boolean rejecting, String reason) {
+        int step = ExecutorsProperty.getAutoscaleMaxStep();
+        int core = executor.getCorePoolSize();
+        int max = executor.getMaximumPoolSize();
+        int newMax = Math.min(config.getMaxPoolSizeLimit(), max + step);
+        int newCore = Math.min(newMax, core + step);
+        if (newMax != max || newCore != core) {
+            // 扩容先调最大线程数
+            if (newMax != max) {
+                executor.setMaximumPoolSize(newMax);
+            }
+            if (newCore != core) {
+                executor.setCorePoolSize(newCore);
+            }
+            log(executor, "扩容", core, newCore, max, newMax, reason);
+            return true;
+        }
+        int capacity = executor.getWorkQueueCapacity();
+        if (rejecting && capacity < config.getMaxQueueCapacity() && executor.getWorkQueue() instanceof ResizableBlockingQueue) {
+            int newCapacity = (int) Math.min(config.getMaxQueueCapacity(), capacity + Math.max(1, (long) (capacity * QUEUE_GROWTH_RATIO)));
+            executor.setWorkQueueCapacity(newCapacity);
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.info("[PoolAutoscaler] 线程池{}线程数已到上限，队列容量: {} -> {}, 原因: {}", executor.getPoolName(), capacity, newCapacity, reason);
+            }
+            return true;
+        }
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("[PoolAutoscaler] 线程池{}需要扩容但已经到达上限, 原因: {}", executor.getPoolName(), reason);
+        }
+        return false;
+    }
+
+    private boolean scaleDown(ElasticExecutor executor, ExecutorConfig config, String reason) {
+        int step = ExecutorsProperty.getAutoscaleMaxStep();
+        int core = executor.getCorePoolSize();
+        int max = executor.getMaximumPoolSize();
+        int newCore = Math.max(config.getMinPoolSize(), core - step);
+        // 最大线程数最多缩回静态配置值
+        int newMax = Math.max(Math.max(newCore, Math.min(max, config.getMaximumPoolSize())), max - step);
+        int capacity = executor.getWorkQueueCapacity();
+        int newCapacity = Math.max(config.getQueueCapacity(), Math.min(capacity, config.getMaxQueueCapacity()));
+        if (newCore == core && newMax == max && newCapacity == capacity) {
+            return false;
+        }
+        // 缩容先调核心线程数
+        if (newCore != core) {
+            executor.setCorePoolSize(newCore);
+        }
+        if (newMax != max) {
+            executor.setMaximumPoolSize(newMax);
+        }
+        if (newCapacity != capacity) {
+            executor.setWorkQueueCapacity(newCapacity);
+        }
+        log(executor, "缩容", core, newCore, max, newMax, reason + ", queueCapacity=" + capacity + "->" + newCapacity);
+        return true;
+    }
+
+    private void log(ElasticExecutor executor, String action, int core, int newCore, int max, int newMax, String reason) {
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("[PoolAutoscaler] 线程池{}{}, corePoolSize: {} -> {}, maximumPoolSize: {} -> {}, 原因: {}",
+                    executor.getPoolName(), action, core, newCore, max, newMax, reason);
+        }
+    }
+
+    private static final class PoolState {
+
+        private long lastRejected;
+
+        private int direction;
+
+        private int ticks;
+
+        private long lastActionNanos;
+
+        private PoolState(long lastRejected) {
+            this.lastRejected = lastRejected;
+        }
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.don.elastic.executors.tuning;
+
+import com.don.elastic.executors.config.ExecutorConfig;
+import com.don.elastic.executors.config.ExecutorsConfig;
+import com.don.elastic.executors.config.ExecutorsProperty;
+import com.don.elastic.executors.excutor.ElasticExecutor;
+import com.don.elastic.executors.excutor.NamedThreadFactory;
+import com.don.elastic.executors.util.Asserts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 全局线程预算，所有线程池的maximumPoolSize之和不超过预算。
+ * 按需创建的线程池没有配置，保持默认的线程数，从预算中预留。
+ * 定期按需求重新分配：每个线程池先得到minPoolSize，剩余预算优先满足繁忙线程池的需求(执行中+排队中)，
+ * 再按静态配置的maximumPoolSize比例分给其他线程池作为突发余量，单个线程池不超过maxPoolSizeLimit
+ * @author Don Du
+ */
+public class ThreadBudget {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThreadBudget.class);
+
+    private final int budget;
+
+    private ScheduledExecutorService scheduler;
+
+    private Supplier<Collection<ElasticExecutor>> source;
+
+    public ThreadBudget(int budget) {
+        Asserts.isFalse(budget <= 0, "budget <= 0");
+        this.budget = budget;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    public synchronized void start(Supplier<Collection<ElasticExecutor>> source, long interval, TimeUnit unit) {
+        Asserts.notNull(source, "source == null");
+        if (scheduler != null) {
+            return;
+        }
+        this.source = source;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("elastic-executors-thread-budget", true));
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    rebalance(ThreadBudget.this.source.get());
+                } catch (Exception ex) {
+                    LOGGER.warn("[ThreadBudget] 线程预算分配失败", ex);
+                }
+            }
+        }, 0, interval, unit);
+        scheduler = executor;
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("[ThreadBudget] 启动全局线程预算: {}, 分配间隔: {}{}", budget, interval, unit);
+        }
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * 重新分配一次预算
+     * @param executors
+     */
+    void rebalance(Collection<ElasticExecutor> executors) {
+        ExecutorsConfig snapshot = ExecutorsProperty.snapshot();
+        List<ElasticExecutor> pools = new ArrayList<>();
+        List<ExecutorConfig> configs = new ArrayList<>();
+        // 按需创建的线程池没有配置，不参与分配，它们的最大线程数从预算中预留
+        int reserved = 0;
+        for (ElasticExecutor executor : executors) {
+            if (executor.isShutdown()) {
+                continue;
+            }
+            ExecutorConfig config = snapshot.getExecutorConfig(executor.getPoolName());
+            if (config != null) {
+                pools.add(executor);
+                configs.add(config);
+            } else {
+                reserved += executor.getMaximumPoolSize();
+            }
+        }
+        int size = pools.size();
+        if (size == 0) {
+            return;
+        }
+
+        int[] allocation = new int[size];
+        int[] demand = new int[size];
+        int remaining = budget - reserved;
+        for (int i = 0; i < size; i++) {
+            ExecutorConfig config = configs.get(i);
+            ElasticExecutor executor = pools.get(i);
+            allocation[i] = config.getMinPoolSize();
+            remaining -= allocation[i];
+            // 需求：执行中+排队中，限制在[minPoolSize, maxPoolSizeLimit]
+            demand[i] = config.boundPoolSize(executor.getActiveCount() + executor.getWorkQueueSize());
+        }
+        if (remaining < 0 && LOGGER.isWarnEnabled()) {
+            LOGGER.warn("[ThreadBudget] 所有线程池的minPoolSize之和超过线程预算{}，只保证minPoolSize", budget);
+        }
+
+        // 先满足需求，预算不够时按未满足的需求比例分配
+        remaining = distribute(allocation, demand, remaining);
+        // 剩余预算按静态maximumPoolSize比例作为突发余量
+        int[] headroom = new int[size];
+        for (int i = 0; i < size; i++) {
+            headroom[i] = Math.max(allocation[i], configs.get(i).boundPoolSize(configs.get(i).getMaximumPoolSize()));
+        }
+        remaining = distribute(allocation, headroom, remaining);
+        int[] ceiling = new int[size];
+        for (int i = 0; i < size; i++) {
+            ceiling[i] = configs.get(i).getMaxPoolSizeLimit();
+        }
+        distribute(allocation, ceiling, remaining);
+
+        for (int i = 0; i < size; i++) {
+            apply(pools.get(i), configs.get(i), allocation[i]);
+        }
+    }
+
+    /**
+     * 把预算按(target - allocation)的比例分配，分配后不超过target
+     * @return 剩余预算
+     */
+    private static int distribute(int[] allocation, int[] target, int remaining) {
+        if (remaining <= 0) {
+            return remaining;
+        }
+        long want = 0;
+        for (int i = 0; i < allocation.length; i++) {
+            want += Math.max(0, target[i] - allocation[i]);
+        }
+        if (want == 0) {
+            return remaining;
+        }
+        if (want <= remaining) {
+            for (int i = 0; i < allocation.length; i++) {
+                allocation[i] = Math.max(allocation[i], target[i]);
+            }
+            return (int) (remaining - want);
+        }
+        int given = 0;
+        for (int i = 0; i < allocation.length; i++) {
+            int gap = Math.max(0, target[i] - allocation[i]);
+            int share = (int) (gap * (long) remaining / want);
+            allocation[i] += share;
+            given += share;
+        }
+        // 取整剩下的逐个分给还有缺口的线程池
+        for (int i = 0; i < allocation.length && given < remaining; i++) {
+            if (allocation[i] < target[i]) {
+                allocation[i]++;
+                given++;
+            }
+        }
+        return remaining - given;
+    }
+
+    /**
+     * 调整最大线程数，核心线程数不超过静态配置也不超过分配值
+     */
+    private void apply(ElasticExecutor executor, ExecutorConfig config, int allocation) {
+        int max = executor.getMaximumPoolSize();
+        int core = executor.getCorePoolSize();
+        int newCore = Math.min(config.getCorePoolSize(), allocation);
+        if (allocation == max && newCore == core) {
+            return;
+        }
+        if (allocation >= max) {
+            if (allocation != max) {
+                executor.setMaximumPoolSize(allocation);
+            }
+            if (newCore != core) {
+                executor.setCorePoolSize(newCore);
+            }
+        } else {
+            if (newCore != core) {
+                executor.setCorePoolSize(newCore);
+            }
+            executor.setMaximumPoolSize(allocation);
+        }
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("[ThreadBudget] 线程池{}, maximumPoolSize: {} -> {}, corePoolSize: {} -> {}, 执行中: {}, 排队: {}",
+                    executor.getPoolName(), max, allocation, core, newCore, executor.getActiveCount(), executor.getWorkQueueSize());
+        }
+    }
+
+}
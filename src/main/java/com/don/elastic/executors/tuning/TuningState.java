@@ -0,0 +1,106 @@
+package com.don.elastic.executors.tuning;
+
+import com.don.elastic.executors.config.ExecutorConfig;
+
+/**
+ * 单个线程池某一时刻的有效参数和负载画像
+ * @author Don Du
+ */
+public final class TuningState {
+
+    private final String poolName;
+
+    /**
+     * 保存时静态配置的指纹，配置被修改后旧的调优结果不再适用
+     */
+    private final int fingerprint;
+
+    private final int corePoolSize;
+
+    private final int maximumPoolSize;
+
+    private final int queueCapacity;
+
+    private final int largestPoolSize;
+
+    private final long queueWaitNanos;
+
+    /**
+     * 两次快照之间每秒完成的任务数
+     */
+    private final double throughput;
+
+    private final long savedAtMillis;
+
+    public TuningState(String poolName, int fingerprint, int corePoolSize, int maximumPoolSize, int queueCapacity,
+                       int largestPoolSize, long queueWaitNanos, double throughput, long savedAtMillis) {
+        this.poolName = poolName;
+        this.fingerprint = fingerprint;
+        this.corePoolSize = corePoolSize;
+        this.maximumPoolSize = maximumPoolSize;
+        this.queueCapacity = queueCapacity;
+        this.largestPoolSize = largestPoolSize;
+        this.queueWaitNanos = queueWaitNanos;
+        this.throughput = throughput;
+        this.savedAtMillis = savedAtMillis;
+    }
+
+    /**
+     * 静态配置中影响线程池大小的参数的指纹
+     * @param config
+     * @return
+     */
+    public static int fingerprint(ExecutorConfig config) {
+        int hash = config.getCorePoolSize();
+        hash = 31 * hash + config.getMaximumPoolSize();
+        hash = 31 * hash + config.getQueueCapacity();
+        hash = 31 * hash + config.getMinPoolSize();
+        hash = 31 * hash + config.getMaxPoolSizeLimit();
+        hash = 31 * hash + config.getMaxQueueCapacity();
+        return hash;
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public int getFingerprint() {
+        return fingerprint;
+    }
+
+    public int getCorePoolSize() {
+        return corePoolSize;
+    }
+
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getLargestPoolSize() {
+        return largestPoolSize;
+    }
+
+    public long getQueueWaitNanos() {
+        return queueWaitNanos;
+    }
+
+    public double getThroughput() {
+        return throughput;
+    }
+
+    public long getSavedAtMillis() {
+        return savedAtMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "TuningState[poolName=" + poolName + ", corePoolSize=" + corePoolSize + ", maximumPoolSize=" + maximumPoolSize
+                + ", queueCapacity=" + queueCapacity + ", largestPoolSize=" + largestPoolSize + ", queueWaitNanos=" + queueWaitNanos
+                + ", throughput=" + throughput + ", savedAtMillis=" + savedAtMillis + "]";
+    }
+
+}
@@ -0,0 +1,277 @@
+package com.don.elastic.executors.tuning;
+
+import com.don.elastic.executors.config.ExecutorConfig;
+import com.don.elastic.executors.config.ExecutorsConfig;
+import com.don.elastic.executors.config.ExecutorsProperty;
+import com.don.elastic.executors.excutor.ElasticExecutor;
+import com.don.elastic.executors.excutor.NamedThreadFactory;
+import com.don.elastic.executors.util.Asserts;
+import com.don.elastic.executors.util.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 本地调优状态存储，定期把每个线程池的有效参数和负载画像写入文件，重启后从最后一次正常状态恢复线程池大小。
+ * 文件每行一个线程池，字段以制表符分隔，先写临时文件再原子替换
+ * @author Don Du
+ */
+public class TuningStateStore implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TuningStateStore.class);
+
+    private static final String HEADER = "# elastic-executors tuning state v1";
+
+    private static final int FIELD_COUNT = 9;
+
+    private final Path file;
+
+    private final long maxAgeMillis;
+
+    /**
+     * 启动时加载的状态
+     */
+    private volatile Map<String, TuningState> loadedStates = Collections.emptyMap();
+
+    /**
+     * 最近一次写入的状态
+     */
+    private final Map<String, TuningState> savedStates = new HashMap<>();
+
+    /**
+     * 上一次快照时的完成任务数和拒绝任务数，用于计算吞吐量和判断线程池是否健康
+     */
+    private final Map<String, long[]> lastCounters = new HashMap<>();
+
+    private long lastSnapshotNanos = System.nanoTime();
+
+    private ScheduledExecutorService scheduler;
+
+    private Supplier<Collection<ElasticExecutor>> source;
+
+    public TuningStateStore(Path file, long maxAgeMillis) {
+        Asserts.notNull(file, "file == null");
+        this.file = file.toAbsolutePath();
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * 根据配置elastic.executors.tuning.stateFile创建，没有配置时返回null
+     * @return
+     */
+    public static TuningStateStore create() {
+        String stateFile = ExecutorsProperty.getTuningStateFile();
+        if (Strings.isBlank(stateFile)) {
+            return null;
+        }
+        TuningStateStore store = new TuningStateStore(Paths.get(stateFile), ExecutorsProperty.getTuningMaxStateAge());
+        store.load();
+        return store;
+    }
+
+    /**
+     * 加载状态文件，文件不存在、损坏或者过期的记录会被忽略
+     * @return
+     */
+    public synchronized Map<String, TuningState> load() {
+        Map<String, TuningState> states = new HashMap<>();
+        if (Files.exists(file)) {
+            long now = System.currentTimeMillis();
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    TuningState state = parse(line);
+                    if (state != null && (maxAgeMillis <= 0 || now - state.getSavedAtMillis() <= maxAgeMillis)) {
+                        states.put(state.getPoolName(), state);
+                    }
+                }
+            } catch (IOException ex) {
+                LOGGER.warn("[TuningStateStore] 读取调优状态文件{}失败，使用静态配置", file, ex);
+            }
+        }
+        synchronized (savedStates) {
+            savedStates.clear();
+            savedStates.putAll(states);
+        }
+        loadedStates = Collections.unmodifiableMap(states);
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("[TuningStateStore] 从{}加载调优状态: {}", file, states.values());
+        }
+        return loadedStates;
+    }
+
+    private static TuningState parse(String line) {
+        if (Strings.isBlank(line) || line.startsWith("#")) {
+            return null;
+        }
+        String[] fields = line.split("\t");
+        if (fields.length != FIELD_COUNT) {
+            return null;
+        }
+        try {
+            return new TuningState(fields[0], Integer.parseInt(fields[1]), Integer.parseInt(fields[2]), Integer.parseInt(fields[3]),
+                    Integer.parseInt(fields[4]), Integer.parseInt(fields[5]), Long.parseLong(fields[6]),
+                    Double.parseDouble(fields[7]), Long.parseLong(fields[8]));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * 用上一次保存的状态计算线程池的启动参数，静态配置被修改过的线程池使用静态配置
+     * @param config
+     * @return
+     */
+    public ExecutorConfig restore(ExecutorConfig config) {
+        TuningState state = loadedStates.get(config.getPoolName());
+        if (state == null || state.getFingerprint() != TuningState.fingerprint(config)) {
+            return config;
+        }
+        ExecutorConfig restored = config.withSizes(state.getCorePoolSize(), state.getMaximumPoolSize(), state.getQueueCapacity());
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("[TuningStateStore] 线程池{}使用上次保存的参数启动, corePoolSize: {}, maximumPoolSize: {}, queueCapacity: {}",
+                    config.getPoolName(), restored.getCorePoolSize(), restored.getMaximumPoolSize(), restored.getQueueCapacity());
+        }
+        return restored;
+    }
+
+    /**
+     * 定期保存数据源提供的线程池状态
+     * @param source
+     * @param interval
+     * @param unit
+     */
+    public synchronized void start(Supplier<Collection<ElasticExecutor>> source, long interval, TimeUnit unit) {
+        Asserts.notNull(source, "source == null");
+        if (scheduler != null) {
+            return;
+        }
+        this.source = source;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("elastic-executors-tuning-state", true));
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                snapshot();
+            }
+        }, interval, interval, unit);
+        scheduler = executor;
+    }
+
+    private void snapshot() {
+        try {
+            save(source.get());
+        } catch (Exception ex) {
+            LOGGER.warn("[TuningStateStore] 保存调优状态失败", ex);
+        }
+    }
+
+    /**
+     * 保存线程池当前状态，快照期间拒绝策略拒绝过任务的线程池保留上一次的正常状态
+     * @param executors
+     * @throws IOException
+     */
+    public void save(Collection<ElasticExecutor> executors) throws IOException {
+        ExecutorsConfig config = ExecutorsProperty.snapshot();
+        long now = System.currentTimeMillis();
+        List<TuningState> states;
+        synchronized (savedStates) {
+            long nanos = System.nanoTime();
+            double seconds = Math.max(1e-3, (nanos - lastSnapshotNanos) / 1e9);
+            lastSnapshotNanos = nanos;
+            for (ElasticExecutor executor : executors) {
+                String poolName = executor.getPoolName();
+                ExecutorConfig executorConfig = config.getExecutorConfig(poolName);
+                if (executorConfig == null || executor.isShutdown()) {
+                    continue;
+                }
+                long completed = executor.getCompletedTaskCount();
+                // 只看拒绝策略的拒绝，限速和租户配额的拒绝不说明线程池参数有问题；先读准入拒绝数，差值不会偏小
+                long admissionRejected = executor.getAdmissionRejectedCount();
+                long rejected = executor.getRejectedTaskCount() - admissionRejected;
+                long[] last = lastCounters.put(poolName, new long[]{completed, rejected});
+                if (last != null && rejected > last[1]) {
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("[TuningStateStore] 线程池{}在快照期间发生拒绝，保留上一次的状态", poolName);
+                    }
+                    continue;
+                }
+                double throughput = last == null ? 0 : (completed - last[0]) / seconds;
+                savedStates.put(poolName, new TuningState(poolName, TuningState.fingerprint(executorConfig),
+                        executor.getCorePoolSize(), executor.getMaximumPoolSize(), executor.getWorkQueueCapacity(),
+                        executor.getLargestPoolSize(), executor.getQueueWaitNanos(), throughput, now));
+            }
+            states = new ArrayList<>(savedStates.values());
+        }
+        write(states);
+    }
+
+    private synchronized void write(List<TuningState> states) throws IOException {
+        Path parent = file.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (TuningState state : states) {
+                writer.write(state.getPoolName() + '\t' + state.getFingerprint() + '\t' + state.getCorePoolSize() + '\t'
+                        + state.getMaximumPoolSize() + '\t' + state.getQueueCapacity() + '\t' + state.getLargestPoolSize() + '\t'
+                        + state.getQueueWaitNanos() + '\t' + state.getThroughput() + '\t' + state.getSavedAtMillis());
+                writer.newLine();
+            }
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 启动时加载的状态
+     * @return
+     */
+    public Map<String, TuningState> getLoadedStates() {
+        return loadedStates;
+    }
+
+    /**
+     * 停止定期保存并写入最后一次快照
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = scheduler;
+            scheduler = null;
+        }
+        if (executor == null) {
+            return;
+        }
+        executor.shutdownNow();
+        snapshot();
+    }
+
+}
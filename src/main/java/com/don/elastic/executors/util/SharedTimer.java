@@ -0,0 +1,26 @@
+package com.don.elastic.executors.util;
+
+import com.don.elastic.executors.excutor.NamedThreadFactory;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 所有线程池共用的定时线程，用于延迟提交和延迟重试这类很短的回调，首次使用时创建
+ * @author Don Du
+ */
+public abstract class SharedTimer {
+
+    private static final ScheduledThreadPoolExecutor TIMER;
+
+    static {
+        TIMER = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("elastic-executors-timer", true));
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    public static ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return TIMER.schedule(command, delay, unit);
+    }
+
+}
@@ -1,17 +1,29 @@
 package com.don.elastic.executors;
 
 
+import com.don.elastic.executors.config.ExecutorsConfig;
+import com.don.elastic.executors.config.ExecutorsProperty;
 import com.don.elastic.executors.excutor.DefaultElasticThreadPoolExecutor;
 import com.don.elastic.executors.excutor.ElasticExecutor;
 import com.don.elastic.executors.queue.BlockingQueueBuilder;
 import com.don.elastic.executors.queue.ResizableLinkedBlockingQueue;
+import com.don.elastic.executors.selector.LoadAwareExecutorSelector;
+import com.don.elastic.executors.task.CompactExecutorTaskContext;
 import com.don.elastic.executors.task.DefaultExecutorTask;
 import com.don.elastic.executors.task.ExecutorTaskContext;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.InputStream;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DefaultElasticExecutorsTest {
 
@@ -53,4 +65,181 @@ public class DefaultElasticExecutorsTest {
         executors.shutdown(5, TimeUnit.SECONDS);
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSubmitCoalesced() throws Exception {
+        ElasticExecutors executors = new DefaultElasticExecutors();
+        final CountDownLatch gate = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        Callable<Integer> task = new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                gate.await();
+                return calls.incrementAndGet();
+            }
+        };
+        try {
+            ExecutorTaskContext taskContext = CompactExecutorTaskContext.newBuilder("coalesce").parameter("id", 1).build();
+            Future<Integer> first = executors.submitCoalesced(new DefaultExecutorTask<>(taskContext, task));
+            // 参数相同的可变上下文也会被合并
+            HashMap<Object, Object> parameters = new HashMap<>();
+            parameters.put("id", 1);
+            Future<Integer> second = executors.submitCoalesced(new DefaultExecutorTask<>(new ExecutorTaskContext("coalesce", parameters), task));
+            Assert.assertSame(first, second);
+            Assert.assertEquals(1, executors.getCoalescedTaskCount());
+            gate.countDown();
+            Assert.assertEquals(1, (int) first.get(5, TimeUnit.SECONDS));
+
+            // 完成后再提交会重新执行
+            Future<Integer> third = executors.submitCoalesced(new DefaultExecutorTask<>(taskContext, task));
+            Assert.assertNotSame(first, third);
+            Assert.assertEquals(2, (int) third.get(5, TimeUnit.SECONDS));
+        } finally {
+            gate.countDown();
+            executors.shutdown(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testSubmitCoalescedConcurrently() throws Exception {
+        final ElasticExecutors executors = new DefaultElasticExecutors();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        final Callable<Integer> task = new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                gate.await();
+                return calls.incrementAndGet();
+            }
+        };
+        int threads = 16;
+        final List<Future<Integer>> futures = new CopyOnWriteArrayList<>();
+        final CountDownLatch submitted = new CountDownLatch(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                            HashMap<Object, Object> parameters = new HashMap<>();
+                            parameters.put("id", 1);
+                            futures.add(executors.submitCoalesced(new DefaultExecutorTask<>(new ExecutorTaskContext("herd", parameters), task)));
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            submitted.countDown();
+                        }
+                    }
+                }).start();
+            }
+            // 所有线程同时提交相同的任务，只有一个入队执行
+            start.countDown();
+            Assert.assertTrue(submitted.await(5, TimeUnit.SECONDS));
+            gate.countDown();
+            Assert.assertEquals(threads, futures.size());
+            for (Future<Integer> future : futures) {
+                Assert.assertSame(futures.get(0), future);
+                Assert.assertEquals(1, (int) future.get(5, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(1, calls.get());
+            Assert.assertEquals(threads - 1, executors.getCoalescedTaskCount());
+        } finally {
+            gate.countDown();
+            executors.shutdown(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testEagerInit() throws Exception {
+        ExecutorsConfig original = ExecutorsProperty.snapshot();
+        Properties properties = new Properties();
+        InputStream input = DefaultElasticExecutorsTest.class.getClassLoader().getResourceAsStream(ExecutorsProperty.getPropertiesFileName());
+        try {
+            properties.load(input);
+        } finally {
+            input.close();
+        }
+        properties.setProperty("elastic.executors.eagerInit", "true");
+        properties.setProperty("elastic.executors.warmupTasks", "10");
+        properties.setProperty("elastic.executors.warmupInputs", "task1,task2");
+        ExecutorsProperty.publish(ExecutorsProperty.parse(properties));
+        ElasticExecutors executors = new DefaultElasticExecutors();
+        try {
+            // 预热在后台执行，就绪前也可以提交任务
+            Future<String> future = executors.submit(new DefaultExecutorTask<>(CompactExecutorTaskContext.of("task1"), new Callable<String>() {
+                @Override
+                public String call() {
+                    return "done";
+                }
+            }));
+            Assert.assertEquals("done", future.get(5, TimeUnit.SECONDS));
+            Assert.assertTrue(executors.awaitReady(10, TimeUnit.SECONDS));
+            Assert.assertTrue(executors.isReady());
+        } finally {
+            ExecutorsProperty.publish(original);
+            executors.shutdown(5, TimeUnit.SECONDS);
+        }
+        Assert.assertFalse(executors.isReady());
+
+        // 懒加载模式下直接就绪
+        ElasticExecutors lazy = new DefaultElasticExecutors();
+        try {
+            Assert.assertTrue(lazy.isReady());
+            Assert.assertTrue(lazy.awaitReady(0, TimeUnit.MILLISECONDS));
+        } finally {
+            lazy.shutdown(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testHandleRebind() throws Exception {
+        ExecutorsConfig original = ExecutorsProperty.snapshot();
+        Properties properties = new Properties();
+        InputStream input = DefaultElasticExecutorsTest.class.getClassLoader().getResourceAsStream(ExecutorsProperty.getPropertiesFileName());
+        try {
+            properties.load(input);
+        } finally {
+            input.close();
+        }
+        // 按任务名称选择线程池
+        properties.setProperty("elastic.executors.selector", LoadAwareExecutorSelector.class.getName());
+        // 未配置的poolKey路由到兜底线程池
+        properties.setProperty("elastic.executors.routingMode", "FALLBACK");
+        properties.setProperty("elastic.executors.fallbackPool", "default-executor");
+        ExecutorsConfig config = ExecutorsProperty.parse(properties);
+        Properties removed = new Properties();
+        for (String name : properties.stringPropertyNames()) {
+            if (!name.startsWith("elastic.executors.executor[1].")) {
+                removed.setProperty(name, properties.getProperty(name));
+            }
+        }
+        ExecutorsProperty.publish(config);
+        ElasticExecutors executors = new DefaultElasticExecutors();
+        Callable<String> threadName = new Callable<String>() {
+            @Override
+            public String call() {
+                return Thread.currentThread().getName();
+            }
+        };
+        try {
+            ExecutorHandle handle = executors.handle(CompactExecutorTaskContext.of("task1-executor"));
+            Assert.assertEquals("task1-executor", handle.getPoolKey());
+            Assert.assertTrue(handle.submit(threadName).get(5, TimeUnit.SECONDS).startsWith("task1-executor-"));
+
+            // 线程池从配置中删除后下线，句柄重新绑定到兜底线程池
+            ExecutorsProperty.publish(ExecutorsProperty.parse(removed));
+            Assert.assertTrue(handle.submit(threadName).get(5, TimeUnit.SECONDS).startsWith("default-executor-"));
+            Assert.assertEquals("default-executor", handle.getPoolKey());
+
+            // 线程池重新加入配置后，句柄绑定到新创建的线程池
+            ExecutorsProperty.publish(config);
+            Assert.assertTrue(handle.submit(threadName).get(5, TimeUnit.SECONDS).startsWith("task1-executor-"));
+            Assert.assertEquals("task1-executor", handle.getPoolKey());
+        } finally {
+            ExecutorsProperty.publish(original);
+            executors.shutdown(5, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.don.elastic.executors.config;
 
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Properties;
+
 
 public class ExecutorsPropertyTest {
 
@@ -9,4 +13,53 @@ public class ExecutorsPropertyTest {
     public void test() {
         System.out.println(ExecutorsProperty.getExecutorPropertyList());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testParseSnapshot() {
+        Properties properties = new Properties();
+        properties.setProperty("elastic.executors.selectorCacheSize", " 128 ");
+        properties.setProperty("elastic.executors.ordered.maxBatch", "4");
+        properties.setProperty("elastic.executors.coalesce.maxInFlight", "64");
+        properties.setProperty("elastic.executors.affinity.loadFactor", "0.5");
+        properties.setProperty("elastic.executors.warmupInputs", "a, ,b");
+        properties.setProperty("elastic.executors.executor[0].name", "snapshot-executor");
+        properties.setProperty("elastic.executors.executor[0].taskRateLimit", "report:10:2,broken,bad:x");
+        properties.setProperty("elastic.executors.executor[0].tenantQuotas", "acme:2,oops");
+        ExecutorsConfig config = ExecutorsProperty.parse(properties);
+
+        // 全局配置在解析时已经转换为对应类型
+        Assert.assertEquals(128, config.getSelectorCacheSize());
+        Assert.assertEquals(4, config.getOrderedMaxBatch());
+        Assert.assertEquals(64, config.getCoalesceMaxInFlight());
+        Assert.assertEquals(1.0, config.getAffinityLoadFactor(), 0);
+        Assert.assertEquals(Arrays.asList("a", "b"), config.getWarmupInputs());
+        // 没有配置的项使用默认值
+        Assert.assertEquals(RoutingMode.CREATE, config.getRoutingMode());
+        Assert.assertEquals(32, config.getFallbackTopK());
+
+        // 格式错误的项被忽略
+        ExecutorConfig executorConfig = config.getExecutorConfig("snapshot-executor");
+        Assert.assertEquals(1, executorConfig.getTaskRateLimits().size());
+        Assert.assertEquals(2, executorConfig.getTaskRateLimits().get("report").getBurst());
+        Assert.assertEquals(1, executorConfig.getTenantQuotas().size());
+        Assert.assertEquals(2, (int) executorConfig.getTenantQuotas().get("acme"));
+
+        // 发布后通过静态方法读取同一个快照
+        ExecutorsConfig original = ExecutorsProperty.snapshot();
+        try {
+            ExecutorsProperty.publish(config);
+            Assert.assertEquals(128, ExecutorsProperty.getSelectorCacheSize());
+            Assert.assertEquals(4, ExecutorsProperty.getOrderedMaxBatch());
+        } finally {
+            ExecutorsProperty.publish(original);
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testParseInvalidGlobal() {
+        Properties properties = new Properties();
+        properties.setProperty("elastic.executors.ordered.maxBatch", "many");
+        // 格式错误的全局配置在解析时失败，不会发布
+        ExecutorsProperty.parse(properties);
+    }
+}
@@ -0,0 +1,222 @@
+package com.don.elastic.executors.excutor;
+
+import com.don.elastic.executors.queue.ResizableLinkedBlockingQueue;
+import com.don.elastic.executors.task.CompactExecutorTaskContext;
+import com.don.elastic.executors.task.DefaultExecutorTask;
+import com.don.elastic.executors.task.ExecutorTask;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class KeyedOrderedExecutorTest {
+
+    @Test
+    public void testPerKeyOrdering() throws Exception {
+        ElasticExecutor executor = DefaultElasticThreadPoolExecutor.newBuilder().poolName("ordered").corePoolSize(4).maximumPoolSize(4).build();
+        KeyedOrderedExecutor ordered = new KeyedOrderedExecutor(executor, 4);
+        int keys = 8;
+        int tasks = 200;
+        final CountDownLatch done = new CountDownLatch(keys * tasks);
+        List<List<Integer>> results = new ArrayList<>();
+        try {
+            for (int k = 0; k < keys; k++) {
+                results.add(Collections.synchronizedList(new ArrayList<Integer>()));
+            }
+            for (int i = 0; i < tasks; i++) {
+                for (int k = 0; k < keys; k++) {
+                    final List<Integer> result = results.get(k);
+                    final int sequence = i;
+                    ordered.execute("account-" + k, new Runnable() {
+                        @Override
+                        public void run() {
+                            result.add(sequence);
+                            done.countDown();
+                        }
+                    });
+                }
+            }
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            for (List<Integer> result : results) {
+                Assert.assertEquals(tasks, result.size());
+                for (int i = 0; i < tasks; i++) {
+                    Assert.assertEquals(i, (int) result.get(i));
+                }
+            }
+            // 排空后不保留邮箱
+            long deadline = System.currentTimeMillis() + 1000;
+            while (ordered.getActiveKeyCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            Assert.assertEquals(0, ordered.getActiveKeyCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testHotKeyYieldsWorker() throws Exception {
+        ElasticExecutor executor = DefaultElasticThreadPoolExecutor.newBuilder().poolName("ordered-hot").corePoolSize(1).maximumPoolSize(1).build();
+        KeyedOrderedExecutor ordered = new KeyedOrderedExecutor(executor, 2);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch gate = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(7);
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        gate.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            for (int i = 0; i < 6; i++) {
+                ordered.execute("hot", record(order, "hot", done));
+            }
+            ordered.execute("cold", record(order, "cold", done));
+            gate.countDown();
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            // 热点key执行2个任务后让出唯一的工作线程
+            Assert.assertEquals("cold", order.get(2));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSaturatedDiscardOldestPool() throws Exception {
+        ElasticExecutor executor = DefaultElasticThreadPoolExecutor.newBuilder()
+                .poolName("ordered-saturated")
+                .corePoolSize(1)
+                .maximumPoolSize(1)
+                .workQueue(new ResizableLinkedBlockingQueue<Runnable>(2))
+                .rejectedExecutionHandler(new ThreadPoolExecutor.DiscardOldestPolicy())
+                .build();
+        KeyedOrderedExecutor ordered = new KeyedOrderedExecutor(executor, 1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        gate.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            Future<String> a = ordered.submit("a", task("a"));
+            Future<String> b = ordered.submit("b", task("b"));
+            // 队列已满，邮箱提交被直接拒绝，不会挤掉其他key的邮箱
+            try {
+                ordered.submit("c", task("c"));
+                Assert.fail();
+            } catch (RejectedExecutionException ex) {
+                // 拒绝
+            }
+            // 普通任务按DiscardOldestPolicy挤掉最早排队的邮箱a，a中的任务被取消
+            discardOldest(executor);
+            Assert.assertTrue(a.isCancelled());
+            gate.countDown();
+            Assert.assertEquals("b", b.get(5, TimeUnit.SECONDS));
+            // 被丢弃的key不会卡住
+            Assert.assertEquals("a", ordered.submit("a", task("a")).get(5, TimeUnit.SECONDS));
+        } finally {
+            gate.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testNoConcurrentRunsPerKeyWhenSaturated() throws Exception {
+        ElasticExecutor executor = DefaultElasticThreadPoolExecutor.newBuilder()
+                .poolName("ordered-discard")
+                .corePoolSize(4)
+                .maximumPoolSize(4)
+                .workQueue(new ResizableLinkedBlockingQueue<Runnable>(2))
+                .rejectedExecutionHandler(new ThreadPoolExecutor.DiscardOldestPolicy())
+                .build();
+        final KeyedOrderedExecutor ordered = new KeyedOrderedExecutor(executor, 1);
+        final AtomicInteger[] running = new AtomicInteger[4];
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        for (int k = 0; k < running.length; k++) {
+            running[k] = new AtomicInteger();
+        }
+        try {
+            for (int i = 0; i < 2000; i++) {
+                final AtomicInteger counter = running[i % running.length];
+                try {
+                    ordered.execute(i % running.length, new Runnable() {
+                        @Override
+                        public void run() {
+                            if (counter.incrementAndGet() > 1) {
+                                overlapped.set(true);
+                            }
+                            Thread.yield();
+                            counter.decrementAndGet();
+                        }
+                    });
+                } catch (RejectedExecutionException ex) {
+                    // 饱和时允许拒绝
+                }
+                // 普通任务挤掉排队中的邮箱
+                discardOldest(executor);
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (ordered.getActiveKeyCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            Assert.assertFalse(overlapped.get());
+            Assert.assertEquals(0, ordered.getActiveKeyCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 提交一个空任务，队列已满时按DiscardOldestPolicy丢弃最早排队的任务，入队后仍然抛出拒绝异常
+     */
+    private static void discardOldest(ElasticExecutor executor) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // 忽略
+        }
+    }
+
+    private static ExecutorTask<String> task(final String result) {
+        return new DefaultExecutorTask<>(CompactExecutorTaskContext.of("ordered"), new Callable<String>() {
+            @Override
+            public String call() {
+                return result;
+            }
+        });
+    }
+
+    private static Runnable record(final List<String> order, final String name, final CountDownLatch done) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                order.add(name);
+                done.countDown();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.don.elastic.executors.excutor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ShardedElasticExecutorTest {
+
+    @Test
+    public void testStealAndAggregate() throws Exception {
+        ElasticExecutor executor = ShardedElasticExecutor.newBuilder()
+                .poolName("sharded-pool")
+                .shards(2)
+                .corePoolSize(2)
+                .maximumPoolSize(2)
+                .capacity(20)
+                .build();
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(5);
+        try {
+            Assert.assertEquals(2, ((ShardedElasticExecutor) executor).getShardCount());
+            Assert.assertEquals(2, executor.prestartAllCoreThreads());
+            // 同一个提交线程的任务落在同一个分片，这个分片唯一的线程被占用
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        blocker.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            for (int i = 0; i < 5; i++) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        done.countDown();
+                    }
+                });
+            }
+            // 另一个分片的空闲线程窃取排队的任务
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(2, executor.getPoolSize());
+            Assert.assertEquals(20, executor.getWorkQueueCapacity());
+
+            executor.setMaximumPoolSize(4);
+            executor.setCorePoolSize(4);
+            Assert.assertEquals(4, executor.getCorePoolSize());
+        } finally {
+            blocker.countDown();
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.don.elastic.executors.excutor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class VirtualElasticExecutorTest {
+
+    @Test
+    public void testWeightedFairScheduling() throws Exception {
+        SharedWorkerGroup group = new SharedWorkerGroup("shared-test", 1);
+        ElasticExecutor heavy = VirtualElasticExecutor.newBuilder().poolName("heavy").group(group).weight(3).build();
+        ElasticExecutor light = VirtualElasticExecutor.newBuilder().poolName("light").group(group).weight(1).build();
+        final CountDownLatch gate = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(16);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        try {
+            heavy.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        gate.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            for (int i = 0; i < 8; i++) {
+                heavy.execute(record(order, "heavy", done));
+                light.execute(record(order, "light", done));
+            }
+            gate.countDown();
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            // 两个线程池都有排队时，按3:1的比例分到工作线程
+            Assert.assertEquals(6, Collections.frequency(order.subList(0, 8), "heavy"));
+            Assert.assertEquals(9, heavy.getCompletedTaskCount());
+            Assert.assertEquals(8, light.getCompletedTaskCount());
+        } finally {
+            heavy.shutdownNow();
+            light.shutdownNow();
+            group.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrencyCapAndTermination() throws Exception {
+        SharedWorkerGroup group = new SharedWorkerGroup("shared-test", 2);
+        ElasticExecutor capped = VirtualElasticExecutor.newBuilder().poolName("capped").group(group).maximumPoolSize(1).build();
+        ElasticExecutor other = VirtualElasticExecutor.newBuilder().poolName("other").group(group).build();
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < 2; i++) {
+                capped.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            blocker.await();
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            }
+            // 第二个工作线程不会被capped占用，other的任务可以执行
+            other.execute(new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            });
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(1, capped.getActiveCount());
+            Assert.assertEquals(1, capped.getWorkQueueSize());
+
+            capped.shutdown();
+            Assert.assertFalse(capped.isTerminated());
+            blocker.countDown();
+            Assert.assertTrue(capped.awaitTermination(5, TimeUnit.SECONDS));
+            Assert.assertEquals(2, capped.getCompletedTaskCount());
+        } finally {
+            blocker.countDown();
+            other.shutdownNow();
+            group.shutdown();
+            Assert.assertTrue(group.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private static Runnable record(final List<String> order, final String name, final CountDownLatch done) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                order.add(name);
+                done.countDown();
+            }
+        };
+    }
+
+}
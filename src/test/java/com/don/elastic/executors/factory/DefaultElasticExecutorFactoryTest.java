@@ -0,0 +1,187 @@
+package com.don.elastic.executors.factory;
+
+import com.don.elastic.executors.config.ExecutorsConfig;
+import com.don.elastic.executors.config.ExecutorsProperty;
+import com.don.elastic.executors.config.ExecutorsPropertyReloader;
+import com.don.elastic.executors.excutor.ElasticExecutor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class DefaultElasticExecutorFactoryTest {
+
+    @Test
+    public void testReload() throws Exception {
+        ExecutorsConfig original = ExecutorsProperty.snapshot();
+        DefaultElasticExecutorFactory factory = new DefaultElasticExecutorFactory();
+        ExecutorsProperty.addListener(factory);
+        File file = File.createTempFile("elastic-executors", ".properties");
+        try {
+            ElasticExecutor task1 = factory.getExecutor("task1-executor");
+            ElasticExecutor task2 = factory.getExecutor("task2-executor");
+            long generation = factory.getGeneration();
+
+            Properties properties = new Properties();
+            properties.setProperty("elastic.executors.executor[0].name", "task1-executor");
+            properties.setProperty("elastic.executors.executor[0].corePoolSize", "2");
+            properties.setProperty("elastic.executors.executor[0].maximumPoolSize", "4");
+            properties.setProperty("elastic.executors.executor[0].workQueueType", "LinkedBlockingQueue");
+            properties.setProperty("elastic.executors.executor[1].name", "task3-executor");
+            OutputStream output = new FileOutputStream(file);
+            try {
+                properties.store(output, null);
+            } finally {
+                output.close();
+            }
+
+            ExecutorsPropertyReloader reloader = new ExecutorsPropertyReloader(file.toPath());
+            Assert.assertTrue(reloader.reload());
+            Assert.assertFalse(reloader.reload());
+
+            Assert.assertEquals(2, task1.getCorePoolSize());
+            Assert.assertEquals(4, task1.getMaximumPoolSize());
+            Assert.assertTrue(task2.isShutdown());
+            Assert.assertTrue(factory.getCachedExecutors().containsKey("task3-executor"));
+            Assert.assertNotEquals(generation, factory.getGeneration());
+        } finally {
+            ExecutorsProperty.removeListener(factory);
+            ExecutorsProperty.publish(original);
+            factory.shutdown(1, TimeUnit.SECONDS);
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testFallbackRoutingAndMaxPools() throws Exception {
+        ExecutorsConfig original = ExecutorsProperty.snapshot();
+        final DefaultElasticExecutorFactory factory = new DefaultElasticExecutorFactory();
+        try {
+            Properties properties = new Properties();
+            properties.setProperty("elastic.executors.executor[0].name", "default-executor");
+            properties.setProperty("elastic.executors.executor[1].name", "task1-executor");
+            properties.setProperty("elastic.executors.routingMode", "FALLBACK");
+            properties.setProperty("elastic.executors.fallbackPool", "default-executor");
+            ExecutorsProperty.publish(ExecutorsProperty.parse(properties));
+
+            // 未配置的poolKey路由到兜底线程池并计入统计
+            ElasticExecutor fallback = factory.getExecutor("default-executor");
+            Assert.assertSame(fallback, factory.getExecutor("unknown-a"));
+            Assert.assertSame(fallback, factory.getExecutor("unknown-a"));
+            Assert.assertSame(fallback, factory.getExecutor("unknown-b"));
+            Assert.assertNotSame(fallback, factory.getExecutor("task1-executor"));
+            Assert.assertEquals(3, factory.getFallbackMetrics().getFallbackCount());
+            Assert.assertEquals("unknown-a", factory.getFallbackMetrics().getTopUnmatchedKeys().get(0).getKey());
+            Assert.assertEquals(2, factory.getFallbackMetrics().getTopUnmatchedKeys().get(0).getCount());
+
+            // CREATE模式下并发创建线程池不超过上限，超出的poolKey使用兜底线程池
+            properties.setProperty("elastic.executors.routingMode", "CREATE");
+            properties.setProperty("elastic.executors.maxPools", "4");
+            ExecutorsProperty.publish(ExecutorsProperty.parse(properties));
+            Thread[] threads = new Thread[8];
+            for (int i = 0; i < threads.length; i++) {
+                final String poolKey = "created-" + i;
+                threads[i] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        factory.getExecutor(poolKey);
+                    }
+                });
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            Assert.assertEquals(4, factory.getCachedExecutors().size());
+            Assert.assertEquals(3 + 6, factory.getFallbackMetrics().getFallbackCount());
+
+            // 超出上限的poolKey再次获取时直接使用兜底线程池，配置中的线程池不受上限限制
+            ElasticExecutor overflow = null;
+            for (int i = 0; i < threads.length && overflow == null; i++) {
+                if (!factory.getCachedExecutors().containsKey("created-" + i)) {
+                    overflow = factory.getExecutor("created-" + i);
+                }
+            }
+            Assert.assertSame(fallback, overflow);
+            properties.setProperty("elastic.executors.executor[2].name", "task2-executor");
+            ExecutorsProperty.publish(ExecutorsProperty.parse(properties));
+            Assert.assertNotSame(fallback, factory.getExecutor("task2-executor"));
+            Assert.assertEquals(5, factory.getCachedExecutors().size());
+        } finally {
+            ExecutorsProperty.publish(original);
+            factory.shutdown(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        ExecutorsConfig original = ExecutorsProperty.snapshot();
+        DefaultElasticExecutorFactory factory = new DefaultElasticExecutorFactory();
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            ElasticExecutor task1 = factory.getExecutor("task1-executor");
+            ElasticExecutor task2 = factory.getExecutor("task2-executor");
+            // task1中的任务一直等待，只能在截止时间前被强制中断
+            task1.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        release.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            // 配置中删除task2，task2下线后仍在排空，同样纳入关闭报告
+            task2.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            Properties properties = new Properties();
+            properties.setProperty("elastic.executors.executor[0].name", "default-executor");
+            properties.setProperty("elastic.executors.executor[1].name", "task1-executor");
+            factory.onChange(original, ExecutorsProperty.parse(properties));
+            Assert.assertFalse(factory.getCachedExecutors().containsKey("task2-executor"));
+
+            long begin = System.nanoTime();
+            ShutdownReport report = factory.shutdown(1, TimeUnit.SECONDS);
+            Assert.assertTrue(System.nanoTime() - begin < TimeUnit.MILLISECONDS.toNanos(1500));
+            Assert.assertTrue(report.isAllTerminated());
+            Assert.assertTrue(task1.isTerminated());
+            Assert.assertTrue(task2.isTerminated());
+            Map<String, ShutdownReport.PoolReport> pools = new HashMap<>();
+            for (ShutdownReport.PoolReport poolReport : report.getPoolReports()) {
+                pools.put(poolReport.getPoolName(), poolReport);
+            }
+            Assert.assertEquals(1, pools.get("task1-executor").getAbandonedTaskCount());
+            Assert.assertEquals(1, pools.get("task2-executor").getDrainedTaskCount());
+            Assert.assertEquals(0, pools.get("task2-executor").getAbandonedTaskCount());
+
+            // 关闭后不再创建线程池
+            try {
+                factory.getExecutor("default-executor");
+                Assert.fail();
+            } catch (RejectedExecutionException ex) {
+                // 已关闭
+            }
+        } finally {
+            release.countDown();
+            factory.shutdown(1, TimeUnit.SECONDS);
+        }
+    }
+
+}
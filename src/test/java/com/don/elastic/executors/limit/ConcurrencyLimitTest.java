@@ -0,0 +1,57 @@
+package com.don.elastic.executors.limit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrencyLimitTest {
+
+    @Test
+    public void testAimd() {
+        AimdLimit limit = new AimdLimit(10, 1, 20, TimeUnit.MILLISECONDS.toNanos(100));
+        // 负载不足时不增长
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), 2);
+        Assert.assertEquals(10, limit.getLimit());
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), limit.getLimit());
+        }
+        Assert.assertEquals(20, limit.getLimit());
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(500), 20);
+        Assert.assertEquals(18, limit.getLimit());
+    }
+
+    @Test
+    public void testAimdBackoffOncePerWindow() {
+        long slow = TimeUnit.MILLISECONDS.toNanos(500);
+        AimdLimit limit = new AimdLimit(20, 1, 20, TimeUnit.MILLISECONDS.toNanos(100));
+        long now = System.nanoTime();
+        limit.onSample(now, slow, 20);
+        Assert.assertEquals(18, limit.getLimit());
+        // 收缩之前提交的任务陆续超时完成，不再重复收缩
+        for (int i = 1; i <= 10; i++) {
+            limit.onSample(now + TimeUnit.MILLISECONDS.toNanos(i * 10), slow, 20);
+        }
+        Assert.assertEquals(18, limit.getLimit());
+        // 收缩之后提交的任务仍然超时，再收缩一次
+        limit.onSample(now + slow + 1, slow, 20);
+        Assert.assertEquals(16, limit.getLimit());
+    }
+
+    @Test
+    public void testGradient() {
+        GradientLimit limit = new GradientLimit(10, 1, 100);
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), limit.getLimit());
+        }
+        int grown = limit.getLimit();
+        Assert.assertTrue(grown > 10);
+        // 延迟突然升高，限制收缩
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(TimeUnit.MILLISECONDS.toNanos(200), limit.getLimit());
+        }
+        Assert.assertTrue(limit.getLimit() < grown);
+        Assert.assertTrue(limit.getLatencyNanos() > TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+}
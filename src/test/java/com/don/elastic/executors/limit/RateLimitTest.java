@@ -0,0 +1,142 @@
+package com.don.elastic.executors.limit;
+
+import com.don.elastic.executors.excutor.DefaultElasticThreadPoolExecutor;
+import com.don.elastic.executors.excutor.ElasticExecutor;
+import com.don.elastic.executors.queue.ResizableLinkedBlockingQueue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class RateLimitTest {
+
+    @Test
+    public void testTokenBucketReserve() {
+        long interval = TimeUnit.MILLISECONDS.toNanos(100);
+        TokenBucket bucket = new TokenBucket(10, 2);
+        long now = System.nanoTime();
+        // 满桶允许2个任务同时通过
+        Assert.assertEquals(0, bucket.reserve(now, 0));
+        Assert.assertEquals(0, bucket.reserve(now, 0));
+        Assert.assertEquals(-1, bucket.reserve(now, 0));
+        // 预约下一个令牌
+        long wait = bucket.reserve(now, interval * 2);
+        Assert.assertTrue(wait > 0 && wait <= interval);
+        // 一个间隔后补充一个令牌
+        Assert.assertEquals(-1, bucket.reserve(now + interval, 0));
+        Assert.assertEquals(0, bucket.reserve(now + interval * 3, 0));
+    }
+
+    @Test
+    public void testRejectAndDelay() throws Exception {
+        ElasticExecutor executor = DefaultElasticThreadPoolExecutor.newBuilder()
+                .poolName("rate-limited")
+                .corePoolSize(2)
+                .maximumPoolSize(2)
+                .build();
+        try {
+            executor.setRateLimit(10, 2, 0, TimeUnit.MILLISECONDS);
+            Assert.assertEquals(10, executor.getRateLimit(), 0);
+            int rejected = 0;
+            for (int i = 0; i < 5; i++) {
+                try {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                        }
+                    });
+                } catch (RejectedExecutionException ex) {
+                    rejected++;
+                }
+            }
+            Assert.assertEquals(3, rejected);
+            Assert.assertEquals(3, executor.getRejectedTaskCount());
+
+            // 允许延迟时令牌不足的任务由定时线程按速率提交
+            executor.setRateLimit(20, 1, 1, TimeUnit.SECONDS);
+            final CountDownLatch done = new CountDownLatch(5);
+            long start = System.nanoTime();
+            for (int i = 0; i < 5; i++) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        done.countDown();
+                    }
+                });
+            }
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+            Assert.assertEquals(3, executor.getRejectedTaskCount());
+
+            executor.setRateLimit(0, 1, 0, TimeUnit.MILLISECONDS);
+            Assert.assertEquals(0, executor.getRateLimit(), 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDelayedRejectSkipsPolicy() throws Exception {
+        ElasticExecutor executor = DefaultElasticThreadPoolExecutor.newBuilder()
+                .poolName("rate-limited-full")
+                .corePoolSize(1)
+                .maximumPoolSize(1)
+                .workQueue(new ResizableLinkedBlockingQueue<Runnable>(1))
+                .rejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy())
+                .build();
+        final CountDownLatch gate = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean ran = new AtomicBoolean();
+        try {
+            Runnable blocker = new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        gate.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            executor.execute(blocker);
+            Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+            executor.execute(blocker);
+            executor.setRateLimit(10, 1, 1, TimeUnit.SECONDS);
+            // 用掉唯一的令牌，线程池已满，按CallerRunsPolicy在当前线程执行
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                // CallerRunsPolicy执行后仍然抛出拒绝异常
+            }
+            // 令牌不足延迟提交，到时间后线程池已满，直接拒绝，不在定时线程上执行CallerRunsPolicy
+            Future<?> delayed = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    ran.set(true);
+                }
+            });
+            try {
+                delayed.get(5, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (CancellationException ex) {
+                // 被拒绝的Future被取消
+            }
+            Assert.assertFalse(ran.get());
+        } finally {
+            gate.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+}
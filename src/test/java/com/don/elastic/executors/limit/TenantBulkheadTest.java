@@ -0,0 +1,182 @@
+package com.don.elastic.executors.limit;
+
+import com.don.elastic.executors.excutor.DefaultElasticThreadPoolExecutor;
+import com.don.elastic.executors.excutor.ElasticExecutor;
+import com.don.elastic.executors.queue.ResizableLinkedBlockingQueue;
+import com.don.elastic.executors.task.CompactExecutorTaskContext;
+import com.don.elastic.executors.task.DefaultExecutorTask;
+import com.don.elastic.executors.task.ExecutorTask;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TenantBulkheadTest {
+
+    @Test
+    public void testTenantQuota() throws Exception {
+        ElasticExecutor executor = DefaultElasticThreadPoolExecutor.newBuilder().poolName("bulkhead").corePoolSize(4).maximumPoolSize(4).build();
+        executor.setTenantBulkhead("tenant", 0, 0, TimeUnit.MILLISECONDS);
+        executor.setTenantQuota("a", 1);
+        CountDownLatch gate = new CountDownLatch(1);
+        try {
+            Future<Void> first = executor.submit(task("a", gate));
+            try {
+                executor.submit(task("a", gate));
+                Assert.fail();
+            } catch (RejectedExecutionException ex) {
+                // 超过租户配额
+            }
+            // 其他租户不受影响
+            Future<Void> other = executor.submit(task("b", gate));
+            Assert.assertEquals(1, (int) executor.getTenantActiveCounts().get("a"));
+            Assert.assertEquals(1, (int) executor.getTenantActiveCounts().get("b"));
+            Assert.assertEquals(1L, (long) executor.getTenantRejectedCounts().get("a"));
+
+            // 配额在线调大
+            executor.setTenantQuota("a", 2);
+            Future<Void> second = executor.submit(task("a", gate));
+            gate.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+            other.get(5, TimeUnit.SECONDS);
+            // 完成回调在get返回之后才可能执行
+            long deadline = System.currentTimeMillis() + 1000;
+            while (executor.getTenantActiveCounts().containsKey("a") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            // 空闲的租户被移除
+            Assert.assertFalse(executor.getTenantActiveCounts().containsKey("a"));
+            Assert.assertFalse(executor.getTenantRejectedCounts().containsKey("a"));
+        } finally {
+            gate.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWaitForPermit() throws Exception {
+        ElasticExecutor executor = DefaultElasticThreadPoolExecutor.newBuilder().poolName("bulkhead-wait").corePoolSize(2).maximumPoolSize(2).build();
+        executor.setTenantBulkhead("tenant", 1, 5, TimeUnit.SECONDS);
+        final CountDownLatch gate = new CountDownLatch(1);
+        try {
+            Future<Void> first = executor.submit(task("a", gate));
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    gate.countDown();
+                }
+            }).start();
+            // 等到第一个任务完成释放许可
+            Future<Void> second = executor.submit(task("a", gate));
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(0L, rejected(executor, "a"));
+        } finally {
+            gate.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDiscardOldestReleasesPermit() throws Exception {
+        ElasticExecutor executor = DefaultElasticThreadPoolExecutor.newBuilder()
+                .poolName("bulkhead-discard")
+                .corePoolSize(1)
+                .maximumPoolSize(1)
+                .workQueue(new ResizableLinkedBlockingQueue<Runnable>(1))
+                .rejectedExecutionHandler(new ThreadPoolExecutor.DiscardOldestPolicy())
+                .build();
+        executor.setTenantBulkhead("tenant", 0, 0, TimeUnit.MILLISECONDS);
+        executor.setTenantQuota("a", 1);
+        CountDownLatch gate = new CountDownLatch(1);
+        try {
+            Future<Void> running = executor.submit(task("b", gate));
+            Future<Void> queued = executor.submit(task("a", gate));
+            // 队列已满，挤掉排队中的租户a的任务
+            executor.submit(task("b", gate));
+            Assert.assertTrue(queued.isCancelled());
+            Assert.assertFalse(executor.getTenantActiveCounts().containsKey("a"));
+            // 许可已释放，租户a可以继续提交
+            gate.countDown();
+            running.get(5, TimeUnit.SECONDS);
+            executor.submit(task("a", gate)).get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(0L, rejected(executor, "a"));
+        } finally {
+            gate.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testIdleTenantRemoved() throws Exception {
+        ElasticExecutor executor = DefaultElasticThreadPoolExecutor.newBuilder().poolName("bulkhead-idle").corePoolSize(4).maximumPoolSize(4)
+                .workQueue(new ResizableLinkedBlockingQueue<Runnable>(2000)).build();
+        executor.setTenantBulkhead("tenant", 1, 5, TimeUnit.SECONDS);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                // 大量只出现一次的租户，加上一个反复空闲又重新提交的租户
+                futures.add(executor.submit(task("tenant-" + i, new CountDownLatch(0))));
+                futures.add(executor.submit(new DefaultExecutorTask<>(CompactExecutorTaskContext.newBuilder("bulkhead").parameter("tenant", "hot").build(),
+                        new Callable<Void>() {
+                            @Override
+                            public Void call() {
+                                int current = running.incrementAndGet();
+                                int max = maxRunning.get();
+                                while (current > max && !maxRunning.compareAndSet(max, current)) {
+                                    max = maxRunning.get();
+                                }
+                                running.decrementAndGet();
+                                return null;
+                            }
+                        })));
+            }
+            for (Future<Void> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+            long deadline = System.currentTimeMillis() + 1000;
+            while (!executor.getTenantActiveCounts().isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            Assert.assertTrue(executor.getTenantActiveCounts().isEmpty());
+            Assert.assertTrue(executor.getTenantRejectedCounts().isEmpty());
+            // 移除和重新创建租户时配额仍然有效
+            Assert.assertEquals(1, maxRunning.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long rejected(ElasticExecutor executor, String tenant) {
+        Long count = executor.getTenantRejectedCounts().get(tenant);
+        return count == null ? 0 : count;
+    }
+
+    private static ExecutorTask<Void> task(String tenant, final CountDownLatch gate) {
+        return new DefaultExecutorTask<>(CompactExecutorTaskContext.newBuilder("bulkhead").parameter("tenant", tenant).build(),
+                new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        gate.await();
+                        return null;
+                    }
+                });
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.don.elastic.executors.queue;
+
+import com.don.elastic.executors.excutor.DefaultElasticThreadPoolExecutor;
+import com.don.elastic.executors.excutor.ElasticExecutor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+public class EagerGrowthQueueTest {
+
+    @Test
+    public void testGrowBeforeQueue() {
+        final CountDownLatch latch = new CountDownLatch(1);
+        ElasticExecutor executor = DefaultElasticThreadPoolExecutor.newBuilder()
+                .poolName("eager-pool")
+                .corePoolSize(2)
+                .maximumPoolSize(6)
+                .workQueue(new EagerGrowthQueue<Runnable>(10))
+                .build();
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        try {
+            for (int i = 0; i < 6; i++) {
+                executor.execute(blocking);
+            }
+            Assert.assertEquals(6, executor.getPoolSize());
+            Assert.assertEquals(0, executor.getWorkQueueSize());
+
+            // 线程数达到最大后开始排队
+            for (int i = 0; i < 10; i++) {
+                executor.execute(blocking);
+            }
+            Assert.assertEquals(6, executor.getPoolSize());
+            Assert.assertEquals(10, executor.getWorkQueueSize());
+            Assert.assertEquals(0, executor.getRejectedTaskCount());
+        } finally {
+            latch.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,328 @@
+package com.don.elastic.executors.rejected;
+
+import com.don.elastic.executors.excutor.DefaultElasticThreadPoolExecutor;
+import com.don.elastic.executors.excutor.ElasticExecutor;
+import com.don.elastic.executors.factory.ElasticExecutorFactory;
+import com.don.elastic.executors.factory.ShutdownReport;
+import com.don.elastic.executors.limit.ConcurrencyLimit;
+import com.don.elastic.executors.metrics.FallbackMetrics;
+import com.don.elastic.executors.queue.ResizableLinkedBlockingQueue;
+import com.don.elastic.executors.task.CompactExecutorTaskContext;
+import com.don.elastic.executors.task.DefaultExecutorTask;
+import com.don.elastic.executors.task.ExecutorTask;
+import com.don.elastic.executors.task.ExecutorTaskContext;
+import com.don.elastic.executors.task.TaskShedException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class RejectionPolicyTest {
+
+    @Test
+    public void testTimedBlocking() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        ElasticExecutor executor = saturated("blocking", new TimedBlockingPolicy(50, TimeUnit.MILLISECONDS), blocker);
+        try {
+            try {
+                executor.execute(noop());
+                Assert.fail();
+            } catch (RejectedExecutionException ex) {
+                // 超时
+            }
+            Assert.assertEquals(1L, (long) executor.getRejectionOutcomes().get("timedOut"));
+            Assert.assertEquals(1, executor.getRejectedTaskCount());
+            Assert.assertEquals("TimedBlockingPolicy", executor.getRejectedExecutionHandlerType());
+        } finally {
+            blocker.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRetryWithJitter() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        ElasticExecutor executor = saturated("retry", new RetryWithJitterPolicy(10, 5, 20), blocker);
+        final CountDownLatch done = new CountDownLatch(1);
+        try {
+            // 被接管的任务不抛出拒绝异常
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            });
+            blocker.countDown();
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(1L, (long) executor.getRejectionOutcomes().get("retried"));
+            Assert.assertEquals(1, executor.getRejectedTaskCount());
+        } finally {
+            blocker.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRetryRespectsConcurrencyLimit() throws Exception {
+        ElasticExecutor executor = DefaultElasticThreadPoolExecutor.newBuilder()
+                .poolName("retry-limit")
+                .corePoolSize(2)
+                .maximumPoolSize(2)
+                .workQueue(new ResizableLinkedBlockingQueue<Runnable>(10))
+                .rejectedExecutionHandler(new RetryWithJitterPolicy(100, 2, 5))
+                .concurrencyLimit(new ConcurrencyLimit() {
+                    @Override
+                    public int getLimit() {
+                        return 1;
+                    }
+
+                    @Override
+                    public void onSample(long latencyNanos, int inFlight) {
+                    }
+
+                    @Override
+                    public long getLatencyNanos() {
+                        return 0;
+                    }
+                })
+                .build();
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean released = new AtomicBoolean();
+        final AtomicBoolean ranAfterRelease = new AtomicBoolean();
+        final CountDownLatch done = new CountDownLatch(1);
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        blocker.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+            // 另一个核心线程空闲，队列也有空间，但在途任务数达到并发限制，重试要等到阻塞的任务完成
+            executor.prestartAllCoreThreads();
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ranAfterRelease.set(released.get());
+                    done.countDown();
+                }
+            });
+            Thread.sleep(100);
+            released.set(true);
+            blocker.countDown();
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(ranAfterRelease.get());
+            Assert.assertEquals(0L, (long) executor.getRejectionOutcomes().get("exhausted"));
+        } finally {
+            blocker.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testOverflow() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        OverflowPolicy policy = new OverflowPolicy("sibling");
+        ElasticExecutor executor = saturated("overflow", policy, blocker);
+        final ElasticExecutor sibling = DefaultElasticThreadPoolExecutor.newBuilder().poolName("sibling").corePoolSize(1).maximumPoolSize(1).build();
+        policy.setExecutorFactory(factoryOf(sibling));
+        final CountDownLatch done = new CountDownLatch(1);
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            });
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(1L, (long) executor.getRejectionOutcomes().get("redirected"));
+        } finally {
+            blocker.countDown();
+            executor.shutdownNow();
+            sibling.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testOverflowToSaturatedSibling() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        CountDownLatch siblingBlocker = new CountDownLatch(1);
+        OverflowPolicy policy = new OverflowPolicy("sibling-full");
+        ElasticExecutor executor = saturated("overflow-full", policy, blocker);
+        ElasticExecutor sibling = saturated("sibling-full", new ThreadPoolExecutor.DiscardOldestPolicy(), siblingBlocker);
+        policy.setExecutorFactory(factoryOf(sibling));
+        final CountDownLatch done = new CountDownLatch(1);
+        try {
+            // 兄弟线程池丢弃最早的排队任务后接受了转移的任务，调用方不会收到拒绝
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            });
+            Assert.assertEquals(1L, (long) executor.getRejectionOutcomes().get("redirected"));
+            Assert.assertEquals(0L, (long) executor.getRejectionOutcomes().get("failed"));
+            siblingBlocker.countDown();
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        } finally {
+            blocker.countDown();
+            siblingBlocker.countDown();
+            executor.shutdownNow();
+            sibling.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCallerRunsUnlessCritical() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        ElasticExecutor executor = saturated("caller", new CallerRunsUnlessCriticalPolicy(), blocker);
+        final Thread caller = Thread.currentThread();
+        final boolean[] ranInCaller = new boolean[1];
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ranInCaller[0] = Thread.currentThread() == caller;
+                }
+            });
+            Assert.assertTrue(ranInCaller[0]);
+
+            CallerRunsUnlessCriticalPolicy.markCritical();
+            try {
+                executor.execute(noop());
+                Assert.fail();
+            } catch (RejectedExecutionException ex) {
+                // 延迟敏感线程不执行任务
+            } finally {
+                CallerRunsUnlessCriticalPolicy.clearCritical();
+            }
+            Assert.assertEquals(1L, (long) executor.getRejectionOutcomes().get("callerRuns"));
+            Assert.assertEquals(1L, (long) executor.getRejectionOutcomes().get("criticalRejected"));
+        } finally {
+            blocker.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPriorityShedding() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        ElasticExecutor executor = DefaultElasticThreadPoolExecutor.newBuilder()
+                .poolName("shedding")
+                .corePoolSize(1)
+                .maximumPoolSize(1)
+                .workQueue(new ResizableLinkedBlockingQueue<Runnable>(1))
+                .rejectedExecutionHandler(new PrioritySheddingPolicy())
+                .build();
+        try {
+            executor.execute(block(blocker));
+            Future<String> low = executor.submit(task(0, "low"));
+            Future<String> high = executor.submit(task(5, "high"));
+            try {
+                low.get();
+                Assert.fail();
+            } catch (TaskShedException ex) {
+                // 低优先级任务被挤出
+            }
+            try {
+                executor.submit(task(5, "same"));
+                Assert.fail();
+            } catch (RejectedExecutionException ex) {
+                // 没有更低优先级的排队任务
+            }
+            blocker.countDown();
+            Assert.assertEquals("high", high.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(Collections.singletonMap(0, 1L), executor.getShedCounts());
+            Assert.assertEquals(1L, (long) executor.getRejectionOutcomes().get("refused"));
+        } finally {
+            blocker.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static ExecutorTask<String> task(int priority, final String result) {
+        return new DefaultExecutorTask<>(CompactExecutorTaskContext.newBuilder("shedding").parameter(ExecutorTaskContext.PRIORITY, priority).build(),
+                new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return result;
+                    }
+                });
+    }
+
+    /**
+     * 一个线程被占用、队列已满的线程池
+     */
+    private static ElasticExecutorFactory factoryOf(final ElasticExecutor executor) {
+        return new ElasticExecutorFactory() {
+            @Override
+            public ElasticExecutor getExecutor(String poolName) {
+                return executor;
+            }
+
+            @Override
+            public long getGeneration() {
+                return 0;
+            }
+
+            @Override
+            public FallbackMetrics getFallbackMetrics() {
+                return null;
+            }
+
+            @Override
+            public ShutdownReport shutdown(long timeout, TimeUnit timeUnit) {
+                return null;
+            }
+        };
+    }
+
+    private static ElasticExecutor saturated(String poolName, RejectedExecutionHandler policy, final CountDownLatch blocker) {
+        ElasticExecutor executor = DefaultElasticThreadPoolExecutor.newBuilder()
+                .poolName(poolName)
+                .corePoolSize(1)
+                .maximumPoolSize(1)
+                .workQueue(new ResizableLinkedBlockingQueue<Runnable>(1))
+                .rejectedExecutionHandler(policy)
+                .build();
+        executor.execute(block(blocker));
+        executor.execute(noop());
+        return executor;
+    }
+
+    private static Runnable block(final CountDownLatch blocker) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocker.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    private static Runnable noop() {
+        return new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.don.elastic.executors.selector;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConsistentHashRingTest {
+
+    @Test
+    public void test() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("pool-1", "pool-2", "pool-3", "pool-4"), 160);
+        ConsistentHashRing grown = new ConsistentHashRing(Arrays.asList("pool-1", "pool-2", "pool-3", "pool-4", "pool-5"), 160);
+
+        int keys = 20000;
+        int moved = 0;
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < keys; i++) {
+            String key = "user-" + i;
+            String node = ring.get(key);
+            assertEquals(node, ring.get(key));
+            counts.merge(node, 1, Integer::sum);
+            if (!node.equals(grown.get(key))) {
+                moved++;
+            }
+        }
+        // 每个线程池分到的key大致均匀，新增一个线程池只迁移约1/5的key
+        for (int count : counts.values()) {
+            assertTrue(count > keys / 4 * 0.8 && count < keys / 4 * 1.2);
+        }
+        assertTrue(moved > keys / 5 * 0.8 && moved < keys / 5 * 1.2);
+
+        // 热点线程池负载过高时溢出到下一个线程池
+        String hot = ring.get("user-1");
+        String spilled = ring.get("user-1", 1.25, node -> node.equals(hot) ? 100 : 0);
+        assertNotEquals(hot, spilled);
+        assertEquals(hot, ring.get("user-1", 1.25, node -> 0));
+    }
+}
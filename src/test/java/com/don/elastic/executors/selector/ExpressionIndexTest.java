@@ -0,0 +1,44 @@
+package com.don.elastic.executors.selector;
+
+import com.don.elastic.executors.config.ExecutorProperty;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ExpressionIndexTest {
+
+    @Test
+    public void test() {
+        List<ExecutorProperty> properties = new ArrayList<>();
+        properties.add(property("order-executor", "exact:order.create,glob:order.*"));
+        properties.add(property("pay-executor", "regex:^pay\\.(alipay|wechat)\\.\\d+$"));
+        properties.add(property("report-executor", "report-??-*"));
+        properties.add(property("any-executor", "glob:*.batch"));
+        properties.add(property("empty-executor", ""));
+        ExpressionIndex index = ExpressionIndex.compile(properties);
+
+        assertEquals(5, index.getRuleCount());
+        assertEquals("order-executor", index.match("order.create"));
+        assertEquals("order-executor", index.match("order.cancel"));
+        assertEquals("pay-executor", index.match("pay.wechat.42"));
+        assertNull(index.match("pay.unionpay.42"));
+        assertEquals("report-executor", index.match("report-cn-daily"));
+        assertNull(index.match("report-c-daily"));
+        // 多个规则命中时按配置顺序取第一个
+        assertEquals("order-executor", index.match("order.batch"));
+        assertEquals("any-executor", index.match("user.batch"));
+        assertNull(index.match("user"));
+        assertNull(index.match(""));
+    }
+
+    private static ExecutorProperty property(String poolName, String expression) {
+        ExecutorProperty property = new ExecutorProperty();
+        property.addProperty("name", poolName);
+        property.addProperty("expression", expression);
+        return property;
+    }
+}
@@ -0,0 +1,71 @@
+package com.don.elastic.executors.selector;
+
+import com.don.elastic.executors.config.ExecutorsConfig;
+import com.don.elastic.executors.config.ExecutorsProperty;
+import com.don.elastic.executors.excutor.ElasticExecutor;
+import com.don.elastic.executors.factory.DefaultElasticExecutorFactory;
+import com.don.elastic.executors.task.CompactExecutorTaskContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class LoadAwareExecutorSelectorTest {
+
+    @Test
+    public void testRouteToIdlePool() throws Exception {
+        ExecutorsConfig original = ExecutorsProperty.snapshot();
+        DefaultElasticExecutorFactory factory = new DefaultElasticExecutorFactory();
+        final CountDownLatch gate = new CountDownLatch(1);
+        try {
+            Properties properties = new Properties();
+            properties.setProperty("elastic.executors.executor[0].name", "default-executor");
+            properties.setProperty("elastic.executors.executor[1].name", "load-a");
+            properties.setProperty("elastic.executors.executor[1].group", "load");
+            properties.setProperty("elastic.executors.executor[1].corePoolSize", "1");
+            properties.setProperty("elastic.executors.executor[1].maximumPoolSize", "1");
+            properties.setProperty("elastic.executors.executor[1].queueCapacity", "10");
+            properties.setProperty("elastic.executors.executor[2].name", "load-b");
+            properties.setProperty("elastic.executors.executor[2].group", "load");
+            properties.setProperty("elastic.executors.executor[2].corePoolSize", "1");
+            properties.setProperty("elastic.executors.executor[2].maximumPoolSize", "1");
+            properties.setProperty("elastic.executors.executor[2].queueCapacity", "10");
+            ExecutorsProperty.publish(ExecutorsProperty.parse(properties));
+            LoadAwareExecutorSelector selector = new LoadAwareExecutorSelector();
+            selector.setExecutorFactory(factory);
+
+            // load-a一个任务执行中、三个任务排队，组内的选择都落到空闲的load-b
+            ElasticExecutor busy = factory.getExecutor("load-a");
+            factory.getExecutor("load-b");
+            busy.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        gate.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            for (int i = 0; i < 3; i++) {
+                busy.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                    }
+                });
+            }
+            for (int i = 0; i < 20; i++) {
+                Assert.assertEquals("load-b", selector.selectPoolKey(CompactExecutorTaskContext.of("load")));
+                Assert.assertEquals("load-b", selector.selectPoolKey(CompactExecutorTaskContext.of("load-a")));
+            }
+            // 不属于任何分组的线程池原样返回
+            Assert.assertEquals("default-executor", selector.selectPoolKey(CompactExecutorTaskContext.of("default-executor")));
+        } finally {
+            gate.countDown();
+            ExecutorsProperty.publish(original);
+            factory.shutdown(1, TimeUnit.SECONDS);
+        }
+    }
+}
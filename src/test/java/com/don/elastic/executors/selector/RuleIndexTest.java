@@ -0,0 +1,50 @@
+package com.don.elastic.executors.selector;
+
+import com.don.elastic.executors.config.RuleProperty;
+import com.don.elastic.executors.task.ExecutorTaskContext;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RuleIndexTest {
+
+    @Test
+    public void test() {
+        List<RuleProperty> rules = new ArrayList<>();
+        rules.add(rule(0, "vip-small-executor", "tenant", "acme,globex", "payloadSize", "[0,1024)"));
+        rules.add(rule(1, "vip-executor", "tenant", "acme,globex"));
+        rules.add(rule(2, "bulk-executor", "payloadSize", "[1048576,)"));
+        rules.add(rule(3, "report-executor", "taskName", "report", "priority", "low"));
+        RuleIndex index = RuleIndex.compile(rules);
+
+        assertEquals("vip-small-executor", index.select(context("order", "tenant", "acme", "payloadSize", 512)));
+        assertEquals("vip-executor", index.select(context("order", "tenant", "globex", "payloadSize", 4096)));
+        assertEquals("vip-executor", index.select(context("order", "tenant", "acme")));
+        assertEquals("bulk-executor", index.select(context("order", "tenant", "initech", "payloadSize", "2097152")));
+        assertEquals("report-executor", index.select(context("report", "priority", "low")));
+        assertNull(index.select(context("report", "priority", "high")));
+        assertNull(index.select(context("order", "tenant", "initech", "payloadSize", 10)));
+    }
+
+    private static RuleProperty rule(int index, String pool, String... conditions) {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < conditions.length; i += 2) {
+            map.put(conditions[i], conditions[i + 1]);
+        }
+        return new RuleProperty(index, pool, map);
+    }
+
+    private static ExecutorTaskContext context(String taskName, Object... parameters) {
+        Map<Object, Object> map = new HashMap<>();
+        for (int i = 0; i < parameters.length; i += 2) {
+            map.put(parameters[i], parameters[i + 1]);
+        }
+        return new ExecutorTaskContext(taskName, map);
+    }
+}
@@ -0,0 +1,40 @@
+package com.don.elastic.executors.selector;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SelectorCacheTest {
+
+    @Test
+    public void test() {
+        SelectorCache cache = new SelectorCache(100);
+        long generation = cache.getGeneration();
+        cache.put("hot", "hot-executor", generation);
+        cache.put("unknown", SelectorCache.NO_MATCH, generation);
+        for (int i = 0; i < 50; i++) {
+            assertEquals("hot-executor", cache.get("hot"));
+        }
+        assertSame(SelectorCache.NO_MATCH, cache.get("unknown"));
+
+        // 大量只访问一次的输入不能把高频输入挤出去，缓存大小不超过容量
+        for (int i = 0; i < 10000; i++) {
+            String key = "task-" + i;
+            assertNull(cache.get(key));
+            cache.put(key, "task-executor", cache.getGeneration());
+        }
+        assertEquals("hot-executor", cache.get("hot"));
+        assertTrue(cache.size() <= 100);
+        assertTrue(cache.stats().getEvictionCount() > 0);
+        assertEquals(1, cache.stats().getNegativeHitCount());
+
+        // 失效后旧代数计算出的结果不能再写入
+        cache.invalidateAll();
+        cache.put("stale", "stale-executor", generation);
+        assertNull(cache.get("stale"));
+        assertNull(cache.get("hot"));
+    }
+}
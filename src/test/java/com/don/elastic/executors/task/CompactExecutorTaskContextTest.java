@@ -0,0 +1,58 @@
+package com.don.elastic.executors.task;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class CompactExecutorTaskContextTest {
+
+    @Test
+    public void testEqualsMutableContext() {
+        Map<Object, Object> parameters = new HashMap<>();
+        parameters.put("id", 1);
+        parameters.put("tenant", "acme");
+        parameters.put("note", null);
+        ExecutorTaskContext mutable = new ExecutorTaskContext("compact", parameters);
+
+        // 从可变上下文复制的紧凑上下文与按任意顺序构建的紧凑上下文相等，哈希值相同
+        CompactExecutorTaskContext copied = CompactExecutorTaskContext.of(mutable.getTaskName(), mutable.getParameters());
+        CompactExecutorTaskContext built = CompactExecutorTaskContext.newBuilder("compact")
+                .parameter("tenant", "acme")
+                .parameter("note", null)
+                .parameter("id", 1)
+                .build();
+        Assert.assertEquals(copied, built);
+        Assert.assertEquals(built, copied);
+        Assert.assertEquals(copied.hashCode(), built.hashCode());
+        Assert.assertSame(copied.getTaskSymbol(), built.getTaskSymbol());
+
+        // 扁平参数表满足Map的equals/hashCode约定
+        Assert.assertEquals(parameters, copied.getParameters());
+        Assert.assertEquals(copied.getParameters(), parameters);
+        Assert.assertEquals(parameters.hashCode(), copied.getParameters().hashCode());
+
+        // 复制后修改原参数不影响紧凑上下文
+        parameters.put("id", 2);
+        Assert.assertEquals(built, copied);
+        Assert.assertNotEquals(copied, CompactExecutorTaskContext.of(mutable.getTaskName(), mutable.getParameters()));
+
+        // 任务名称或参数不同都不相等
+        Assert.assertNotEquals(built, CompactExecutorTaskContext.newBuilder("other")
+                .parameter("tenant", "acme")
+                .parameter("note", null)
+                .parameter("id", 1)
+                .build());
+        Assert.assertNotEquals(CompactExecutorTaskContext.of("compact"), built);
+
+        // 没有参数的上下文是共享的
+        Assert.assertSame(CompactExecutorTaskContext.of("compact"), CompactExecutorTaskContext.of("compact", new HashMap<>()));
+        Assert.assertSame(CompactExecutorTaskContext.of("compact"), CompactExecutorTaskContext.newBuilder("compact").build());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable() {
+        CompactExecutorTaskContext.of("compact").setTaskName("other");
+    }
+}
@@ -0,0 +1,61 @@
+package com.don.elastic.executors.tuning;
+
+import com.don.elastic.executors.excutor.DefaultElasticThreadPoolExecutor;
+import com.don.elastic.executors.excutor.ElasticExecutor;
+import com.don.elastic.executors.queue.ResizableLinkedBlockingQueue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class PoolAutoscalerTest {
+
+    @Test
+    public void testScaleUpOnRejection() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        ElasticExecutor executor = DefaultElasticThreadPoolExecutor.newBuilder()
+                .poolName("task1-executor")
+                .corePoolSize(2)
+                .maximumPoolSize(2)
+                .workQueue(new ResizableLinkedBlockingQueue<Runnable>(1))
+                .build();
+        try {
+            Collection<ElasticExecutor> executors = Collections.singletonList(executor);
+            PoolAutoscaler autoscaler = new PoolAutoscaler();
+            long now = System.nanoTime();
+            autoscaler.tick(executors, now);
+            for (int tick = 1; tick <= 3; tick++) {
+                for (int i = 0; i < 4; i++) {
+                    try {
+                        executor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    latch.await();
+                                } catch (InterruptedException ex) {
+                                    Thread.currentThread().interrupt();
+                                }
+                            }
+                        });
+                    } catch (RuntimeException ex) {
+                        // 拒绝
+                    }
+                }
+                autoscaler.tick(executors, now + TimeUnit.SECONDS.toNanos(tick));
+            }
+            Assert.assertEquals(4, executor.getMaximumPoolSize());
+            Assert.assertEquals(4, executor.getCorePoolSize());
+
+            // 冷却时间内不再调整
+            autoscaler.tick(executors, now + TimeUnit.SECONDS.toNanos(4));
+            Assert.assertEquals(4, executor.getMaximumPoolSize());
+        } finally {
+            latch.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.don.elastic.executors.tuning;
+
+import com.don.elastic.executors.excutor.DefaultElasticThreadPoolExecutor;
+import com.don.elastic.executors.excutor.ElasticExecutor;
+import com.don.elastic.executors.queue.ResizableLinkedBlockingQueue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class ThreadBudgetTest {
+
+    @Test
+    public void testRebalanceToSaturatedPool() {
+        final CountDownLatch latch = new CountDownLatch(1);
+        ElasticExecutor busy = newExecutor("task1-executor");
+        ElasticExecutor idle = newExecutor("task2-executor");
+        ElasticExecutor unconfigured = null;
+        try {
+            for (int i = 0; i < 8; i++) {
+                busy.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            latch.await();
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            }
+            List<ElasticExecutor> executors = Arrays.asList(busy, idle);
+            new ThreadBudget(12).rebalance(executors);
+
+            Assert.assertEquals(12, busy.getMaximumPoolSize() + idle.getMaximumPoolSize());
+            Assert.assertTrue(busy.getMaximumPoolSize() >= 8);
+            Assert.assertTrue(idle.getMaximumPoolSize() >= 1);
+            Assert.assertTrue(idle.getCorePoolSize() <= idle.getMaximumPoolSize());
+
+            // 负载消失后预算按静态配置比例回到两个线程池
+            latch.countDown();
+            waitIdle(busy);
+            new ThreadBudget(12).rebalance(executors);
+            Assert.assertEquals(6, busy.getMaximumPoolSize());
+            Assert.assertEquals(6, idle.getMaximumPoolSize());
+
+            // 没有配置的线程池不参与分配，最大线程数从预算中预留
+            unconfigured = newExecutor("unconfigured-executor");
+            unconfigured.setCorePoolSize(1);
+            unconfigured.setMaximumPoolSize(4);
+            new ThreadBudget(12).rebalance(Arrays.asList(busy, idle, unconfigured));
+            Assert.assertEquals(8, busy.getMaximumPoolSize() + idle.getMaximumPoolSize());
+            Assert.assertEquals(4, unconfigured.getMaximumPoolSize());
+        } finally {
+            latch.countDown();
+            busy.shutdownNow();
+            idle.shutdownNow();
+            if (unconfigured != null) {
+                unconfigured.shutdownNow();
+            }
+        }
+    }
+
+    private static ElasticExecutor newExecutor(String poolName) {
+        return DefaultElasticThreadPoolExecutor.newBuilder()
+                .poolName(poolName)
+                .corePoolSize(2)
+                .maximumPoolSize(12)
+                .workQueue(new ResizableLinkedBlockingQueue<Runnable>(100))
+                .build();
+    }
+
+    private static void waitIdle(ElasticExecutor executor) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((executor.getActiveCount() > 0 || executor.getWorkQueueSize() > 0) && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+    }
+
+}
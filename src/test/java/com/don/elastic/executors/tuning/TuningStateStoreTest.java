@@ -0,0 +1,73 @@
+package com.don.elastic.executors.tuning;
+
+import com.don.elastic.executors.config.ExecutorConfig;
+import com.don.elastic.executors.config.ExecutorsProperty;
+import com.don.elastic.executors.excutor.DefaultElasticThreadPoolExecutor;
+import com.don.elastic.executors.excutor.ElasticExecutor;
+import com.don.elastic.executors.task.TaskRejectedException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+public class TuningStateStoreTest {
+
+    @Test
+    public void testSaveAndRestore() throws Exception {
+        File file = File.createTempFile("tuning-state", ".tsv");
+        ExecutorConfig config = ExecutorsProperty.snapshot().getExecutorConfig("task1-executor");
+        ElasticExecutor executor = DefaultElasticThreadPoolExecutor.newBuilder()
+                .poolName(config.getPoolName())
+                .corePoolSize(config.getCorePoolSize())
+                .maximumPoolSize(config.getMaximumPoolSize())
+                .workQueue(config.newWorkQueue())
+                .build();
+        try {
+            executor.setCorePoolSize(3);
+            executor.setMaximumPoolSize(6);
+
+            TuningStateStore store = new TuningStateStore(file.toPath(), 0);
+            store.save(Collections.singletonList(executor));
+
+            TuningStateStore restarted = new TuningStateStore(file.toPath(), 0);
+            Assert.assertEquals(1, restarted.load().size());
+            ExecutorConfig restored = restarted.restore(config);
+            Assert.assertEquals(3, restored.getCorePoolSize());
+            Assert.assertEquals(6, restored.getMaximumPoolSize());
+            Assert.assertEquals(config.getQueueCapacity(), restored.getQueueCapacity());
+
+            // 超出配置上限的值被限制在边界内
+            ExecutorConfig bounded = config.withSizes(0, 1000, 1000000);
+            Assert.assertEquals(config.getMinPoolSize(), bounded.getCorePoolSize());
+            Assert.assertEquals(config.getMaxPoolSizeLimit(), bounded.getMaximumPoolSize());
+            Assert.assertEquals(config.getMaxQueueCapacity(), bounded.getQueueCapacity());
+
+            // 限速拒绝不影响快照，线程数调整后的状态照常保存
+            executor.setRateLimit(10, 1, 0, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < 5; i++) {
+                try {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                        }
+                    });
+                } catch (TaskRejectedException ex) {
+                    // 超过限速
+                }
+            }
+            Assert.assertTrue(executor.getAdmissionRejectedCount() > 0);
+            Assert.assertEquals(executor.getAdmissionRejectedCount(), executor.getRejectedTaskCount());
+            executor.setCorePoolSize(4);
+            store.save(Collections.singletonList(executor));
+            restarted = new TuningStateStore(file.toPath(), 0);
+            restarted.load();
+            Assert.assertEquals(4, restarted.restore(config).getCorePoolSize());
+        } finally {
+            executor.shutdownNow();
+            file.delete();
+        }
+    }
+
+}